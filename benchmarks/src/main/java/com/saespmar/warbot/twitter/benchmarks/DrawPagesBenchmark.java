@@ -0,0 +1,58 @@
+package com.saespmar.warbot.twitter.benchmarks;
+
+import com.saespmar.warbot.twitter.Battlefield;
+import com.saespmar.warbot.twitter.ColumnarRoster;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *
+ * <p>Measures a fight followed by {@link Battlefield#drawPages()}, which
+ * only draws the page of the victim. The setup draws every page once, so
+ * 1M participants (10000 pages) isn't included to keep it short.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DrawPagesBenchmark {
+    
+    @Param({"1000", "10000", "100000"})
+    int size;
+    
+    File file;
+    Battlefield battlefield;
+    
+    @Setup
+    public void setUp() throws IOException {
+        file = Rosters.write(size);
+        battlefield = new Battlefield(file, file.getParent(), new ColumnarRoster());
+        battlefield.drawPages();
+    }
+    
+    @TearDown
+    public void tearDown() {
+        Rosters.delete(file);
+    }
+    
+    @Benchmark
+    public int drawPages() {
+        if (battlefield.fight() == null) battlefield.updateList();
+        return battlefield.drawPages().size();
+    }
+}
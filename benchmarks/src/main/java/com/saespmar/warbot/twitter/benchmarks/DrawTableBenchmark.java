@@ -0,0 +1,67 @@
+package com.saespmar.warbot.twitter.benchmarks;
+
+import com.saespmar.warbot.twitter.Battlefield;
+import com.saespmar.warbot.twitter.ColumnarRoster;
+import com.saespmar.warbot.twitter.NameSpriteCache;
+import com.saespmar.warbot.twitter.TableRenderer;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *
+ * <p>Measures a fight followed by {@link Battlefield#drawTable()}, drawing
+ * the whole table (full), only the changed cells (incremental) or only the
+ * changed cells with a sprite cache (sprites). A single table of 1M
+ * participants would be 9.6 million pixels wide, so this benchmark stops at
+ * 10000; bigger rosters are measured by {@link DrawPagesBenchmark}.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DrawTableBenchmark {
+    
+    @Param({"10", "1000", "10000"})
+    int size;
+    
+    @Param({"full", "incremental", "sprites"})
+    String mode;
+    
+    File file;
+    Battlefield battlefield;
+    
+    @Setup
+    public void setUp() throws IOException {
+        file = Rosters.write(size);
+        battlefield = new Battlefield(file, file.getParent(), new ColumnarRoster());
+        TableRenderer renderer = new TableRenderer(!mode.equals("full"));
+        if (mode.equals("sprites")) renderer.setSpriteCache(new NameSpriteCache(10000));
+        battlefield.setRenderer(renderer);
+    }
+    
+    @TearDown
+    public void tearDown() {
+        Rosters.delete(file);
+    }
+    
+    @Benchmark
+    public File drawTable() {
+        if (battlefield.fight() == null) battlefield.updateList();
+        return battlefield.drawTable();
+    }
+}
@@ -0,0 +1,81 @@
+package com.saespmar.warbot.twitter.benchmarks;
+
+import com.saespmar.warbot.twitter.Battlefield;
+import com.saespmar.warbot.twitter.FightRules;
+import com.saespmar.warbot.twitter.Participant;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *
+ * <p>Measures {@link Battlefield#fight()}. When the game ends, the list is
+ * read again, so that cost is spread over all the fights of a game. The
+ * weighted and team modes pick the killer with {@link FightRules}.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FightBenchmark {
+    
+    @Param({"10", "1000", "100000", "1000000"})
+    int size;
+    
+    @Param({"list", "columnar"})
+    String roster;
+    
+    @Param({"uniform", "weighted", "teams"})
+    String mode;
+    
+    File file;
+    Battlefield battlefield;
+    
+    @Setup
+    public void setUp() throws IOException {
+        file = Rosters.write(size);
+        battlefield = new Battlefield(file, file.getParent(), Rosters.create(roster));
+        if (mode.equals("weighted")){
+            long[] weights = new long[size];
+            for (int i = 0; i<size; i++){
+                weights[i] = 1 + i % 100;
+            }
+            battlefield.setRules(FightRules.weighted(weights));
+        } else if (mode.equals("teams")){
+            int[] teams = new int[size];
+            for (int i = 0; i<size; i++){
+                teams[i] = i % 8;
+            }
+            battlefield.setRules(FightRules.teams(teams));
+        }
+    }
+    
+    @TearDown
+    public void tearDown() {
+        Rosters.delete(file);
+    }
+    
+    @Benchmark
+    public Participant[] fight() {
+        Participant[] result = battlefield.fight();
+        if (result == null){
+            battlefield.updateList();
+            result = battlefield.fight();
+        }
+        return result;
+    }
+}
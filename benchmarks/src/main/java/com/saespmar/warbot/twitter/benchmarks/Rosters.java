@@ -0,0 +1,58 @@
+package com.saespmar.warbot.twitter.benchmarks;
+
+import com.saespmar.warbot.twitter.ColumnarRoster;
+import com.saespmar.warbot.twitter.ListRoster;
+import com.saespmar.warbot.twitter.Roster;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+/**
+ *
+ * <p>Helpers to create the battlefields measured by the benchmarks.</p>
+ */
+final class Rosters {
+    
+    private Rosters() {
+    }
+    
+    /**
+     *
+     * <p>Writes a list of participants in a new temporary directory, all of
+     * them alive.</p>
+     */
+    static File write(int size) throws IOException {
+        File dir = File.createTempFile("warbot", "");
+        dir.delete();
+        dir.mkdir();
+        File file = new File(dir, "battle.txt");
+        BufferedWriter bw = new BufferedWriter(new FileWriter(file));
+        try {
+            for (int i = 0; i<size; i++){
+                bw.write("Participant number " + i);
+                bw.newLine();
+            }
+        } finally {
+            bw.close();
+        }
+        return file;
+    }
+    
+    static Roster create(String type) {
+        if (type.equals("list")) return new ListRoster();
+        if (type.equals("columnar")) return new ColumnarRoster();
+        throw new IllegalArgumentException("Unknown roster: " + type);
+    }
+    
+    static void delete(File file) {
+        File dir = file.getParentFile();
+        File[] children = dir.listFiles();
+        if (children != null){
+            for (File child : children){
+                child.delete();
+            }
+        }
+        dir.delete();
+    }
+}
@@ -0,0 +1,76 @@
+package com.saespmar.warbot.twitter.benchmarks;
+
+import com.saespmar.warbot.twitter.Battlefield;
+import com.saespmar.warbot.twitter.ColumnarRoster;
+import com.saespmar.warbot.twitter.FightJournal;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *
+ * <p>Measures a fight followed by {@link Battlefield#updateFile()},
+ * rewriting the whole list (rewrite) or appending to a journal compacted
+ * every 10000 fights (journal).</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UpdateFileBenchmark {
+    
+    @Param({"10", "1000", "100000", "1000000"})
+    int size;
+    
+    @Param({"rewrite", "journal"})
+    String mode;
+    
+    File file;
+    Battlefield battlefield;
+    FightJournal journal;
+    
+    @Setup
+    public void setUp() throws IOException {
+        file = Rosters.write(size);
+        battlefield = new Battlefield(file, file.getParent(), new ColumnarRoster());
+        if (mode.equals("journal")){
+            journal = FightJournal.forParticipantsFile(file, 10000);
+            battlefield.setJournal(journal);
+        }
+        battlefield.updateFile();
+    }
+    
+    @TearDown
+    public void tearDown() throws IOException {
+        if (journal != null) journal.close();
+        Rosters.delete(file);
+    }
+    
+    @Benchmark
+    public void updateFile() {
+        if (battlefield.fight() == null){
+            
+            // The game has ended, start it again with the same list
+            for (int i = 0; i<size; i++){
+                battlefield.getRoster().setAlive(i, true);
+            }
+            battlefield.setRoster(battlefield.getRoster());
+            battlefield.fight();
+        }
+        battlefield.updateFile();
+    }
+}
@@ -0,0 +1,58 @@
+package com.saespmar.warbot.twitter.benchmarks;
+
+import com.saespmar.warbot.twitter.Battlefield;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *
+ * <p>Measures {@link Battlefield#updateList()} with the line reader
+ * (list) and the memory mapped loader (columnar).</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UpdateListBenchmark {
+    
+    @Param({"10", "1000", "100000", "1000000"})
+    int size;
+    
+    @Param({"list", "columnar"})
+    String roster;
+    
+    File file;
+    Battlefield battlefield;
+    
+    @Setup
+    public void setUp() throws IOException {
+        file = Rosters.write(size);
+        battlefield = new Battlefield(file, file.getParent(), Rosters.create(roster));
+    }
+    
+    @TearDown
+    public void tearDown() {
+        Rosters.delete(file);
+    }
+    
+    @Benchmark
+    public int updateList() {
+        battlefield.updateList();
+        return battlefield.getAlive();
+    }
+}
@@ -0,0 +1,51 @@
+package com.saespmar.warbot.twitter;
+
+import java.util.Arrays;
+
+/**
+ *
+ * <p>Thrown when a participant is looked up by a name that several
+ * participants share. The slots of all of them are included, so the right
+ * one can be chosen and used instead of the name.</p>
+ *
+ * @author saespmar
+ * @version 1.0
+ */
+public class AmbiguousNameException extends IllegalArgumentException {
+    private static final long serialVersionUID = 1L;
+    private final String name;
+    private final int[] slots;
+    
+    /**
+     *
+     * <p>Create the exception.</p>
+     *
+     * @param name the repeated name.
+     * @param slots the slots of the participants with that name.
+     */
+    public AmbiguousNameException(String name, int[] slots) {
+        super(slots.length + " participants are named " + name + ": " + Arrays.toString(slots));
+        this.name = name;
+        this.slots = slots.clone();
+    }
+    
+    /**
+     *
+     * <p>Get the repeated name.</p>
+     *
+     * @return the name.
+     */
+    public String getName() {
+        return name;
+    }
+    
+    /**
+     *
+     * <p>Get the slots of the participants with the name.</p>
+     *
+     * @return the slots.
+     */
+    public int[] getSlots() {
+        return slots.clone();
+    }
+}
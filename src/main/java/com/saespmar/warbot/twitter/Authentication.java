@@ -49,28 +49,8 @@ public class Authentication {
             // Iterate through the list and asign the variables
             String current;
             while((current = br.readLine()) != null){
-                current = current.trim();
-                if (current.length() > 12 && current.substring(0, 12).equals("CONSUMER_KEY")){
-                    String[] variable = current.split("=");
-                    if (variable.length == 2){
-                        CONSUMER_KEY = variable[1].trim();
-                    }
-                } else if (current.length() > 15 && current.substring(0, 15).equals("CONSUMER_SECRET")){
-                    String[] variable = current.split("=");
-                    if (variable.length == 2){
-                        CONSUMER_SECRET = variable[1].trim();
-                    }
-                } else if (current.length() > 10 && current.substring(0, 10).equals("ACCESS_KEY")){
-                    String[] variable = current.split("=");
-                    if (variable.length == 2){
-                        ACCESS_KEY = variable[1].trim();
-                    }
-                } else if (current.length() > 13 && current.substring(0, 13).equals("ACCESS_SECRET")){
-                    String[] variable = current.split("=");
-                    if (variable.length == 2){
-                        ACCESS_SECRET = variable[1].trim();
-                    }
-                }
+                int equals = current.indexOf('=');
+                if (equals > 0) set(current.substring(0, equals).trim(), current.substring(equals + 1).trim());
             }
         } catch (FileNotFoundException ex) {
             ex.printStackTrace();
@@ -87,6 +67,62 @@ public class Authentication {
         }
     }
     
+    /**
+     *
+     * <p>Create the configuration from tokens already known.</p>
+     *
+     * @param consumerKey the OAuth API key.
+     * @param consumerSecret the OAuth API secret key.
+     * @param accessKey the OAuth access token.
+     * @param accessSecret the OAuth access token secret.
+     */
+    public Authentication(String consumerKey, String consumerSecret, String accessKey, String accessSecret) {
+        this.CONSUMER_KEY = consumerKey;
+        this.CONSUMER_SECRET = consumerSecret;
+        this.ACCESS_KEY = accessKey;
+        this.ACCESS_SECRET = accessSecret;
+    }
+    
+    /**
+     *
+     * <p>Check if all the tokens are filled in.</p>
+     *
+     * @return true if none of the tokens is missing.
+     */
+    public boolean isComplete() {
+        return notEmpty(CONSUMER_KEY) && notEmpty(CONSUMER_SECRET) && notEmpty(ACCESS_KEY) && notEmpty(ACCESS_SECRET);
+    }
+    
+    /**
+     *
+     * <p>Assigns a token from its name in the configuration file. Unknown
+     * names are ignored.</p>
+     *
+     * @param variable the name of the token.
+     * @param value the token.
+     */
+    void set(String variable, String value) {
+        if (value.isEmpty()) return;
+        switch (variable){
+            case "CONSUMER_KEY":
+                CONSUMER_KEY = value;
+                break;
+            case "CONSUMER_SECRET":
+                CONSUMER_SECRET = value;
+                break;
+            case "ACCESS_KEY":
+                ACCESS_KEY = value;
+                break;
+            case "ACCESS_SECRET":
+                ACCESS_SECRET = value;
+                break;
+        }
+    }
+    
+    private static boolean notEmpty(String token) {
+        return token != null && !token.isEmpty();
+    }
+    
     /**
      *
      * <p>Get the OAuth API key from the 'Keys and tokens' tab of the Twitter 
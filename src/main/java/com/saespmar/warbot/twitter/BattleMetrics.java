@@ -0,0 +1,282 @@
+package com.saespmar.warbot.twitter;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ *
+ * <p>Measures of a battlefield: a latency histogram for every stage of a
+ * round and counters of the work done. The measures can be read through
+ * JMX once the metrics are {@link #register() registered}, and are also
+ * sent to the {@link MetricsSink sinks} added. Recording a measure doesn't
+ * lock nor allocate, apart from what the sinks do, so the metrics can be
+ * left on in production.</p>
+ *
+ * <p>The same metrics can be shared by a battlefield, its encoder and its
+ * publishing pipeline, so all the stages of a round are seen together.</p>
+ *
+ * @author saespmar
+ * @version 1.0
+ */
+public class BattleMetrics implements BattleMetricsMXBean {
+    
+    /**
+     *
+     * <p>Stages of a round.</p>
+     */
+    public enum Stage {
+        /** Picking the killer and the victim. */
+        FIGHT,
+        /** Writing the list of participants or the journal. */
+        PERSIST,
+        /** Drawing the table. */
+        RENDER,
+        /** Encoding and writing the image. */
+        ENCODE,
+        /** Sending an update. */
+        PUBLISH
+    }
+    
+    private static final Stage[] STAGES = Stage.values();
+    
+    private final String name;
+    private final LatencyHistogram[] histograms = new LatencyHistogram[STAGES.length];
+    private final AtomicLong rounds = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final AtomicLong imagesWritten = new AtomicLong();
+    private final AtomicLong imageBytes = new AtomicLong();
+    private final AtomicLong lastImageSize = new AtomicLong();
+    private volatile MetricsSink[] sinks = new MetricsSink[0]; // Copied when it changes, so it's read without an iterator
+    private ObjectName objectName;
+    
+    /**
+     *
+     * <p>Create the metrics of a battlefield.</p>
+     *
+     * @param name the name of the battlefield, used in JMX and in the
+     * sinks.
+     */
+    public BattleMetrics(String name) {
+        this.name = name;
+        for (int i = 0; i<histograms.length; i++){
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+    
+    /**
+     *
+     * <p>Add a sink that receives every measure from now on.</p>
+     *
+     * @param sink the sink.
+     */
+    public synchronized void addSink(MetricsSink sink) {
+        MetricsSink[] added = Arrays.copyOf(sinks, sinks.length + 1);
+        added[added.length - 1] = sink;
+        sinks = added;
+    }
+    
+    /**
+     *
+     * <p>Stop sending measures to a sink.</p>
+     *
+     * @param sink the sink.
+     */
+    public synchronized void removeSink(MetricsSink sink) {
+        for (int i = 0; i<sinks.length; i++){
+            if (sinks[i].equals(sink)){
+                MetricsSink[] removed = new MetricsSink[sinks.length - 1];
+                System.arraycopy(sinks, 0, removed, 0, i);
+                System.arraycopy(sinks, i + 1, removed, i, removed.length - i);
+                sinks = removed;
+                return;
+            }
+        }
+    }
+    
+    /**
+     *
+     * <p>Register the metrics in the platform MBean server, as
+     * com.saespmar.warbot:type=Battlefield,name=[name].</p>
+     *
+     * @throws JMException if the metrics can't be registered, for example
+     * because there are other metrics with the same name.
+     */
+    public synchronized void register() throws JMException {
+        if (objectName != null) return;
+        ObjectName on = new ObjectName("com.saespmar.warbot:type=Battlefield,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, on);
+        objectName = on;
+    }
+    
+    /**
+     *
+     * <p>Remove the metrics from the platform MBean server.</p>
+     *
+     * @throws JMException if the metrics can't be removed.
+     */
+    public synchronized void unregister() throws JMException {
+        if (objectName == null) return;
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        if (server.isRegistered(objectName)) server.unregisterMBean(objectName);
+        objectName = null;
+    }
+    
+    /**
+     *
+     * <p>Record the time spent in a stage.</p>
+     *
+     * @param stage the stage.
+     * @param nanos the time, in nanoseconds.
+     */
+    public void record(Stage stage, long nanos) {
+        histograms[stage.ordinal()].record(nanos);
+        MetricsSink[] current = sinks;
+        for (int i = 0; i<current.length; i++){
+            current[i].latency(name, stage, nanos);
+        }
+    }
+    
+    /**
+     *
+     * <p>Count a round played.</p>
+     */
+    public void addRound() {
+        rounds.incrementAndGet();
+        count("rounds", 1);
+    }
+    
+    /**
+     *
+     * <p>Count the bytes written to persist the battlefield.</p>
+     *
+     * @param bytes the number of bytes.
+     */
+    public void addBytesWritten(long bytes) {
+        bytesWritten.addAndGet(bytes);
+        count("bytesWritten", bytes);
+    }
+    
+    /**
+     *
+     * <p>Count an image written.</p>
+     *
+     * @param bytes the size of the image file.
+     */
+    public void addImage(long bytes) {
+        imagesWritten.incrementAndGet();
+        imageBytes.addAndGet(bytes);
+        lastImageSize.set(bytes);
+        count("imageBytes", bytes);
+    }
+    
+    /**
+     *
+     * <p>Get the histogram of a stage.</p>
+     *
+     * @param stage the stage.
+     * @return the histogram, in nanoseconds.
+     */
+    public LatencyHistogram getHistogram(Stage stage) {
+        return histograms[stage.ordinal()];
+    }
+    
+    @Override
+    public String getName() {
+        return name;
+    }
+    
+    @Override
+    public long getRounds() {
+        return rounds.get();
+    }
+    
+    @Override
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+    
+    @Override
+    public long getImagesWritten() {
+        return imagesWritten.get();
+    }
+    
+    @Override
+    public long getImageBytes() {
+        return imageBytes.get();
+    }
+    
+    @Override
+    public long getLastImageSize() {
+        return lastImageSize.get();
+    }
+    
+    @Override
+    public Map<String, Long> getStageCounts() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (Stage stage : STAGES){
+            result.put(stage.name(), getHistogram(stage).getCount());
+        }
+        return result;
+    }
+    
+    @Override
+    public Map<String, Double> getStageMeanMicros() {
+        Map<String, Double> result = new LinkedHashMap<>();
+        for (Stage stage : STAGES){
+            result.put(stage.name(), getHistogram(stage).getMean() / 1000);
+        }
+        return result;
+    }
+    
+    @Override
+    public Map<String, Long> getStageP50Micros() {
+        return percentiles(50);
+    }
+    
+    @Override
+    public Map<String, Long> getStageP99Micros() {
+        return percentiles(99);
+    }
+    
+    @Override
+    public Map<String, Long> getStageMaxMicros() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (Stage stage : STAGES){
+            result.put(stage.name(), getHistogram(stage).getMax() / 1000);
+        }
+        return result;
+    }
+    
+    @Override
+    public void reset() {
+        for (LatencyHistogram histogram : histograms){
+            histogram.reset();
+        }
+        rounds.set(0);
+        bytesWritten.set(0);
+        imagesWritten.set(0);
+        imageBytes.set(0);
+        lastImageSize.set(0);
+    }
+    
+    private Map<String, Long> percentiles(double percentile) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (Stage stage : STAGES){
+            result.put(stage.name(), getHistogram(stage).getPercentile(percentile) / 1000);
+        }
+        return result;
+    }
+    
+    private void count(String counter, long delta) {
+        MetricsSink[] current = sinks;
+        for (int i = 0; i<current.length; i++){
+            current[i].counter(name, counter, delta);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.saespmar.warbot.twitter;
+
+import java.util.Map;
+
+/**
+ *
+ * <p>Management interface of {@link BattleMetrics}. The times are in
+ * microseconds, and the maps have an entry for every stage.</p>
+ *
+ * @author saespmar
+ * @version 1.0
+ */
+public interface BattleMetricsMXBean {
+    
+    /**
+     *
+     * <p>Get the name of the battlefield.</p>
+     *
+     * @return the name given to the metrics.
+     */
+    String getName();
+    
+    /**
+     *
+     * <p>Get the number of rounds played.</p>
+     *
+     * @return the number of fights.
+     */
+    long getRounds();
+    
+    /**
+     *
+     * <p>Get the bytes written to persist the battlefield, in the list of
+     * participants and the journal.</p>
+     *
+     * @return the number of bytes.
+     */
+    long getBytesWritten();
+    
+    /**
+     *
+     * <p>Get the number of images written.</p>
+     *
+     * @return the number of images.
+     */
+    long getImagesWritten();
+    
+    /**
+     *
+     * <p>Get the size of all the images written.</p>
+     *
+     * @return the number of bytes.
+     */
+    long getImageBytes();
+    
+    /**
+     *
+     * <p>Get the size of the last image written.</p>
+     *
+     * @return the number of bytes, or 0 if there's none yet.
+     */
+    long getLastImageSize();
+    
+    /**
+     *
+     * <p>Get the number of times every stage was measured.</p>
+     *
+     * @return the counts, by stage.
+     */
+    Map<String, Long> getStageCounts();
+    
+    /**
+     *
+     * <p>Get the mean time of every stage.</p>
+     *
+     * @return the means, by stage.
+     */
+    Map<String, Double> getStageMeanMicros();
+    
+    /**
+     *
+     * <p>Get the median time of every stage.</p>
+     *
+     * @return the medians, by stage.
+     */
+    Map<String, Long> getStageP50Micros();
+    
+    /**
+     *
+     * <p>Get the 99th percentile of the time of every stage.</p>
+     *
+     * @return the percentiles, by stage.
+     */
+    Map<String, Long> getStageP99Micros();
+    
+    /**
+     *
+     * <p>Get the longest time of every stage.</p>
+     *
+     * @return the maximums, by stage.
+     */
+    Map<String, Long> getStageMaxMicros();
+    
+    /**
+     *
+     * <p>Set all the histograms and counters back to 0. The sinks aren't
+     * affected.</p>
+     */
+    void reset();
+}
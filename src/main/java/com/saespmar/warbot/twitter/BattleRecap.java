@@ -0,0 +1,318 @@
+package com.saespmar.warbot.twitter;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+import java.io.File;
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.Iterator;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageOutputStream;
+
+/**
+ *
+ * <p>Makes an animated GIF with the table of a game evolving round by
+ * round. The first frame is the whole table, and every frame after it only
+ * has the cells that changed since the previous one, drawn over it. The
+ * fights are read one at a time and every frame is written as soon as it's
+ * drawn, on a single {@link RasterTableRenderer raster} that is reused, so
+ * the memory doesn't depend on the number of rounds.</p>
+ *
+ * <p>All the frames share a palette of 128 shades between white and black
+ * and 128 between white and red, which covers the colors of the table.</p>
+ *
+ * <p>It can be run from the command line with the arguments
+ * <code>[initial list] [seed] [output gif]</code>, to replay a game like
+ * {@link BattleReplay} does.</p>
+ *
+ * @author saespmar
+ * @version 1.0
+ */
+public class BattleRecap {
+    private static final String STREAM_FORMAT = "javax_imageio_gif_stream_1.0";
+    private static final String METADATA_FORMAT = "javax_imageio_gif_image_1.0";
+    private static final int SHADES = 128;
+    private static final int MAX_SIZE = 0xffff; // Sizes are stored in 16 bits
+    private static final IndexColorModel PALETTE = palette();
+    
+    private final int roundsPerFrame;
+    private final int frameDelayMillis;
+    private final int lastFrameDelayMillis;
+    
+    /**
+     *
+     * <p>Create a recap with a frame per round, 10 frames per second, that
+     * shows the end of the game for 3 seconds.</p>
+     */
+    public BattleRecap() {
+        this(1, 100, 3000);
+    }
+    
+    /**
+     *
+     * <p>Create a recap.</p>
+     *
+     * @param roundsPerFrame fights shown in every frame, to keep long games
+     * short.
+     * @param frameDelayMillis time every frame is shown. GIF only stores
+     * hundredths of a second.
+     * @param lastFrameDelayMillis extra time the end of the game is shown.
+     */
+    public BattleRecap(int roundsPerFrame, int frameDelayMillis, int lastFrameDelayMillis) {
+        if (roundsPerFrame < 1) throw new IllegalArgumentException("Every frame must show at least one round");
+        if (frameDelayMillis < 0 || lastFrameDelayMillis < 0) throw new IllegalArgumentException("The delays can't be negative");
+        this.roundsPerFrame = roundsPerFrame;
+        this.frameDelayMillis = frameDelayMillis;
+        this.lastFrameDelayMillis = lastFrameDelayMillis;
+    }
+    
+    /**
+     *
+     * <p>Replay a game from its first list and its seed, like
+     * {@link BattleReplay#replay(File, long, int) replay}, and make its
+     * recap.</p>
+     *
+     * @param initialList the list of participants when the game started.
+     * The file isn't changed.
+     * @param seed the seed of the game.
+     * @param output where the GIF is stored.
+     * @return the number of frames written.
+     * @throws IOException if the GIF can't be written.
+     */
+    public int write(File initialList, long seed, File output) throws IOException {
+        Battlefield battlefield = BattleReplay.replay(initialList, seed, 0);
+        return write(battlefield.getRoster(), battlefield.fights(), output);
+    }
+    
+    /**
+     *
+     * <p>Make the recap of a game. The fights are applied to the roster as
+     * they're read, if they haven't been applied yet, so the iterator can
+     * come from the {@link Battlefield#fights() fights} of a battlefield
+     * with that roster, or from a stored history of the game.</p>
+     *
+     * @param roster the participants when the recap starts. The victims of
+     * the fights die in it.
+     * @param fights the fights, in order.
+     * @param output where the GIF is stored.
+     * @return the number of frames written.
+     * @throws IOException if the GIF can't be written.
+     * @throws IllegalArgumentException if the roster is empty or its table
+     * is too big for a GIF, which happens around 6500 participants.
+     */
+    public int write(Roster roster, Iterator<FightEvent> fights, File output) throws IOException {
+        if (roster.size() == 0) throw new IllegalArgumentException("There are no participants to draw");
+        RasterTableRenderer renderer = new RasterTableRenderer(true);
+        RasterImage table = renderer.render(roster);
+        if (table.getWidth() > MAX_SIZE || table.getHeight() > MAX_SIZE) throw new IllegalArgumentException("The table is too big for a GIF");
+        
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("gif");
+        if (!writers.hasNext()) throw new IOException("No writer for the format gif");
+        ImageWriter writer = writers.next();
+        output.delete(); // The stream doesn't truncate existing files
+        ImageOutputStream out = ImageIO.createImageOutputStream(output);
+        if (out == null) throw new IOException("Can't write " + output);
+        
+        Frames frames = new Frames(writer);
+        try {
+            writer.setOutput(out);
+            writer.prepareWriteSequence(streamMetadata(writer));
+            frames.write(table, 0, 0, table.getWidth(), table.getHeight(), frameDelayMillis);
+            
+            BitSet changed = new BitSet();
+            int pending = 0;
+            while (fights.hasNext()){
+                FightEvent event = fights.next();
+                int victim = event.getVictim();
+                if (victim < 0 || victim >= roster.size()) continue;
+                roster.setAlive(victim, false);
+                renderer.markDirty(victim);
+                changed.set(victim);
+                if (++pending == roundsPerFrame){
+                    writeChanges(renderer, roster, changed, frames, frameDelayMillis);
+                    pending = 0;
+                }
+            }
+            if (pending > 0) writeChanges(renderer, roster, changed, frames, frameDelayMillis);
+            
+            // The delay of a frame can't be changed once it's written, so the end is held by an extra frame
+            frames.write(table, 0, 0, 1, 1, lastFrameDelayMillis);
+            writer.endWriteSequence();
+        } finally {
+            writer.dispose();
+            out.close();
+        }
+        return frames.count;
+    }
+    
+    /**
+     *
+     * <p>Paints the cells that changed and writes the smallest rectangle
+     * that covers them.</p>
+     */
+    private static void writeChanges(RasterTableRenderer renderer, Roster roster, BitSet changed, Frames frames, int delayMillis) throws IOException {
+        RasterImage table = renderer.render(roster);
+        int rows = renderer.rows();
+        int left = Integer.MAX_VALUE;
+        int top = Integer.MAX_VALUE;
+        int right = 0;
+        int bottom = 0;
+        for (int slot = changed.nextSetBit(0); slot >= 0; slot = changed.nextSetBit(slot + 1)){
+            int x = (slot / rows) * TableRenderer.CELL_WIDTH;
+            int y = (slot % rows) * TableRenderer.CELL_HEIGHT;
+            left = Math.min(left, x);
+            top = Math.min(top, y);
+            right = Math.max(right, x + TableRenderer.CELL_WIDTH);
+            bottom = Math.max(bottom, y + TableRenderer.CELL_HEIGHT);
+        }
+        changed.clear();
+        frames.write(table, left, top, right - left, bottom - top, delayMillis);
+    }
+    
+    /**
+     *
+     * <p>Builds the header of the GIF with the palette as its global color
+     * table, so the frames don't need their own.</p>
+     */
+    private static IIOMetadata streamMetadata(ImageWriter writer) throws IOException {
+        IIOMetadata metadata = writer.getDefaultStreamMetadata(null);
+        IIOMetadataNode root = (IIOMetadataNode) metadata.getAsTree(STREAM_FORMAT);
+        IIOMetadataNode table = Frames.child(root, "GlobalColorTable");
+        while (table.getFirstChild() != null){
+            table.removeChild(table.getFirstChild());
+        }
+        table.setAttribute("sizeOfGlobalColorTable", Integer.toString(PALETTE.getMapSize()));
+        table.setAttribute("sortFlag", "FALSE");
+        table.setAttribute("backgroundColorIndex", Integer.toString(SHADES - 1));
+        for (int i = 0; i<PALETTE.getMapSize(); i++){
+            IIOMetadataNode entry = new IIOMetadataNode("ColorTableEntry");
+            entry.setAttribute("index", Integer.toString(i));
+            entry.setAttribute("red", Integer.toString(PALETTE.getRed(i)));
+            entry.setAttribute("green", Integer.toString(PALETTE.getGreen(i)));
+            entry.setAttribute("blue", Integer.toString(PALETTE.getBlue(i)));
+            table.appendChild(entry);
+        }
+        metadata.setFromTree(STREAM_FORMAT, root);
+        return metadata;
+    }
+    
+    /**
+     *
+     * <p>Builds the palette: shades from black to white and from red to
+     * white.</p>
+     */
+    private static IndexColorModel palette() {
+        byte[] r = new byte[2 * SHADES];
+        byte[] g = new byte[2 * SHADES];
+        byte[] b = new byte[2 * SHADES];
+        for (int i = 0; i<SHADES; i++){
+            int shade = i * 255 / (SHADES - 1);
+            r[i] = g[i] = b[i] = (byte) shade;
+            r[SHADES + i] = (byte) 255;
+            g[SHADES + i] = b[SHADES + i] = (byte) shade;
+        }
+        return new IndexColorModel(8, 2 * SHADES, r, g, b);
+    }
+    
+    /**
+     *
+     * <p>Gets the closest color of the palette. Text in red is blended with
+     * white, so its green and blue are the same; anything else is treated
+     * as a shade of grey.</p>
+     */
+    private static int index(int rgb) {
+        int red = (rgb >> 16) & 0xff;
+        int green = (rgb >> 8) & 0xff;
+        int blue = rgb & 0xff;
+        if (red == 255 && green == blue && green != 255) return SHADES + (green * (SHADES - 1) + 127) / 255;
+        int grey = (red * 77 + green * 150 + blue * 29) >> 8;
+        return (grey * (SHADES - 1) + 127) / 255;
+    }
+    
+    /**
+     *
+     * <p>Writes the frames of a GIF, converting a part of the table to the
+     * palette on an image that is reused while the frames have the same
+     * size.</p>
+     */
+    private static class Frames {
+        private final ImageWriter writer;
+        private BufferedImage frame;
+        private int count;
+        
+        Frames(ImageWriter writer) {
+            this.writer = writer;
+        }
+        
+        void write(RasterImage table, int left, int top, int width, int height, int delayMillis) throws IOException {
+            if (frame == null || frame.getWidth() != width || frame.getHeight() != height){
+                frame = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_INDEXED, PALETTE);
+            }
+            byte[] indexes = ((DataBufferByte) frame.getRaster().getDataBuffer()).getData();
+            int[] pixels = table.getPixels();
+            for (int y = 0; y<height; y++){
+                int source = (top + y) * table.getWidth() + left;
+                int target = y * width;
+                for (int x = 0; x<width; x++){
+                    indexes[target + x] = (byte) index(pixels[source + x]);
+                }
+            }
+            
+            IIOMetadata metadata = writer.getDefaultImageMetadata(ImageTypeSpecifier.createFromRenderedImage(frame), null);
+            IIOMetadataNode root = (IIOMetadataNode) metadata.getAsTree(METADATA_FORMAT);
+            
+            // The default metadata has a table of web colors, the palette is the global table
+            root.removeChild(child(root, "LocalColorTable"));
+            IIOMetadataNode control = child(root, "GraphicControlExtension");
+            control.setAttribute("disposalMethod", "doNotDispose");
+            control.setAttribute("userInputFlag", "FALSE");
+            control.setAttribute("transparentColorFlag", "FALSE");
+            control.setAttribute("delayTime", Integer.toString(delayMillis / 10));
+            control.setAttribute("transparentColorIndex", "0");
+            IIOMetadataNode descriptor = child(root, "ImageDescriptor");
+            descriptor.setAttribute("imageLeftPosition", Integer.toString(left));
+            descriptor.setAttribute("imageTopPosition", Integer.toString(top));
+            descriptor.setAttribute("imageWidth", Integer.toString(width));
+            descriptor.setAttribute("imageHeight", Integer.toString(height));
+            descriptor.setAttribute("interlaceFlag", "FALSE");
+            if (count == 0){
+                
+                // Play it forever
+                IIOMetadataNode extensions = child(root, "ApplicationExtensions");
+                IIOMetadataNode loop = new IIOMetadataNode("ApplicationExtension");
+                loop.setAttribute("applicationID", "NETSCAPE");
+                loop.setAttribute("authenticationCode", "2.0");
+                loop.setUserObject(new byte[]{1, 0, 0});
+                extensions.appendChild(loop);
+            }
+            metadata.reset();
+            metadata.setFromTree(METADATA_FORMAT, root);
+            writer.writeToSequence(new IIOImage(frame, null, metadata), null);
+            count++;
+        }
+        
+        private static IIOMetadataNode child(IIOMetadataNode root, String name) {
+            for (int i = 0; i<root.getLength(); i++){
+                if (root.item(i).getNodeName().equals(name)) return (IIOMetadataNode) root.item(i);
+            }
+            IIOMetadataNode node = new IIOMetadataNode(name);
+            root.appendChild(node);
+            return node;
+        }
+    }
+    
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3){
+            System.err.println("Usage: BattleRecap [initial list] [seed] [output gif]");
+            System.exit(1);
+        }
+        int frames = new BattleRecap().write(new File(args[0]), Long.parseLong(args[1]), new File(args[2]));
+        System.out.println(frames + " frames written to " + args[2]);
+    }
+}
@@ -0,0 +1,147 @@
+package com.saespmar.warbot.twitter;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ *
+ * <p>Rebuilds a game from the list of participants it started with and the
+ * seed of its {@link SplitMixRandom}. Since every fight only depends on
+ * them, the state after any round can be computed again without storing
+ * the fights, either to audit a game or to recover it after a crash.</p>
+ *
+ * <p>A game can only be replayed if it ran from the first list without
+ * reading the list again in the middle, since
+ * {@link Battlefield#updateList() updateList} changes the order in which
+ * the alive participants are picked. To resume a game after a crash, read
+ * its list again with its {@link FightJournal journal} instead:
+ * {@link Battlefield#updateList() updateList} applies the fights of the
+ * journal and puts the random generator where it stopped.</p>
+ *
+ * <p>The initial list must be kept by the caller, apart from the list of
+ * participants of the game: {@link Battlefield#updateFile() updateFile}
+ * overwrites that one with the current state. Games with
+ * {@link FightRules rules} can be replayed with new rules built like the
+ * ones the game started with, as long as the weights weren't changed by
+ * hand in the middle of the game. Deaths outside of a fight, such as
+ * {@link Battlefield#kill(int) kill}, don't draw any value, so they're
+ * applied as they are when a journal is verified.</p>
+ *
+ * <p>It can be run from the command line with the arguments
+ * <code>[initial list] [seed] [rounds] [output list]</code>.</p>
+ *
+ * @author saespmar
+ * @version 1.0
+ */
+public class BattleReplay {
+    
+    private BattleReplay() {
+    }
+    
+    /**
+     *
+     * <p>Play a game again up to a round. The returned battlefield can keep
+     * fighting exactly like the original game would have.</p>
+     *
+     * @param initialList the list of participants when the game started.
+     * The file isn't changed.
+     * @param seed the seed of the game.
+     * @param round the last round to play, or a negative number to play
+     * until the end.
+     * @return a battlefield in the state after that round.
+     */
+    public static Battlefield replay(File initialList, long seed, int round) {
+        return replay(initialList, seed, null, round);
+    }
+    
+    /**
+     *
+     * <p>Same as {@link #replay(File, long, int) replay}, for a game with
+     * rules that pick the killers.</p>
+     *
+     * @param initialList the list of participants when the game started.
+     * The file isn't changed.
+     * @param seed the seed of the game.
+     * @param rules new rules, built like the ones of the game when it
+     * started, or null if every killer was picked uniformly. They follow
+     * the returned battlefield.
+     * @param round the last round to play, or a negative number to play
+     * until the end.
+     * @return a battlefield in the state after that round.
+     */
+    public static Battlefield replay(File initialList, long seed, FightRules rules, int round) {
+        Battlefield battlefield = new Battlefield(initialList, initialList.getParent(), new ColumnarRoster());
+        battlefield.setRandom(new SplitMixRandom(seed));
+        battlefield.setRules(rules);
+        Iterator<FightEvent> fights = battlefield.fights();
+        while (fights.hasNext() && (round < 0 || battlefield.getRound() < round)){
+            fights.next();
+        }
+        return battlefield;
+    }
+    
+    /**
+     *
+     * <p>Check that all the fights stored in a journal are the ones derived
+     * from the seed in its header. The deaths without a killer are applied
+     * without drawing, but the ones before the first event of the journal
+     * can't be known, so the journal must hold all of them.</p>
+     *
+     * @param initialList the list of participants when the game started.
+     * @param journal the journal of the game.
+     * @return true if every fight of the journal matches the replay.
+     * @throws IOException if the journal can't be read.
+     */
+    public static boolean verify(File initialList, FightJournal journal) throws IOException {
+        return verify(initialList, journal, null);
+    }
+    
+    /**
+     *
+     * <p>Same as {@link #verify(File, FightJournal) verify}, for a game
+     * with rules that pick the killers.</p>
+     *
+     * @param initialList the list of participants when the game started.
+     * @param journal the journal of the game.
+     * @param rules new rules, built like the ones of the game when it
+     * started, or null if every killer was picked uniformly.
+     * @return true if every fight of the journal matches the replay.
+     * @throws IOException if the journal can't be read.
+     */
+    public static boolean verify(File initialList, FightJournal journal, FightRules rules) throws IOException {
+        List<FightEvent> events = journal.readEvents();
+        if (events.isEmpty()) return true;
+        
+        // A death without a killer belongs to the round of the last fight
+        FightEvent first = events.get(0);
+        int start = first.getKiller() < 0 ? first.getRound() : first.getRound() - 1;
+        Battlefield battlefield = replay(initialList, journal.getSeed(), rules, start);
+        Iterator<FightEvent> fights = battlefield.fights();
+        for (FightEvent event : events){
+            if (event.getKiller() < 0){
+                int victim = event.getVictim();
+                if (event.getRound() != battlefield.getRound() || victim < 0 || victim >= battlefield.getRoster().size()
+                        || !battlefield.kill(victim)) return false;
+                continue;
+            }
+            if (!fights.hasNext()) return false;
+            FightEvent expected = fights.next();
+            if (expected.getRound() != event.getRound() || expected.getKiller() != event.getKiller()
+                    || expected.getVictim() != event.getVictim()) return false;
+        }
+        return true;
+    }
+    
+    public static void main(String[] args) {
+        if (args.length != 4){
+            System.err.println("Usage: BattleReplay [initial list] [seed] [rounds] [output list]");
+            System.exit(1);
+        }
+        Battlefield battlefield = replay(new File(args[0]), Long.parseLong(args[1]), Integer.parseInt(args[2]));
+        battlefield.setParticipantsFile(new File(args[3]));
+        battlefield.updateFile();
+        System.out.println("Round " + battlefield.getRound() + ", " + battlefield.getAlive() + " remaining");
+    }
+}
@@ -0,0 +1,305 @@
+package com.saespmar.warbot.twitter;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *
+ * <p>Runs the periodic tasks of many battles (usually a fight followed by a
+ * tweet) with a shared set of threads. A single thread moves a timing wheel
+ * forward and hands the due tasks to a bounded pool of workers, so the cost
+ * of a tick doesn't depend on the number of battles scheduled.</p>
+ *
+ * <p>A task that is still running when its next tick arrives skips that
+ * tick instead of queueing it, so a slow battle never piles up runs of its
+ * own. The workers are shared, though: while slow battles hold them, the
+ * due tasks of the other battles wait in a bounded queue, and their ticks
+ * are skipped too once it's full. {@link #getQueued() getQueued} and
+ * {@link #getRejected() getRejected} show when there are too few workers
+ * for the battles scheduled.</p>
+ *
+ * @author saespmar
+ * @version 1.0
+ */
+public class BattleScheduler {
+    private final long tickMillis;
+    private final ArrayList<ArrayList<Task>> wheel;
+    private final ConcurrentLinkedQueue<Task> added = new ConcurrentLinkedQueue<>();
+    private final ScheduledExecutorService ticker;
+    private final ThreadPoolExecutor workers;
+    private final AtomicLong rejected = new AtomicLong();
+    private int cursor; // Only used by the ticker thread
+    
+    /**
+     *
+     * <p>Create a scheduler with a tick of one second, a wheel of 3600 slots
+     * and as many workers as processors.</p>
+     */
+    public BattleScheduler() {
+        this(1, TimeUnit.SECONDS, 3600, Runtime.getRuntime().availableProcessors(), 1024);
+    }
+    
+    /**
+     *
+     * <p>Create a scheduler.</p>
+     *
+     * @param tick precision of the scheduler. Periods are rounded up to a
+     * multiple of it.
+     * @param unit unit of the tick.
+     * @param wheelSize number of slots of the wheel. Periods longer than the
+     * wheel are supported, but the wheel should cover the most common
+     * period.
+     * @param workers number of threads running the tasks.
+     * @param queueSize number of due tasks that can wait for a worker. When
+     * it's full, the ticks are skipped.
+     */
+    public BattleScheduler(long tick, TimeUnit unit, int wheelSize, int workers, int queueSize) {
+        if (tick < 1 || wheelSize < 1 || workers < 1 || queueSize < 1) throw new IllegalArgumentException("The parameters must be positive");
+        this.tickMillis = Math.max(1, unit.toMillis(tick));
+        this.wheel = new ArrayList<>(wheelSize);
+        for (int i = 0; i<wheelSize; i++){
+            wheel.add(new ArrayList<Task>());
+        }
+        this.ticker = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("battle-scheduler"));
+        this.workers = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(queueSize), new NamedThreadFactory("battle-worker"));
+        ticker.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                tick();
+            }
+        }, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     *
+     * <p>Run a task periodically.</p>
+     *
+     * @param task the work done in every tick of the battle.
+     * @param initialDelay time until the first run.
+     * @param period time between runs.
+     * @param unit unit of the delay and the period.
+     * @return a handle to follow or cancel the task.
+     */
+    public Task schedule(Runnable task, long initialDelay, long period, TimeUnit unit) {
+        if (period <= 0) throw new IllegalArgumentException("The period must be positive");
+        Task scheduled = new Task(task, Math.max(1, toTicks(unit.toMillis(period))));
+        scheduled.delay = Math.max(0, toTicks(unit.toMillis(initialDelay)) - 1); // It's placed in the next tick
+        added.add(scheduled);
+        return scheduled;
+    }
+    
+    /**
+     *
+     * <p>Stop the scheduler. Running tasks are allowed to finish, but no
+     * more tasks are started.</p>
+     */
+    public void shutdown() {
+        ticker.shutdown();
+        workers.shutdown();
+    }
+    
+    /**
+     *
+     * <p>Wait until the running tasks finish after a shutdown.</p>
+     *
+     * @param timeout maximum time to wait.
+     * @param unit unit of the timeout.
+     * @return true if all the tasks finished.
+     * @throws InterruptedException if the thread is interrupted while
+     * waiting.
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return ticker.awaitTermination(timeout, unit) && workers.awaitTermination(timeout, unit);
+    }
+    
+    /**
+     *
+     * <p>Get the number of due tasks waiting for a worker.</p>
+     *
+     * @return the number of tasks in the queue of the workers.
+     */
+    public int getQueued() {
+        return workers.getQueue().size();
+    }
+    
+    /**
+     *
+     * <p>Get the number of ticks skipped by all the tasks because the
+     * queue of the workers was full.</p>
+     *
+     * @return the number of ticks rejected by the workers.
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+    
+    private long toTicks(long millis) {
+        return (Math.max(0, millis) + tickMillis - 1) / tickMillis;
+    }
+    
+    /**
+     *
+     * <p>Moves the wheel one slot forward and starts the tasks that are
+     * due.</p>
+     */
+    private void tick() {
+        ArrayList<Task> slot = wheel.get(cursor);
+        ArrayList<Task> due = new ArrayList<>();
+        Iterator<Task> it = slot.iterator();
+        while (it.hasNext()){
+            Task task = it.next();
+            if (task.cancelled.get()){
+                it.remove();
+            } else if (task.rounds > 0){
+                task.rounds--;
+            } else {
+                it.remove();
+                due.add(task);
+            }
+        }
+        for (Task task : due){
+            place(task, 0);
+        }
+        
+        // New tasks are placed once the current slot has been processed
+        Task task;
+        while ((task = added.poll()) != null){
+            place(task, task.delay);
+        }
+        cursor = (cursor + 1) % wheel.size();
+    }
+    
+    /**
+     *
+     * <p>Puts a task in the slot that is reached after some ticks from the
+     * current one. If it's due now, it's started and placed one period
+     * later.</p>
+     */
+    private void place(Task task, long ticks) {
+        if (task.cancelled.get()) return;
+        if (ticks <= 0){
+            dispatch(task);
+            ticks = task.period;
+        }
+        int size = wheel.size();
+        task.rounds = (ticks - 1) / size;
+        wheel.get((int) ((cursor + ticks) % size)).add(task);
+    }
+    
+    /**
+     *
+     * <p>Hands a task to the workers, unless its previous run hasn't
+     * finished or there's no room for it.</p>
+     */
+    private void dispatch(final Task task) {
+        if (!task.running.compareAndSet(false, true)){
+            task.skipped.incrementAndGet();
+            return;
+        }
+        try {
+            workers.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        task.task.run();
+                    } catch (RuntimeException ex) {
+                        ex.printStackTrace();
+                    } finally {
+                        task.runs.incrementAndGet();
+                        task.running.set(false);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            task.running.set(false);
+            task.skipped.incrementAndGet();
+            rejected.incrementAndGet();
+        }
+    }
+    
+    /**
+     *
+     * <p>A task scheduled in a {@link BattleScheduler}.</p>
+     */
+    public static class Task {
+        private final Runnable task;
+        private final long period; // In ticks
+        private long delay; // Ticks until the first run
+        private long rounds; // Turns of the wheel left before running
+        private final AtomicBoolean running = new AtomicBoolean();
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        private final AtomicLong runs = new AtomicLong();
+        private final AtomicLong skipped = new AtomicLong();
+
+        Task(Runnable task, long period) {
+            this.task = task;
+            this.period = period;
+        }
+        
+        /**
+         *
+         * <p>Stop running the task. A run already started isn't
+         * interrupted.</p>
+         */
+        public void cancel() {
+            cancelled.set(true);
+        }
+        
+        /**
+         *
+         * <p>Get whether the task was cancelled.</p>
+         *
+         * @return true if the task won't run again.
+         */
+        public boolean isCancelled() {
+            return cancelled.get();
+        }
+        
+        /**
+         *
+         * <p>Get the number of runs finished.</p>
+         *
+         * @return the number of times the task has run.
+         */
+        public long getRuns() {
+            return runs.get();
+        }
+        
+        /**
+         *
+         * <p>Get the number of ticks skipped because the previous run hadn't
+         * finished or all the workers were busy.</p>
+         *
+         * @return the number of skipped ticks.
+         */
+        public long getSkipped() {
+            return skipped.get();
+        }
+    }
+    
+    private static class NamedThreadFactory implements ThreadFactory {
+        private final String name;
+        private final AtomicInteger count = new AtomicInteger();
+
+        NamedThreadFactory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            return new Thread(r, name + "-" + count.incrementAndGet());
+        }
+    }
+}
@@ -1,23 +1,25 @@
 package com.saespmar.warbot.twitter;
 
-import java.awt.Color;
-import java.awt.Font;
-import java.awt.FontMetrics;
-import java.awt.Graphics2D;
-import java.awt.RenderingHints;
-import java.awt.font.TextAttribute;
 import java.awt.image.BufferedImage;
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.security.SecureRandom;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.Hashtable;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Random;
-import javax.imageio.ImageIO;
+import java.util.concurrent.Future;
 
 /**
  *
@@ -27,19 +29,37 @@ import javax.imageio.ImageIO;
  * @version 1.0
  */
 public class Battlefield {
-    private ArrayList<Participant> participants = new ArrayList<>();
+    private Roster roster;
     private int alive;
+    private int[] aliveSlots = new int[0]; // Slots of the alive participants, only the first 'alive' are valid
+    private int[] aliveIndex = new int[0]; // Position of every participant inside aliveSlots, -1 if dead
+    private Random rand = new SplitMixRandom();
+    private int round;
+    private FightJournal journal;
+    private ArrayList<FightEvent> pendingEvents = new ArrayList<>(); // Fights not written to the journal yet
+    private boolean snapshotNeeded; // The roster was replaced, so the journal can't be applied to the file
+    private TableRenderer renderer; // Created the first time it's needed, loading the fonts is slow
+    private PagedTableRenderer pagedRenderer;
+    private ImageEncoder encoder;
+    private RasterTableRenderer rasterRenderer;
+    private PngEncoder pngEncoder;
+    private BattleMetrics metrics;
+    private NameIndex nameIndex; // Built the first time a participant is looked up by name
+    private FightRules rules;
+    private KillStats stats;
+    private FightStream stream;
     private File participantsFile;
     private String picturePath;
+    private boolean keepWrittenList; // A RosterWatcher needs to know what was written
+    private WrittenList writtenList;
     
     /**
      *
      * <p>Create a new battlefield. The generated images are stored in the same
-     * directory as the .txt list of participants. Only the first 100 items
-     * will be taken into account.</p>
+     * directory as the .txt list of participants.</p>
      *
-     * @param participantsFile a list of participants, one per line. If the
-     * participant is dead, the line starts with a #.
+     * @param participantsFile a list of participants encoded as UTF-8, one
+     * per line. If the participant is dead, the line starts with a #.
      *
      * @see <a href="example_battlefield/battle.txt">Example of the format of
      * the file.</a>
@@ -52,17 +72,35 @@ public class Battlefield {
      *
      * <p>Create a new battlefield.</p>
      *
-     * @param participantsFile a list of participants, one per line. If the
-     * participant is dead, the line starts with a #. Only the first 100 items
-     * will be taken into account.
+     * @param participantsFile a list of participants encoded as UTF-8, one
+     * per line. If the participant is dead, the line starts with a #.
      * @param picturePath path where the generated images are stored.
      *
      * @see <a href="example_battlefield/battle.txt">Example of the format of
      * the file.</a>
      */
     public Battlefield(File participantsFile, String picturePath) {
+        this(participantsFile, picturePath, new ListRoster());
+    }
+    
+    /**
+     *
+     * <p>Create a new battlefield which keeps the participants in a specific
+     * roster. For very big lists of participants, a {@link ColumnarRoster}
+     * uses much less memory than the default {@link ListRoster}.</p>
+     *
+     * @param participantsFile a list of participants encoded as UTF-8, one
+     * per line. If the participant is dead, the line starts with a #.
+     * @param picturePath path where the generated images are stored.
+     * @param roster the storage for the participants read from the file.
+     *
+     * @see <a href="example_battlefield/battle.txt">Example of the format of
+     * the file.</a>
+     */
+    public Battlefield(File participantsFile, String picturePath, Roster roster) {
         this.participantsFile = participantsFile;
         this.picturePath = picturePath;
+        this.roster = roster;
         updateList();
     }
     
@@ -73,7 +111,7 @@ public class Battlefield {
      * @return an array of participants.
      */
     public ArrayList<Participant> getParticipants() {
-        return participants;
+        return roster.asList();
     }
     
     /**
@@ -81,17 +119,256 @@ public class Battlefield {
      * <p>Set the list of participants.</p>
      *
      * @param participants an ArrayList with the information from the
-     * participants. The list can't contain more than 100 participants.
+     * participants.
      */
     public void setParticipants(ArrayList<Participant> participants) {
-        if (participants.size() > 100) throw new IllegalArgumentException("The list can't contain more than 100 participants");
-        this.participants = participants;
-        
-        // Update the alive count
-        alive = 0;
-        for (Participant p : participants){
-            if (p.isAlive()) alive++;
+        setRoster(new ListRoster(participants));
+    }
+    
+    /**
+     *
+     * <p>Get the storage of the participants.</p>
+     *
+     * @return the roster with the information from the participants.
+     */
+    public Roster getRoster() {
+        return roster;
+    }
+    
+    /**
+     *
+     * <p>Set the storage of the participants.</p>
+     *
+     * @param roster the roster with the information from the participants.
+     */
+    public void setRoster(Roster roster) {
+        this.roster = roster;
+        rebuildIndex();
+        if (stats != null) stats.reset(roster);
+        round = roster.size() - alive;
+        pendingEvents.clear();
+        snapshotNeeded = true;
+        invalidateRenderers();
+    }
+    
+    /**
+     *
+     * <p>Get the renderer used to draw the table of participants.</p>
+     *
+     * @return the table renderer.
+     */
+    public TableRenderer getRenderer() {
+        if (renderer == null) renderer = new TableRenderer();
+        return renderer;
+    }
+    
+    /**
+     *
+     * <p>Set the renderer used to draw the table of participants. A
+     * renderer in incremental mode only paints the participants that changed
+     * since the last table, as long as they change through this
+     * battlefield.</p>
+     *
+     * @param renderer the table renderer.
+     */
+    public void setRenderer(TableRenderer renderer) {
+        this.renderer = renderer;
+        renderer.invalidate();
+    }
+    
+    /**
+     *
+     * <p>Get the encoder used to store the images of the table.</p>
+     *
+     * @return the image encoder.
+     */
+    public synchronized ImageEncoder getEncoder() {
+        if (encoder == null){
+            encoder = new ImageEncoder();
+            encoder.setMetrics(metrics);
         }
+        return encoder;
+    }
+    
+    /**
+     *
+     * <p>Set the encoder used to store the images of the table. The images
+     * are still named .jpg, whatever the format of the encoder is.</p>
+     *
+     * @param encoder the image encoder.
+     */
+    public synchronized void setEncoder(ImageEncoder encoder) {
+        this.encoder = encoder;
+    }
+    
+    /**
+     *
+     * <p>Get the renderer that draws the table without AWT.</p>
+     *
+     * @return the raster renderer, or null if the table is drawn with the
+     * {@link #getRenderer() table renderer}.
+     */
+    public RasterTableRenderer getRasterRenderer() {
+        return rasterRenderer;
+    }
+    
+    /**
+     *
+     * <p>Set a renderer that draws the same table without AWT, which makes
+     * a cold start much faster when a single table is drawn. While it's set,
+     * {@link #drawTable() drawTable} and
+     * {@link #drawTableAsync() drawTableAsync} use it and store the images
+     * as [alive]remaining.png.</p>
+     *
+     * @param rasterRenderer the raster renderer, or null to draw the table
+     * with the table renderer.
+     */
+    public void setRasterRenderer(RasterTableRenderer rasterRenderer) {
+        this.rasterRenderer = rasterRenderer;
+        if (rasterRenderer != null) rasterRenderer.invalidate();
+    }
+    
+    /**
+     *
+     * <p>Get the encoder used to store the images of the raster
+     * renderer.</p>
+     *
+     * @return the PNG encoder.
+     */
+    public synchronized PngEncoder getPngEncoder() {
+        if (pngEncoder == null){
+            pngEncoder = new PngEncoder();
+            pngEncoder.setMetrics(metrics);
+        }
+        return pngEncoder;
+    }
+    
+    /**
+     *
+     * <p>Set the encoder used to store the images of the raster
+     * renderer.</p>
+     *
+     * @param pngEncoder the PNG encoder.
+     */
+    public synchronized void setPngEncoder(PngEncoder pngEncoder) {
+        this.pngEncoder = pngEncoder;
+    }
+    
+    /**
+     *
+     * <p>Get the renderer used to draw the table of participants in
+     * pages.</p>
+     *
+     * @return the paged renderer, or null if the pages haven't been drawn
+     * yet.
+     */
+    public PagedTableRenderer getPagedRenderer() {
+        return pagedRenderer;
+    }
+    
+    /**
+     *
+     * <p>Set the renderer used to draw the table of participants in
+     * pages.</p>
+     *
+     * @param pagedRenderer the paged renderer.
+     */
+    public void setPagedRenderer(PagedTableRenderer pagedRenderer) {
+        this.pagedRenderer = pagedRenderer;
+        pagedRenderer.invalidate();
+    }
+    
+    /**
+     *
+     * <p>Get the metrics of this battlefield.</p>
+     *
+     * @return the metrics, or null if nothing is measured.
+     */
+    public BattleMetrics getMetrics() {
+        return metrics;
+    }
+    
+    /**
+     *
+     * <p>Set the metrics where the fights, the writes and the tables of this
+     * battlefield are measured. The metrics are also set in the current
+     * encoders.</p>
+     *
+     * @param metrics the metrics, or null to stop measuring.
+     */
+    public synchronized void setMetrics(BattleMetrics metrics) {
+        this.metrics = metrics;
+        if (encoder != null) encoder.setMetrics(metrics);
+        if (pngEncoder != null) pngEncoder.setMetrics(metrics);
+    }
+    
+    /**
+     *
+     * <p>Get the rules that pick the killers.</p>
+     *
+     * @return the rules, or null if every killer is picked uniformly.
+     */
+    public FightRules getRules() {
+        return rules;
+    }
+    
+    /**
+     *
+     * <p>Set the rules that pick the killers, with weights or teams. The
+     * rules follow the participants of this battlefield from now on, so
+     * they can't be shared with another battlefield.</p>
+     *
+     * @param rules the rules, or null to pick every killer uniformly.
+     */
+    public void setRules(FightRules rules) {
+        this.rules = rules;
+        if (rules != null) rules.reset(roster);
+    }
+    
+    /**
+     *
+     * <p>Get the statistics of the game.</p>
+     *
+     * @return the statistics, or null if they aren't kept.
+     */
+    public KillStats getStats() {
+        return stats;
+    }
+    
+    /**
+     *
+     * <p>Set the statistics where the kills and the deaths are counted from
+     * now on. They follow the participants of this battlefield, and can be
+     * shown next to the table with
+     * {@link TableRenderer#setLeaderboard(KillStats) setLeaderboard}.</p>
+     *
+     * @param stats the statistics, or null to stop counting.
+     */
+    public void setStats(KillStats stats) {
+        this.stats = stats;
+        if (stats != null) stats.reset(roster);
+    }
+    
+    /**
+     *
+     * <p>Get the stream where the fights are published.</p>
+     *
+     * @return the stream, or null if the fights aren't published.
+     */
+    public FightStream getStream() {
+        return stream;
+    }
+    
+    /**
+     *
+     * <p>Set a stream where every fight is published, including the
+     * participants killed by hand, so other threads can react to them.
+     * Publishing never waits for the consumers.</p>
+     *
+     * @param stream the stream, or null to stop publishing.
+     */
+    public void setStream(FightStream stream) {
+        this.stream = stream;
     }
     
     /**
@@ -105,6 +382,77 @@ public class Battlefield {
         return alive;
     }
     
+    /**
+     *
+     * <p>Get the number of fights that have taken place. When the list is
+     * read from a file without a journal, every dead participant counts as a
+     * fight.</p>
+     *
+     * @return the round of the last fight, 0 if nobody has died.
+     */
+    public int getRound() {
+        return round;
+    }
+    
+    /**
+     *
+     * <p>Get the source of the random picks of the fights.</p>
+     *
+     * @return the random generator. By default, a {@link SplitMixRandom}
+     * with a different seed for every battlefield.
+     */
+    public Random getRandom() {
+        return rand;
+    }
+    
+    /**
+     *
+     * <p>Set the source of the random picks of the fights. With a
+     * {@link SplitMixRandom}, the whole game can be replayed from the first
+     * list of participants and the seed, see {@link BattleReplay}.</p>
+     *
+     * @param random the random generator.
+     */
+    public void setRandom(Random random) {
+        this.rand = random;
+        if (journal != null && random instanceof SplitMixRandom) journal.setSeed(((SplitMixRandom) random).getSeed());
+    }
+    
+    /**
+     *
+     * <p>Get the journal where the fights are stored.</p>
+     *
+     * @return the journal, or null if the whole list is written every
+     * time.
+     */
+    public FightJournal getJournal() {
+        return journal;
+    }
+    
+    /**
+     *
+     * <p>Set a journal to store the fights. With a journal,
+     * {@link #updateFile() updateFile} only appends the last fights to it,
+     * and the list of participants is rewritten when the journal is
+     * compacted. {@link #updateList() updateList} replays the journal over
+     * the list, and should be called after setting a journal that already
+     * has events. Otherwise, the next {@link #updateFile() updateFile}
+     * writes the whole list and empties the journal.</p>
+     *
+     * <p>The list of participants shouldn't be edited by hand while the
+     * journal has events, since they refer to the position of the
+     * participants in the list.</p>
+     *
+     * @param journal the journal, or null to write the whole list every
+     * time.
+     */
+    public void setJournal(FightJournal journal) {
+        this.journal = journal;
+        if (journal != null && rand instanceof SplitMixRandom) journal.setSeed(((SplitMixRandom) rand).getSeed());
+        pendingEvents.clear();
+        snapshotNeeded = true; // Fights before the journal was set aren't in the file yet
+    }
+    
     /**
      *
      * <p>Get the file where the list of participants is stored and
@@ -122,7 +470,7 @@ public class Battlefield {
      * retrieved.</p>
      *
      * @param participantsFile the file with all the participants and their
-     * status. Only the first 100 items will be taken into account.
+     * status.
      *
      * @see <a href="example_battlefield/battle.txt">Example of the format of
      * the file.</a>
@@ -151,27 +499,434 @@ public class Battlefield {
         this.picturePath = picturePath;
     }
     
+    /**
+     *
+     * <p>Keep a copy of the list every time it's written, so a
+     * {@link RosterWatcher} can tell the changes made by hand from the ones
+     * made by this battlefield.</p>
+     */
+    void setKeepWrittenList(boolean keepWrittenList) {
+        this.keepWrittenList = keepWrittenList;
+        if (!keepWrittenList) writtenList = null;
+    }
+    
+    /**
+     *
+     * <p>Get the list as it was last written or read, and forget it.</p>
+     *
+     * @return the list, or null if it wasn't written nor read since the
+     * last call.
+     */
+    WrittenList takeWrittenList() {
+        WrittenList result = writtenList;
+        writtenList = null;
+        return result;
+    }
+    
     /**
      *
      * <p>Retrieves the list of participants from the file and stores it in
      * memory, so it can be accessed through the
-     * {@link #getParticipants() getParticipants} method</p>
+     * {@link #getParticipants() getParticipants} method. If there's a
+     * journal, its fights are applied to the list, and a
+     * {@link SplitMixRandom} goes back to the seed and position where the
+     * journal ends, so the game is resumed where it stopped.</p>
      */
     public void updateList(){
+        roster.clear();
+        if (roster instanceof ColumnarRoster){
+            
+            // Parse the names straight from the file, without creating Strings
+            try {
+                new MappedRosterLoader().load(participantsFile, (ColumnarRoster) roster);
+            } catch (IOException ex) {
+                ex.printStackTrace();
+            }
+        } else {
+            readList();
+        }
+        
+        int lastRound = 0;
+        if (journal != null){
+            try {
+                lastRound = journal.replay(roster);
+                SplitMixRandom resumed = rand instanceof SplitMixRandom ? journal.getRandom() : null;
+                if (resumed != null) rand = resumed;
+            } catch (IOException ex) {
+                ex.printStackTrace();
+            }
+        }
+        rebuildIndex();
+        if (stats != null) stats.reset(roster);
+        round = Math.max(roster.size() - alive, lastRound);
+        if (keepWrittenList && journal == null){
+            ColumnarRoster read = new ColumnarRoster(roster.size());
+            for (int i = 0; i<roster.size(); i++){
+                read.add(roster.getName(i), roster.isAlive(i));
+            }
+            writtenList = new WrittenList(read, participantsFile);
+        }
+        pendingEvents.clear();
+        snapshotNeeded = false;
+        invalidateRenderers();
+    }
+    
+    /**
+     *
+     * <p>Applies the changes made to the list of participants without
+     * reading it again, so the state in memory is kept. The old list of the
+     * diff must be this roster, line by line. Participants keep their slot:
+     * renamed ones are renamed in place, alive participants killed in the
+     * new list are killed and dead ones revived, and the new participants
+     * are inserted at the end of the list. Changes that are already applied,
+     * such as killing a participant that is already dead, are ignored.</p>
+     *
+     * <p>Removing participants moves the ones after them, so the next
+     * {@link #updateFile() updateFile} writes the whole list.</p>
+     *
+     * @param diff the changes.
+     * @return true if the battlefield changed.
+     */
+    public boolean applyDiff(RosterDiff diff){
+        return applyDiff(diff, null, null);
+    }
+    
+    /**
+     *
+     * <p>Same as {@link #applyDiff(RosterDiff) applyDiff}, but the old list
+     * of the diff can be in a different order than the roster, such as the
+     * file the new participants were inserted in.</p>
+     *
+     * @param diff the changes.
+     * @param slots the slot of every line of the old list, or null if they
+     * are the same.
+     * @param newSlots filled with the slot of every line of the new list,
+     * or null.
+     * @return true if the battlefield changed.
+     */
+    boolean applyDiff(RosterDiff diff, int[] slots, int[] newSlots){
+        Roster after = diff.getAfter();
+        int size = roster.size();
+        boolean changed = false;
+        
+        // Participants still in the list, in place
+        for (int line = 0; line<after.size(); line++){
+            int source = diff.getSource(line);
+            int slot = source < 0 ? -1 : slots == null ? source : slots[source];
+            if (slot < 0 || slot >= size) continue;
+            if (diff.isRenamed(line) && !after.getName(line).equals(roster.getName(slot))){
+                rename(slot, after.getName(line));
+                changed = true;
+            }
+            if (diff.isStatusChanged(line) && after.isAlive(line) != roster.isAlive(slot)){
+                roster.setAlive(slot, after.isAlive(line));
+                if (after.isAlive(line)){
+                    addAlive(slot);
+                    if (rules != null) rules.restore(slot);
+                    if (stats != null) stats.revive(slot);
+                } else {
+                    removeAlive(slot);
+                    if (rules != null) rules.remove(slot);
+                    if (stats != null) stats.kill(-1, slot, round);
+                }
+                markDirty(slot);
+                changed = true;
+            }
+        }
+        
+        // Removed participants
+        BitSet removed = new BitSet();
+        BitSet lines = diff.getRemoved();
+        for (int line = lines.nextSetBit(0); line >= 0; line = lines.nextSetBit(line + 1)){
+            int slot = slots == null ? line : slots[line];
+            if (slot >= 0 && slot < size) removed.set(slot);
+        }
+        int[] moved = null; // New slot of every old slot
+        if (!removed.isEmpty()){
+            moved = new int[size];
+            ArrayList<Participant> kept = new ArrayList<>(size - removed.cardinality());
+            for (int i = 0; i<size; i++){
+                if (removed.get(i)){
+                    moved[i] = -1;
+                } else {
+                    moved[i] = kept.size();
+                    kept.add(new Participant(roster.getName(i), roster.isAlive(i)));
+                }
+            }
+            roster.clear();
+            for (Participant p : kept){
+                roster.add(p.getName(), p.isAlive());
+            }
+        }
+        
+        // New participants at the end
+        int firstInserted = roster.size();
+        for (int line = 0; line<after.size(); line++){
+            if (diff.getSource(line) < 0) roster.add(after.getName(line), after.isAlive(line));
+        }
+        boolean inserted = roster.size() > firstInserted;
+        if (stats != null){
+            if (!removed.isEmpty()) stats.remove(removed);
+            stats.grow(roster.size());
+        }
+        if (!removed.isEmpty()){
+            if (rules != null) rules.remove(removed);
+            rebuildIndex();
+        } else if (inserted){
+            
+            // The new participants go at the end, the rest of the indexes are still valid
+            aliveSlots = Arrays.copyOf(aliveSlots, roster.size());
+            aliveIndex = Arrays.copyOf(aliveIndex, roster.size());
+            for (int slot = firstInserted; slot<roster.size(); slot++){
+                aliveIndex[slot] = -1;
+                if (roster.isAlive(slot)) addAlive(slot);
+                if (nameIndex != null) nameIndex.add(roster.getName(slot), slot);
+            }
+            if (rules != null) rules.reset(roster);
+        }
+        if (!removed.isEmpty() || inserted){
+            invalidateRenderers();
+            changed = true;
+        }
+        
+        if (newSlots != null){
+            int next = firstInserted;
+            for (int line = 0; line<after.size(); line++){
+                int source = diff.getSource(line);
+                if (source < 0){
+                    newSlots[line] = next++;
+                } else {
+                    int slot = slots == null ? source : slots[source];
+                    newSlots[line] = slot < 0 || slot >= size ? -1 : moved == null ? slot : moved[slot];
+                }
+            }
+        }
+        
+        // The journal can't store these changes
+        if (changed){
+            pendingEvents.clear();
+            snapshotNeeded = true;
+        }
+        return changed;
+    }
+    
+    /**
+     *
+     * <p>Find the participants with a name. The first lookup indexes all
+     * the names, and the index is kept up to date afterwards, so every
+     * lookup takes constant time. Participants renamed outside this
+     * battlefield aren't seen by the index.</p>
+     *
+     * @param name the name.
+     * @return the slots of the participants with that name, in the order of
+     * the list, or an empty array if there's none.
+     */
+    public int[] find(String name){
+        return index().get(name).clone();
+    }
+    
+    /**
+     *
+     * <p>Check if the participant with a name is alive.</p>
+     *
+     * @param name the name.
+     * @return true if the participant is alive.
+     * @throws NoSuchElementException if there's no participant with that
+     * name.
+     * @throws AmbiguousNameException if several participants have that
+     * name. Their slots can be used instead.
+     */
+    public boolean isAlive(String name){
+        return roster.isAlive(slotOf(name));
+    }
+    
+    /**
+     *
+     * <p>Kill the participant with a name, outside of a fight. It doesn't
+     * count as a round.</p>
+     *
+     * @param name the name.
+     * @return true if the participant was alive.
+     * @throws NoSuchElementException if there's no participant with that
+     * name.
+     * @throws AmbiguousNameException if several participants have that
+     * name. Their slots can be used instead.
+     */
+    public boolean kill(String name){
+        return kill(slotOf(name));
+    }
+    
+    /**
+     *
+     * <p>Kill a participant, outside of a fight. It doesn't count as a
+     * round. If there's a journal, it's stored as a fight without a
+     * killer.</p>
+     *
+     * @param slot position of the participant in the list.
+     * @return true if the participant was alive.
+     */
+    public boolean kill(int slot){
+        if (!roster.isAlive(slot)) return false;
+        roster.setAlive(slot, false);
+        removeAlive(slot);
+        if (rules != null) rules.remove(slot);
+        if (stats != null) stats.kill(-1, slot, round);
+        markDirty(slot);
+        FightEvent event = new FightEvent(round, -1, slot, System.currentTimeMillis());
+        if (journal != null) pendingEvents.add(event);
+        if (stream != null) stream.publish(new FightReport(event, null, roster.getName(slot), alive, gameOver()));
+        return true;
+    }
+    
+    /**
+     *
+     * <p>Bring the participant with a name back to life.</p>
+     *
+     * @param name the name.
+     * @return true if the participant was dead.
+     * @throws NoSuchElementException if there's no participant with that
+     * name.
+     * @throws AmbiguousNameException if several participants have that
+     * name. Their slots can be used instead.
+     */
+    public boolean revive(String name){
+        return revive(slotOf(name));
+    }
+    
+    /**
+     *
+     * <p>Bring a participant back to life. The journal can't store it, so
+     * the next {@link #updateFile() updateFile} writes the whole list.</p>
+     *
+     * @param slot position of the participant in the list.
+     * @return true if the participant was dead.
+     */
+    public boolean revive(int slot){
+        if (roster.isAlive(slot)) return false;
+        roster.setAlive(slot, true);
+        addAlive(slot);
+        if (rules != null) rules.restore(slot);
+        if (stats != null) stats.revive(slot);
+        markDirty(slot);
+        snapshotNeeded = true;
+        return true;
+    }
+    
+    /**
+     *
+     * <p>Change the name of the participant with a name.</p>
+     *
+     * @param name the current name.
+     * @param newName the new name.
+     * @throws NoSuchElementException if there's no participant with that
+     * name.
+     * @throws AmbiguousNameException if several participants have that
+     * name. Their slots can be used instead.
+     */
+    public void rename(String name, String newName){
+        rename(slotOf(name), newName);
+    }
+    
+    /**
+     *
+     * <p>Change the name of a participant. The journal can't store it, so
+     * the next {@link #updateFile() updateFile} writes the whole list.</p>
+     *
+     * @param slot position of the participant in the list.
+     * @param newName the new name.
+     */
+    public void rename(int slot, String newName){
+        String oldName = roster.getName(slot);
+        roster.setName(slot, newName);
+        if (nameIndex != null){
+            nameIndex.remove(oldName, slot);
+            nameIndex.add(newName, slot);
+        }
+        markDirty(slot);
+        snapshotNeeded = true;
+    }
+    
+    private NameIndex index(){
+        if (nameIndex == null) nameIndex = new NameIndex(roster);
+        return nameIndex;
+    }
+    
+    private int slotOf(String name){
+        int[] slots = index().get(name);
+        if (slots.length == 0) throw new NoSuchElementException("There's no participant named " + name);
+        if (slots.length > 1) throw new AmbiguousNameException(name, slots);
+        return slots[0];
+    }
+    
+    /**
+     *
+     * <p>Stores the whole state of the battlefield in a binary
+     * {@link BattlefieldSnapshot snapshot}, which is faster to load than the
+     * list of participants. The list and the journal aren't changed.</p>
+     *
+     * @param file where the snapshot is stored.
+     * @throws IOException if the snapshot can't be written.
+     */
+    public void saveSnapshot(File file) throws IOException {
+        BattlefieldSnapshot.write(file, roster, aliveSlots, alive, round, rand);
+    }
+    
+    /**
+     *
+     * <p>Restores the state of the battlefield from a binary
+     * {@link BattlefieldSnapshot snapshot}, instead of reading the list of
+     * participants. The game continues exactly as it would have from the
+     * moment the snapshot was saved. The next
+     * {@link #updateFile() updateFile} writes the whole list.</p>
+     *
+     * @param file the snapshot.
+     * @throws IOException if the snapshot can't be read or is corrupted.
+     */
+    public void loadSnapshot(File file) throws IOException {
+        BattlefieldSnapshot snapshot = BattlefieldSnapshot.read(file);
+        if (roster instanceof ColumnarRoster){
+            roster = snapshot.getRoster();
+        } else {
+            roster.clear();
+            ColumnarRoster loaded = snapshot.getRoster();
+            for (int i = 0; i<loaded.size(); i++){
+                roster.add(loaded.getName(i), loaded.isAlive(i));
+            }
+        }
+        
+        // Keep the order of the alive participants, so the picks don't change
+        nameIndex = null;
+        alive = snapshot.getAlive();
+        aliveSlots = snapshot.getAliveSlots();
+        aliveIndex = new int[roster.size()];
+        Arrays.fill(aliveIndex, -1);
+        for (int i = 0; i<alive; i++){
+            aliveIndex[aliveSlots[i]] = i;
+        }
+        if (rules != null) rules.reset(roster);
+        if (stats != null) stats.reset(roster);
+        
+        round = snapshot.getRound();
+        if (snapshot.getRandom() != null) setRandom(snapshot.getRandom());
+        pendingEvents.clear();
+        snapshotNeeded = true;
+        invalidateRenderers();
+    }
+    
+    /**
+     *
+     * <p>Adds all the participants of the file at the end of the roster, line
+     * by line.</p>
+     */
+    private void readList(){
         BufferedReader br = null;
         try {
-            br = new BufferedReader(new FileReader(participantsFile));
-            
-            int max = 100; // No more than 100 participants
-            int i = 0;
-            alive = 0;
-            participants = new ArrayList<>();
+            br = new BufferedReader(new InputStreamReader(new FileInputStream(participantsFile), StandardCharsets.UTF_8));
             
             // Iterate through the list
             String current;
-            while((current = br.readLine()) != null && i<max){
+            while((current = br.readLine()) != null){
                 current = current.trim();
-                Participant p;
                 
                 // Discard empty lines
                 if (!current.equals("")){
@@ -179,14 +934,10 @@ public class Battlefield {
                     // A # at the beginning means the participant is dead
                     if (current.startsWith("#")){
                         String name = current.substring(1, current.length()).trim();
-                        p = new Participant(name, false);
+                        roster.add(name, false);
                     } else {
-                        p = new Participant(current);
-                        alive++;
+                        roster.add(current, true);
                     }
-                    
-                    // Add it to the list
-                    participants.add(p);
                 }
             }
         } catch (FileNotFoundException ex) {
@@ -211,16 +962,67 @@ public class Battlefield {
      * {@link #setParticipants(ArrayList<Participant>) setParticipants} method.
      * It's strongly recommended to call this method every time the ArrayList
      * of participants changes.</p>
+     *
+     * <p>If there's a journal, only the fights since the last call are
+     * appended to it, and the whole list is written when the journal needs
+     * to be compacted.</p>
+     *
+     * <p>The whole list is written to a temporary file that replaces the old
+     * one once it's complete, so a crash never leaves the list half
+     * written.</p>
      */
     public void updateFile(){
-        FileWriter fw = null;
+        long start = metrics != null ? System.nanoTime() : 0;
+        
+        // With a journal, only the last fights are written
+        if (journal != null && !snapshotNeeded){
+            try {
+                for (FightEvent event : pendingEvents){
+                    journal.append(event);
+                }
+                journal.flush();
+                long bytes = (long) pendingEvents.size() * FightJournal.RECORD_SIZE;
+                pendingEvents.clear();
+                if (!journal.needsCompaction()){
+                    persisted(start, bytes);
+                    return;
+                }
+                if (metrics != null) metrics.addBytesWritten(bytes);
+            } catch (IOException ex) {
+                ex.printStackTrace();
+                return;
+            }
+        }
+        
+        // Write the whole list in a temporary file, then replace the old one
+        File temporary = DurableFiles.temporary(participantsFile);
+        FileOutputStream fos = null;
+        Writer fw = null;
         try {
-            fw = new FileWriter(participantsFile.getPath());
-            for (Participant p : participants){
-                if (!p.isAlive()) fw.write("# "); // If the participant is dead, add a # at the beginning
-                fw.write(p.getName());
+            fos = new FileOutputStream(temporary);
+            fw = new BufferedWriter(new OutputStreamWriter(fos, StandardCharsets.UTF_8));
+            ColumnarRoster written = keepWrittenList ? new ColumnarRoster(roster.size()) : null;
+            for (int i = 0; i<roster.size(); i++){
+                if (!roster.isAlive(i)) fw.write("# "); // If the participant is dead, add a # at the beginning
+                fw.write(roster.getName(i));
                 fw.write(System.getProperty("line.separator"));
+                if (written != null) written.add(roster.getName(i), roster.isAlive(i));
+            }
+            fw.flush();
+            fos.getFD().sync();
+            fw.close();
+            fw = null;
+            DurableFiles.replace(temporary, participantsFile);
+            if (written != null) writtenList = new WrittenList(written, participantsFile);
+            
+            // The journal is already included in the list
+            if (journal != null){
+                if (rand instanceof SplitMixRandom) journal.setDraws(((SplitMixRandom) rand).getDraws());
+                journal.reset();
             }
+            pendingEvents.clear();
+            snapshotNeeded = false;
+            persisted(start, participantsFile.length());
         } catch (IOException ex) {
             ex.printStackTrace();
         } finally {
@@ -239,117 +1041,319 @@ public class Battlefield {
      * <p>Selects a random participant to kill other random participant.</p>
      *
      * @return an array which has the killer in position 0 and the victim in
-     * position 1. If there are less than 2 participants, null is returned,
-     * because the game has ended.
+     * position 1, both detached from the battlefield, so later fights don't
+     * change them. If there are less than 2 participants, or all of them are
+     * in the same team, null is returned, because the game has ended.
      */
     public Participant[] fight(){
+        FightEvent event = fight(rand);
         
         // If there are less than 2 participants alive, the game has ended
-        if (alive < 2) return null;
+        if (event == null) return null;
         
-        // Get the list of surviving participants
-        ArrayList<Participant> surviving = new ArrayList<>();
-        for (Participant p : participants){
-            if (p.isAlive()) surviving.add(p);
-        }
+        Participant killer = new Participant(roster.getName(event.getKiller()), roster.isAlive(event.getKiller()));
+        Participant victim = new Participant(roster.getName(event.getVictim()), roster.isAlive(event.getVictim()));
+        
+        Participant[] result = {killer, victim};
+        return result;
+    }
+    
+    /**
+     *
+     * <p>Get the rest of the game as a sequence of fights. Every fight takes
+     * place when it's requested from the iterator, so the list of
+     * participants and the alive count are always up to date with the
+     * fights returned so far. Going through the whole game takes time
+     * proportional to the number of participants.</p>
+     *
+     * <p>To preview a game without changing this battlefield, iterate the
+     * fights of another battlefield with the same participants.</p>
+     *
+     * @param random the source of the random picks. The same participants
+     * and the same seed always produce the same fights.
+     * @return an iterator of the fights until there's only one participant
+     * or team, alive.
+     */
+    public Iterator<FightEvent> fights(final Random random){
+        return new Iterator<FightEvent>() {
+            @Override
+            public boolean hasNext() {
+                return !gameOver();
+            }
+            
+            @Override
+            public FightEvent next() {
+                FightEvent event = fight(random);
+                if (event == null) throw new NoSuchElementException("The game has ended");
+                return event;
+            }
+            
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException("Fights can't be undone");
+            }
+        };
+    }
+    
+    /**
+     *
+     * <p>Get the rest of the game as a sequence of fights, using the random
+     * source of the battlefield.</p>
+     *
+     * @return an iterator of the fights until there's only one participant
+     * or team, alive.
+     *
+     * @see #fights(Random)
+     */
+    public Iterator<FightEvent> fights(){
+        return fights(rand);
+    }
+    
+    /**
+     *
+     * <p>Picks the victim and the killer and updates the status of the
+     * victim. Every pick takes constant time: the victim is removed from the
+     * alive index by swapping it with the last alive participant, so the
+     * index is shuffled as the game goes on. With {@link FightRules rules},
+     * the killer is picked by them in logarithmic time instead.</p>
+     *
+     * @return the fight, or null if the game has ended.
+     */
+    private FightEvent fight(Random random){
+        if (gameOver()) return null;
+        long start = metrics != null ? System.nanoTime() : 0;
         
         // Random victim
-        Random rand = new SecureRandom();
-        int victimIndex = rand.nextInt(surviving.size());
-        Participant victim = surviving.get(victimIndex);
-        participants.get(participants.indexOf(victim)).setAlive(false); // Update status of victim in the general list
-        surviving.remove(victimIndex); // Remove from alive list
-        victim.setAlive(false); // Update status of victim in the returned value
-        alive--;
+        int victimSlot = aliveSlots[random.nextInt(alive)];
+        roster.setAlive(victimSlot, false);
+        removeAlive(victimSlot);
+        markDirty(victimSlot);
         
-        // Random killer
-        int killerIndex = rand.nextInt(surviving.size());
-        Participant killer = surviving.get(killerIndex);
+        // Random killer among the remaining ones
+        int killerSlot;
+        if (rules == null){
+            killerSlot = aliveSlots[random.nextInt(alive)];
+        } else {
+            rules.remove(victimSlot);
+            killerSlot = rules.pickKiller(random, victimSlot);
+            rules.credit(killerSlot);
+        }
         
-        Participant[] result = {killer, victim};
-        return result;
+        round++;
+        if (stats != null) stats.kill(killerSlot, victimSlot, round);
+        FightEvent event = new FightEvent(round, killerSlot, victimSlot, System.currentTimeMillis());
+        if (journal != null) pendingEvents.add(event);
+        if (stream != null) stream.publish(new FightReport(event, roster.getName(killerSlot), roster.getName(victimSlot), alive, gameOver()));
+        if (metrics != null){
+            metrics.record(BattleMetrics.Stage.FIGHT, System.nanoTime() - start);
+            metrics.addRound();
+        }
+        return event;
+    }
+    
+    private boolean gameOver(){
+        return rules == null ? alive < 2 : !rules.canFight();
+    }
+    
+    private void persisted(long start, long bytes){
+        if (metrics == null) return;
+        metrics.record(BattleMetrics.Stage.PERSIST, System.nanoTime() - start);
+        metrics.addBytesWritten(bytes);
+    }
+    
+    private BufferedImage render(){
+        long start = metrics != null ? System.nanoTime() : 0;
+        BufferedImage img = getRenderer().render(roster);
+        if (metrics != null) metrics.record(BattleMetrics.Stage.RENDER, System.nanoTime() - start);
+        return img;
+    }
+    
+    private RasterImage renderRaster(){
+        long start = metrics != null ? System.nanoTime() : 0;
+        RasterImage img = rasterRenderer.render(roster);
+        if (metrics != null) metrics.record(BattleMetrics.Stage.RENDER, System.nanoTime() - start);
+        return img;
+    }
+    
+    /**
+     *
+     * <p>Builds the index of alive participants from scratch. It must be
+     * called every time the list of participants is replaced.</p>
+     */
+    private void rebuildIndex(){
+        nameIndex = null;
+        int size = roster.size();
+        aliveSlots = new int[size];
+        aliveIndex = new int[size];
+        alive = 0;
+        for (int i = 0; i<size; i++){
+            if (roster.isAlive(i)){
+                aliveSlots[alive] = i;
+                aliveIndex[i] = alive;
+                alive++;
+            } else {
+                aliveIndex[i] = -1;
+            }
+        }
+        if (rules != null) rules.reset(roster);
+    }
+    
+    /**
+     *
+     * <p>Notifies the renderers that a participant changed.</p>
+     *
+     * @param slot position of the participant in the list.
+     */
+    private void markDirty(int slot){
+        if (renderer != null) renderer.markDirty(slot);
+        if (rasterRenderer != null) rasterRenderer.markDirty(slot);
+        if (pagedRenderer != null) pagedRenderer.markDirty(slot);
+    }
+    
+    /**
+     *
+     * <p>Notifies the renderers that the whole list changed.</p>
+     */
+    private void invalidateRenderers(){
+        if (renderer != null) renderer.invalidate();
+        if (rasterRenderer != null) rasterRenderer.invalidate();
+        if (pagedRenderer != null) pagedRenderer.invalidate();
+    }
+    
+    /**
+     *
+     * <p>Removes a participant from the index of alive participants in
+     * constant time. The last alive slot takes the place of the removed
+     * one.</p>
+     *
+     * @param slot position of the participant in the list.
+     */
+    private void removeAlive(int slot){
+        int position = aliveIndex[slot];
+        int last = aliveSlots[alive - 1];
+        aliveSlots[position] = last;
+        aliveIndex[last] = position;
+        aliveIndex[slot] = -1;
+        alive--;
+    }
+    
+    /**
+     *
+     * <p>Adds a participant at the end of the index of alive participants.
+     * The index always has room for every participant.</p>
+     *
+     * @param slot position of the participant in the list.
+     */
+    private void addAlive(int slot){
+        aliveSlots[alive] = slot;
+        aliveIndex[slot] = alive;
+        alive++;
     }
     
     /**
      *
      * <p>Creates an image in the directory specified in the
      * {@link #setPicturePath(String) setPicturePath} method. The file is 
-     * stored as [alive]remaining.jpg in it. This image contains a table with 
-     * information about all the participants status.</p>
+     * stored as [alive]remaining.jpg in it, or [alive]remaining.png if there's
+     * a {@link #setRasterRenderer(RasterTableRenderer) raster renderer}. This
+     * image contains a table with information about all the participants
+     * status.</p>
      * 
      * @return the generated image file.
      */
     public File drawTable() {
-        int size = participants.size();
-        int columns = size/26 + 1; // Max. 25 participants per on each column
-        int rows = size/columns; // Split participants equally in all columns
-        
-        /**
-         *
-         * The number of columns and rows may not fit perfectly because of the number of participants
-         * (for example, an odd number can't be perfectly splitted in 2 columns). In these scenarios,
-         * an additional row is needed
-         */
-        if (columns*rows != size) rows++;
-        
-        int width = columns * 250;
-        int height = rows * 20;
-        BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-        Graphics2D g2d = img.createGraphics();
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        
-        // Normal font
-        Font aliveFont = new Font("Console", Font.PLAIN, 15);
-        g2d.setFont(aliveFont);
-        FontMetrics fm = g2d.getFontMetrics();
-        
-        // Crossed font for dead participants
-        Font deadFont = new Font("Console", Font.PLAIN, 15);
-        Hashtable<TextAttribute, Object> map = new Hashtable<>();
-        map.put(TextAttribute.STRIKETHROUGH, TextAttribute.STRIKETHROUGH_ON);
-        deadFont = deadFont.deriveFont(map);
-        
-        // Background
-        g2d.setPaint(Color.WHITE);
-        g2d.fillRect(0, 0, width, height);
-        
-        // Text
-        for (int i = 0; i<columns; i++){
-            int verticalOffset = 0; // A new column begins
-            for (int j = 0; j<rows; j++){
-                int index = j + i*rows;
-                if (index < size){
-                    Participant p = participants.get(index);
-                    String text = p.getName();
-                    
-                    // Set font
-                    if (p.isAlive()){
-                        g2d.setFont(aliveFont);
-                        g2d.setColor(Color.BLACK);
-                    }
-                    else{
-                        g2d.setFont(deadFont);
-                        g2d.setColor(Color.RED);
-                    }
-                    
-                    // Draw string
-                    // Very long names are cut and ended with ...
-                    if (text.length() > 34)
-                        g2d.drawString(text.substring(0, 31) + "...", i*250, fm.getAscent()+verticalOffset);
-                    else
-                        g2d.drawString(text, i*250, fm.getAscent()+verticalOffset);
-                    
-                    verticalOffset += 20;
-                }
+        if (rasterRenderer != null){
+            File result = new File(picturePath + "/" + alive + "remaining.png");
+            try {
+                getPngEncoder().write(renderRaster(), result);
+            } catch (IOException ex) {
+                ex.printStackTrace();
             }
+            return result;
         }
-        g2d.dispose();
+        
+        BufferedImage img = render();
         File result = new File(picturePath + "/" + alive + "remaining.jpg");
         try {
-            ImageIO.write(img, "jpg", result);
+            getEncoder().write(img, result);
         } catch (IOException ex) {
             ex.printStackTrace();
         }
         return result;
     }
+    
+    /**
+     *
+     * <p>Same as {@link #drawTable() drawTable}, but the image is encoded
+     * and written in the background. The table is drawn before returning, so
+     * the battlefield can keep fighting while the image is written.</p>
+     *
+     * @return a future that returns the generated image file once it's
+     * written.
+     */
+    public Future<File> drawTableAsync() {
+        if (rasterRenderer != null){
+            RasterImage img = renderRaster();
+            if (rasterRenderer.isIncremental()) img = img.copy();
+            return getPngEncoder().submit(img, new File(picturePath + "/" + alive + "remaining.png"));
+        }
+        
+        BufferedImage img = render();
+        
+        // The image of an incremental renderer changes in the next call
+        if (renderer.isIncremental()){
+            BufferedImage copy = new BufferedImage(img.getWidth(), img.getHeight(), img.getType());
+            img.copyData(copy.getRaster());
+            img = copy;
+        }
+        return getEncoder().submit(img, new File(picturePath + "/" + alive + "remaining.jpg"));
+    }
+    
+    /**
+     *
+     * <p>Creates the images of the table split in pages, in the directory
+     * specified in the {@link #setPicturePath(String) setPicturePath} method.
+     * Only the pages that changed since the last call are drawn again. By
+     * default, every page has 100 participants and is stored as
+     * page[number].jpg.</p>
+     *
+     * @return all the pages of the table, in order.
+     */
+    public List<File> drawPages() {
+        if (pagedRenderer == null){
+            pagedRenderer = new PagedTableRenderer();
+            pagedRenderer.setEncoder(getEncoder());
+        }
+        
+        // The pages are encoded while others are drawn, so it's all measured as rendering
+        long start = metrics != null ? System.nanoTime() : 0;
+        List<File> pages = pagedRenderer.render(roster, picturePath);
+        if (metrics != null) metrics.record(BattleMetrics.Stage.RENDER, System.nanoTime() - start);
+        return pages;
+    }
+    
+    /**
+     *
+     * <p>Copy of the list of participants as it is in the file, with the
+     * size and the modification time the file had.</p>
+     */
+    static final class WrittenList {
+        final ColumnarRoster roster;
+        final long length;
+        final long modified;
+        
+        WrittenList(ColumnarRoster roster, File file) {
+            this.roster = roster;
+            this.length = file.length();
+            this.modified = file.lastModified();
+        }
+        
+        /**
+         *
+         * <p>Check if a file is still the one this list was taken from.</p>
+         */
+        boolean matches(File file) {
+            return file.length() == length && file.lastModified() == modified;
+        }
+    }
 }
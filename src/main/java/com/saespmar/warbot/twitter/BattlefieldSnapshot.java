@@ -0,0 +1,334 @@
+package com.saespmar.warbot.twitter;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ *
+ * <p>Binary image of the whole state of a battlefield: the participants,
+ * their status, the round and the position of its {@link SplitMixRandom}.
+ * It's read with a single bulk read and the names aren't decoded, so it's
+ * much faster to load than the text list. The order in which the alive
+ * participants are picked is also stored, so a game restored from a
+ * snapshot keeps fighting exactly like it would have.</p>
+ *
+ * <p>The file starts with a header of {@value #HEADER_SIZE} bytes: the
+ * magic number, the version of the format, the number of participants, the
+ * number of them alive, the round, some flags, the seed, the number of
+ * random values drawn and the length of the names. Then come the offsets
+ * of the names, the names encoded as UTF-8, the status of the participants
+ * as a bitmap, the order of the alive participants, and a CRC32 of
+ * everything before it. All the numbers are big-endian.</p>
+ *
+ * <p>It can be run from the command line to convert between formats, with
+ * the arguments <code>import [text list] [snapshot]</code> or
+ * <code>export [snapshot] [text list]</code>.</p>
+ *
+ * @author saespmar
+ * @version 1.0
+ */
+public class BattlefieldSnapshot {
+    static final int MAGIC = 0x5742534e; // WBSN
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 44;
+    private static final int FLAG_SPLITMIX = 1;
+    
+    private final ColumnarRoster roster;
+    private final int[] aliveSlots;
+    private final int alive;
+    private final int round;
+    private final Random random;
+    
+    private BattlefieldSnapshot(ColumnarRoster roster, int[] aliveSlots, int alive, int round, Random random) {
+        this.roster = roster;
+        this.aliveSlots = aliveSlots;
+        this.alive = alive;
+        this.round = round;
+        this.random = random;
+    }
+    
+    /**
+     *
+     * <p>Get the participants of the snapshot.</p>
+     *
+     * @return the roster.
+     */
+    public ColumnarRoster getRoster() {
+        return roster;
+    }
+    
+    /**
+     *
+     * <p>Get the slots of the alive participants, in the order they're
+     * picked.</p>
+     *
+     * @return the alive slots.
+     */
+    int[] getAliveSlots() {
+        return aliveSlots;
+    }
+    
+    /**
+     *
+     * <p>Get the number of participants alive.</p>
+     *
+     * @return the number of alive participants.
+     */
+    public int getAlive() {
+        return alive;
+    }
+    
+    /**
+     *
+     * <p>Get the round of the snapshot.</p>
+     *
+     * @return the number of fights played.
+     */
+    public int getRound() {
+        return round;
+    }
+    
+    /**
+     *
+     * <p>Get the random source of the snapshot, at the same position it was
+     * when the snapshot was written.</p>
+     *
+     * @return the random source, or null if the battlefield didn't use a
+     * {@link SplitMixRandom}.
+     */
+    public Random getRandom() {
+        return random;
+    }
+    
+    /**
+     *
+     * <p>Write a snapshot. The old snapshot is only replaced once the new
+     * one is complete.</p>
+     *
+     * @param file where the snapshot is stored.
+     * @param roster the participants.
+     * @param aliveSlots the slots of the alive participants, in the order
+     * they're picked.
+     * @param alive the number of alive participants.
+     * @param round the number of fights played.
+     * @param random the random source, only stored if it's a
+     * {@link SplitMixRandom}.
+     * @throws IOException if the snapshot can't be written.
+     */
+    static void write(File file, Roster roster, int[] aliveSlots, int alive, int round, Random random) throws IOException {
+        int size = roster.size();
+        ColumnarRoster columnar = roster instanceof ColumnarRoster ? (ColumnarRoster) roster : null;
+        
+        // Other rosters have to encode their names first to know the offsets
+        byte[][] names = null;
+        if (columnar == null){
+            names = new byte[size][];
+            for (int i = 0; i<size; i++){
+                names[i] = roster.getName(i).getBytes(StandardCharsets.UTF_8);
+            }
+        }
+        long namesLength = 0;
+        for (int i = 0; i<size; i++){
+            namesLength += columnar != null ? columnar.nameLength(i) : names[i].length;
+        }
+        if (namesLength > Integer.MAX_VALUE - 8) throw new IOException("The names don't fit in a snapshot");
+        
+        CRC32 crc = new CRC32();
+        File temporary = DurableFiles.temporary(file);
+        FileOutputStream fos = new FileOutputStream(temporary);
+        DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+                new BufferedOutputStream(fos, 64 * 1024), crc));
+        try {
+            boolean splitMix = random instanceof SplitMixRandom;
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(size);
+            out.writeInt(alive);
+            out.writeInt(round);
+            out.writeInt(splitMix ? FLAG_SPLITMIX : 0);
+            out.writeLong(splitMix ? ((SplitMixRandom) random).getSeed() : 0);
+            out.writeLong(splitMix ? ((SplitMixRandom) random).getDraws() : 0);
+            out.writeInt((int) namesLength);
+            
+            // Offsets and names
+            int offset = 0;
+            out.writeInt(0);
+            for (int i = 0; i<size; i++){
+                offset += columnar != null ? columnar.nameLength(i) : names[i].length;
+                out.writeInt(offset);
+            }
+            for (int i = 0; i<size; i++){
+                if (columnar != null) columnar.writeName(i, out);
+                else out.write(names[i]);
+            }
+            
+            // Status bitmap, 64 participants per word
+            for (int word = 0; word<(size + 63) / 64; word++){
+                long bits = 0;
+                for (int bit = 0; bit<64 && word * 64 + bit < size; bit++){
+                    if (roster.isAlive(word * 64 + bit)) bits |= 1L << bit;
+                }
+                out.writeLong(bits);
+            }
+            
+            for (int i = 0; i<alive; i++){
+                out.writeInt(aliveSlots[i]);
+            }
+            
+            out.flush();
+            out.writeLong(crc.getValue());
+            out.flush();
+            fos.getFD().sync();
+        } finally {
+            out.close();
+        }
+        DurableFiles.replace(temporary, file);
+    }
+    
+    /**
+     *
+     * <p>Read a snapshot.</p>
+     *
+     * @param file the snapshot.
+     * @return the state stored in the snapshot.
+     * @throws IOException if the file can't be read, isn't a snapshot or is
+     * corrupted.
+     */
+    public static BattlefieldSnapshot read(File file) throws IOException {
+        byte[] data;
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            long length = raf.length();
+            if (length > Integer.MAX_VALUE - 8) throw new IOException("Snapshot too big: " + file);
+            if (length < HEADER_SIZE + 12) throw new IOException("Not a snapshot: " + file);
+            data = new byte[(int) length];
+            raf.readFully(data);
+        } finally {
+            raf.close();
+        }
+        
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        if (buffer.getInt() != MAGIC) throw new IOException("Not a snapshot: " + file);
+        int version = buffer.getInt();
+        if (version != VERSION) throw new IOException("Unsupported snapshot version " + version + ": " + file);
+        
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length - 8);
+        if (crc.getValue() != buffer.getLong(data.length - 8)) throw new IOException("Corrupted snapshot: " + file);
+        
+        int size = buffer.getInt();
+        int alive = buffer.getInt();
+        int round = buffer.getInt();
+        int flags = buffer.getInt();
+        long seed = buffer.getLong();
+        long draws = buffer.getLong();
+        int namesLength = buffer.getInt();
+        long expected = HEADER_SIZE + 4L * (size + 1) + namesLength + 8L * ((size + 63) / 64) + 4L * alive + 8;
+        if (size < 0 || alive < 0 || alive > size || namesLength < 0 || expected != data.length){
+            throw new IOException("Corrupted snapshot: " + file);
+        }
+        
+        // The names stay in the buffer, it becomes the arena of the roster
+        int namesStart = HEADER_SIZE + 4 * (size + 1);
+        int[] starts = new int[size];
+        int[] ends = new int[size];
+        int previous = namesStart + buffer.getInt();
+        for (int i = 0; i<size; i++){
+            int end = namesStart + buffer.getInt();
+            if (end < previous || end > namesStart + namesLength) throw new IOException("Corrupted snapshot: " + file);
+            starts[i] = previous;
+            ends[i] = end;
+            previous = end;
+        }
+        buffer.position(namesStart + namesLength);
+        
+        long[] words = new long[(size + 63) / 64];
+        for (int i = 0; i<words.length; i++){
+            words[i] = buffer.getLong();
+        }
+        int[] aliveSlots = new int[size];
+        for (int i = 0; i<alive; i++){
+            aliveSlots[i] = buffer.getInt();
+            if (aliveSlots[i] < 0 || aliveSlots[i] >= size) throw new IOException("Corrupted snapshot: " + file);
+        }
+        
+        ColumnarRoster roster = new ColumnarRoster();
+        roster.wrap(data, namesStart + namesLength, starts, ends, BitSet.valueOf(words), size);
+        Random random = (flags & FLAG_SPLITMIX) != 0 ? new SplitMixRandom(seed, draws) : null;
+        return new BattlefieldSnapshot(roster, aliveSlots, alive, round, random);
+    }
+    
+    /**
+     *
+     * <p>Convert a text list of participants into a snapshot. The game
+     * starts with a new seed.</p>
+     *
+     * @param list the text list.
+     * @param snapshot where the snapshot is stored.
+     * @throws IOException if a file can't be read or written.
+     */
+    public static void importText(File list, File snapshot) throws IOException {
+        ColumnarRoster roster = new ColumnarRoster();
+        new MappedRosterLoader().load(list, roster);
+        int[] aliveSlots = new int[roster.size()];
+        int alive = 0;
+        for (int i = 0; i<roster.size(); i++){
+            if (roster.isAlive(i)) aliveSlots[alive++] = i;
+        }
+        write(snapshot, roster, aliveSlots, alive, roster.size() - alive, new SplitMixRandom());
+    }
+    
+    /**
+     *
+     * <p>Convert a snapshot into a text list of participants, in the format
+     * read by {@link Battlefield#updateList() updateList}.</p>
+     *
+     * @param snapshot the snapshot.
+     * @param list where the text list is stored.
+     * @throws IOException if a file can't be read or written.
+     */
+    public static void exportText(File snapshot, File list) throws IOException {
+        ColumnarRoster roster = read(snapshot).getRoster();
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(list), 64 * 1024);
+        try {
+            byte[] separator = System.getProperty("line.separator").getBytes(StandardCharsets.UTF_8);
+            for (int i = 0; i<roster.size(); i++){
+                if (!roster.isAlive(i)){
+                    
+                    // If the participant is dead, add a # at the beginning
+                    out.write('#');
+                    out.write(' ');
+                }
+                roster.writeName(i, out);
+                out.write(separator);
+            }
+        } finally {
+            out.close();
+        }
+    }
+    
+    public static void main(String[] args) {
+        if (args.length != 3 || !(args[0].equals("import") || args[0].equals("export"))){
+            System.out.println("Usage: BattlefieldSnapshot import [text list] [snapshot]");
+            System.out.println("       BattlefieldSnapshot export [snapshot] [text list]");
+            return;
+        }
+        try {
+            if (args[0].equals("import")) importText(new File(args[1]), new File(args[2]));
+            else exportText(new File(args[1]), new File(args[2]));
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+}
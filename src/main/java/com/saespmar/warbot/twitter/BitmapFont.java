@@ -0,0 +1,257 @@
+package com.saespmar.warbot.twitter;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ *
+ * <p>Font with the antialiased glyphs already drawn, so names can be
+ * painted on a pixel buffer without loading the fonts of AWT. It covers
+ * the Latin-1 characters, and the rest are drawn as a question mark.
+ * Every glyph is a coverage mask as tall as a cell of the table, with the
+ * baseline at the ascent.</p>
+ *
+ * <p>The default font is baked from the font of the {@link TableRenderer}
+ * by the BitmapFontBaker tool of the tests, and stored as a resource.</p>
+ *
+ * @author saespmar
+ * @version 1.0
+ */
+final class BitmapFont {
+    static final int MAGIC = 0x5742464e; // WBFN
+    static final int VERSION = 1;
+    static final String RESOURCE = "table-font.bin";
+    private static final int GLYPHS = 256;
+    
+    private static BitmapFont defaultFont;
+    
+    private final int height;
+    private final int ascent;
+    private final byte[] strike; // Coverage of the strikethrough line in every row
+    private final byte[] strikeEdge; // Coverage of the first and the last column of the line
+    private final int[] advances = new int[GLYPHS];
+    private final int[] lefts = new int[GLYPHS]; // Start of the mask from the pen position
+    private final int[] widths = new int[GLYPHS];
+    private final byte[][] masks = new byte[GLYPHS][]; // Row by row, null if there's no glyph
+    
+    /**
+     *
+     * <p>Create a font without glyphs.</p>
+     *
+     * @param height rows of every glyph.
+     * @param ascent row of the baseline.
+     * @param strike coverage of the strikethrough line in every row.
+     * @param strikeEdge coverage of the antialiased ends of the line in every
+     * row.
+     */
+    BitmapFont(int height, int ascent, byte[] strike, byte[] strikeEdge) {
+        if (strike.length != height || strikeEdge.length != height) throw new IllegalArgumentException("The strikethrough must have a value per row");
+        this.height = height;
+        this.ascent = ascent;
+        this.strike = strike.clone();
+        this.strikeEdge = strikeEdge.clone();
+    }
+    
+    /**
+     *
+     * <p>Get the font baked from the font of the table.</p>
+     *
+     * @return the shared font.
+     */
+    static synchronized BitmapFont getDefault() {
+        if (defaultFont == null){
+            InputStream in = BitmapFont.class.getResourceAsStream(RESOURCE);
+            if (in == null) throw new IllegalStateException("The resource " + RESOURCE + " is missing");
+            try {
+                try {
+                    defaultFont = read(in);
+                } finally {
+                    in.close();
+                }
+            } catch (IOException ex) {
+                throw new IllegalStateException("The resource " + RESOURCE + " can't be read", ex);
+            }
+        }
+        return defaultFont;
+    }
+    
+    int getHeight() {
+        return height;
+    }
+    
+    /**
+     *
+     * <p>Store the glyph of a character.</p>
+     *
+     * @param c the character, up to 255.
+     * @param advance distance to the next character.
+     * @param left start of the mask from the pen position, negative if the
+     * glyph goes into the previous character.
+     * @param width columns of the mask.
+     * @param mask coverage of every pixel, row by row.
+     */
+    void setGlyph(char c, int advance, int left, int width, byte[] mask) {
+        if (c >= GLYPHS) throw new IllegalArgumentException("Only Latin-1 characters are supported");
+        if (mask.length != width * height) throw new IllegalArgumentException("The mask must have " + width * height + " pixels");
+        advances[c] = advance;
+        lefts[c] = left;
+        widths[c] = width;
+        masks[c] = mask.clone();
+    }
+    
+    /**
+     *
+     * <p>Get the width of a text, adding up the advances.</p>
+     *
+     * @param text the text.
+     * @return the width in pixels.
+     */
+    int width(String text) {
+        int width = 0;
+        for (int i = 0; i<text.length(); i++){
+            width += advances[glyph(text.charAt(i))];
+        }
+        return width;
+    }
+    
+    /**
+     *
+     * <p>Paint a text blending its color with the pixels below. Nothing is
+     * painted outside of the horizontal clip.</p>
+     *
+     * @param pixels RGB pixels, row by row.
+     * @param stride pixels of every row.
+     * @param text the text.
+     * @param x pen position of the first character.
+     * @param y top row of the text. The baseline is at the ascent.
+     * @param clipStart first column that can be painted.
+     * @param clipEnd column after the last one that can be painted.
+     * @param rgb color of the text.
+     * @param strikethrough true to cross the text out. The line goes from
+     * the pen position to the end of the last advance, both included.
+     */
+    void draw(int[] pixels, int stride, String text, int x, int y, int clipStart, int clipEnd, int rgb, boolean strikethrough) {
+        int pen = x;
+        for (int i = 0; i<text.length() && pen < clipEnd; i++){
+            int g = glyph(text.charAt(i));
+            byte[] mask = masks[g];
+            int width = widths[g];
+            int left = pen + lefts[g];
+            int from = Math.max(0, clipStart - left);
+            int to = Math.min(width, clipEnd - left);
+            for (int row = 0; row<height; row++){
+                int base = (y + row) * stride + left;
+                int offset = row * width;
+                for (int col = from; col<to; col++){
+                    int coverage = mask[offset + col] & 0xff;
+                    if (coverage != 0) blend(pixels, base + col, rgb, coverage);
+                }
+            }
+            pen += advances[g];
+        }
+        
+        if (strikethrough){
+            int end = x + width(text);
+            int from = Math.max(x, clipStart);
+            int to = Math.min(end + 1, clipEnd);
+            for (int row = 0; row<height; row++){
+                int base = (y + row) * stride;
+                for (int col = from; col<to; col++){
+                    int coverage = (col == x || col == end ? strikeEdge[row] : strike[row]) & 0xff;
+                    if (coverage != 0) blend(pixels, base + col, rgb, coverage);
+                }
+            }
+        }
+    }
+    
+    private int glyph(char c) {
+        return c < GLYPHS && masks[c] != null ? c : '?';
+    }
+    
+    private static void blend(int[] pixels, int index, int rgb, int coverage) {
+        if (coverage == 255){
+            pixels[index] = rgb;
+            return;
+        }
+        int dst = pixels[index];
+        int result = 0;
+        for (int shift = 0; shift<24; shift += 8){
+            int d = (dst >> shift) & 0xff;
+            int s = (rgb >> shift) & 0xff;
+            result |= ((s * coverage + d * (255 - coverage) + 127) / 255) << shift;
+        }
+        pixels[index] = result;
+    }
+    
+    /**
+     *
+     * <p>Read a font written by {@link #write(OutputStream) write}.</p>
+     *
+     * @param in the stream, which isn't closed.
+     * @return the font.
+     * @throws IOException if the font can't be read or has a different
+     * format.
+     */
+    static BitmapFont read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        if (data.readInt() != MAGIC) throw new IOException("Not a bitmap font");
+        int version = data.readInt();
+        if (version != VERSION) throw new IOException("Unsupported bitmap font version " + version);
+        int height = data.readInt();
+        int ascent = data.readInt();
+        byte[] strike = new byte[height];
+        data.readFully(strike);
+        byte[] strikeEdge = new byte[height];
+        data.readFully(strikeEdge);
+        BitmapFont font = new BitmapFont(height, ascent, strike, strikeEdge);
+        int count = data.readInt();
+        for (int i = 0; i<count; i++){
+            char c = data.readChar();
+            int advance = data.readUnsignedByte();
+            int left = data.readByte();
+            int width = data.readUnsignedByte();
+            byte[] mask = new byte[width * height];
+            data.readFully(mask);
+            font.setGlyph(c, advance, left, width, mask);
+        }
+        if (font.masks['?'] == null) throw new IOException("The font doesn't have a question mark");
+        return font;
+    }
+    
+    /**
+     *
+     * <p>Write the font in a compact binary format: a header with the
+     * height, the ascent and the strikethrough line, and the mask of every
+     * glyph.</p>
+     *
+     * @param out the stream, which isn't closed.
+     * @throws IOException if the font can't be written.
+     */
+    void write(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(height);
+        data.writeInt(ascent);
+        data.write(strike);
+        data.write(strikeEdge);
+        int count = 0;
+        for (byte[] mask : masks){
+            if (mask != null) count++;
+        }
+        data.writeInt(count);
+        for (int c = 0; c<GLYPHS; c++){
+            if (masks[c] == null) continue;
+            data.writeChar(c);
+            data.writeByte(advances[c]);
+            data.writeByte(lefts[c]);
+            data.writeByte(widths[c]);
+            data.write(masks[c]);
+        }
+        data.flush();
+    }
+}
@@ -0,0 +1,270 @@
+package com.saespmar.warbot.twitter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ *
+ * <p>Roster that stores the participants in primitive columns instead of
+ * one object per participant. The names are packed as UTF-8 in a shared
+ * byte arena and the status of every participant is a bit in a bitset.
+ * {@link Participant} objects are only created when they're requested, and
+ * they read and write directly from the columns.</p>
+ *
+ * <p>The arena can hold up to 2 GB of names. Renaming a participant appends
+ * the new name to the arena, the old bytes aren't reused.</p>
+ *
+ * @author saespmar
+ * @version 1.0
+ */
+public class ColumnarRoster implements Roster {
+    private static final Charset CHARSET = StandardCharsets.UTF_8;
+    
+    private byte[] arena;
+    private int arenaSize;
+    private int[] starts; // Position of the first byte of every name in the arena
+    private int[] ends; // Position after the last byte of every name in the arena
+    private BitSet alive = new BitSet();
+    private int size;
+    private boolean shared; // A copy reads the arena, so it can't be overwritten
+    
+    /**
+     *
+     * <p>Create an empty roster.</p>
+     */
+    public ColumnarRoster() {
+        this(16);
+    }
+    
+    /**
+     *
+     * <p>Create an empty roster with room for some participants, so the
+     * columns don't need to grow while they're added.</p>
+     *
+     * @param capacity expected number of participants.
+     */
+    public ColumnarRoster(int capacity) {
+        capacity = Math.max(capacity, 1);
+        arena = new byte[capacity * 8];
+        starts = new int[capacity];
+        ends = new int[capacity];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String getName(int slot) {
+        checkSlot(slot);
+        return new String(arena, starts[slot], ends[slot] - starts[slot], CHARSET);
+    }
+
+    @Override
+    public void setName(int slot, String name) {
+        checkSlot(slot);
+        byte[] bytes = name.getBytes(CHARSET);
+        starts[slot] = append(bytes, 0, bytes.length);
+        ends[slot] = arenaSize;
+    }
+
+    @Override
+    public boolean isAlive(int slot) {
+        checkSlot(slot);
+        return alive.get(slot);
+    }
+
+    @Override
+    public void setAlive(int slot, boolean alive) {
+        checkSlot(slot);
+        this.alive.set(slot, alive);
+    }
+
+    @Override
+    public void add(String name, boolean alive) {
+        byte[] bytes = name.getBytes(CHARSET);
+        add(bytes, 0, bytes.length, alive);
+    }
+    
+    /**
+     *
+     * <p>Add a participant at the end of the list from its name already
+     * encoded as UTF-8. The bytes are copied, so the array can be reused
+     * afterwards.</p>
+     *
+     * @param name array containing the name.
+     * @param offset position of the first byte of the name.
+     * @param length number of bytes of the name.
+     * @param alive participant status, whether is alive or not.
+     */
+    public void add(byte[] name, int offset, int length, boolean alive) {
+        if (size == starts.length){
+            int capacity = starts.length * 2;
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+        }
+        starts[size] = append(name, offset, length);
+        ends[size] = arenaSize;
+        this.alive.set(size, alive);
+        size++;
+    }
+
+    @Override
+    public void clear() {
+        if (shared){
+            arena = new byte[arena.length];
+            shared = false;
+        }
+        arenaSize = 0;
+        alive.clear();
+        size = 0;
+    }
+
+    @Override
+    public Participant get(int slot) {
+        checkSlot(slot);
+        return new View(slot);
+    }
+
+    @Override
+    public ArrayList<Participant> asList() {
+        ArrayList<Participant> list = new ArrayList<>(size);
+        for (int i = 0; i<size; i++){
+            list.add(new View(i));
+        }
+        return list;
+    }
+    
+    /**
+     *
+     * <p>Get the length of a name encoded as UTF-8.</p>
+     *
+     * @param slot position of the participant in the list.
+     * @return the number of bytes of the name.
+     */
+    int nameLength(int slot) {
+        checkSlot(slot);
+        return ends[slot] - starts[slot];
+    }
+    
+    /**
+     *
+     * <p>Write a name encoded as UTF-8, without creating a String.</p>
+     *
+     * @param slot position of the participant in the list.
+     * @param out where the name is written.
+     * @throws IOException if the name can't be written.
+     */
+    void writeName(int slot, OutputStream out) throws IOException {
+        checkSlot(slot);
+        out.write(arena, starts[slot], ends[slot] - starts[slot]);
+    }
+    
+    /**
+     *
+     * <p>Get a copy of the participants that isn't affected by the changes
+     * made to this roster afterwards. The names aren't decoded or copied:
+     * both rosters read them from the same arena, which is never
+     * overwritten, so the copy only takes the positions and the status of
+     * the participants. The copy must not be changed.</p>
+     *
+     * @return the copy.
+     */
+    ColumnarRoster copy() {
+        shared = true;
+        ColumnarRoster copy = new ColumnarRoster(1);
+        copy.wrap(arena, arenaSize, Arrays.copyOf(starts, size), Arrays.copyOf(ends, size), (BitSet) alive.clone(), size);
+        copy.shared = true;
+        return copy;
+    }
+    
+    /**
+     *
+     * <p>Replace all the participants with columns that were already built,
+     * without copying them. The arena is used from now on, so it must not be
+     * changed by the caller.</p>
+     *
+     * @param arena the names, encoded as UTF-8.
+     * @param arenaSize number of bytes of the arena in use. The bytes after
+     * it can be overwritten when participants are added.
+     * @param starts position of the first byte of every name.
+     * @param ends position after the last byte of every name.
+     * @param alive status of every participant.
+     * @param size number of participants.
+     */
+    void wrap(byte[] arena, int arenaSize, int[] starts, int[] ends, BitSet alive, int size) {
+        this.arena = arena.length > 0 ? arena : new byte[8];
+        this.arenaSize = arenaSize;
+        this.starts = starts.length > 0 ? starts : new int[1];
+        this.ends = ends.length > 0 ? ends : new int[1];
+        this.alive = alive;
+        this.size = size;
+        this.shared = false;
+    }
+    
+    /**
+     *
+     * <p>Copies some bytes at the end of the arena, making it bigger if
+     * needed.</p>
+     *
+     * @return the position in the arena where the bytes were copied.
+     */
+    private int append(byte[] bytes, int offset, int length) {
+        if (arenaSize + length > arena.length){
+            long capacity = Math.max((long) arena.length * 2, (long) arenaSize + length);
+            if (capacity > Integer.MAX_VALUE - 8){
+                if ((long) arenaSize + length > Integer.MAX_VALUE - 8) throw new IllegalStateException("The names don't fit in the roster");
+                capacity = Integer.MAX_VALUE - 8;
+            }
+            arena = Arrays.copyOf(arena, (int) capacity);
+        }
+        int start = arenaSize;
+        System.arraycopy(bytes, offset, arena, start, length);
+        arenaSize += length;
+        return start;
+    }
+    
+    private void checkSlot(int slot) {
+        if (slot < 0 || slot >= size) throw new IndexOutOfBoundsException("Slot: " + slot + ", size: " + size);
+    }
+    
+    /**
+     *
+     * <p>Participant that reads and writes its information from the columns
+     * of the roster.</p>
+     */
+    private class View extends Participant {
+        private final int slot;
+
+        View(int slot) {
+            super(null);
+            this.slot = slot;
+        }
+
+        @Override
+        public String getName() {
+            return ColumnarRoster.this.getName(slot);
+        }
+
+        @Override
+        public void setName(String name) {
+            ColumnarRoster.this.setName(slot, name);
+        }
+
+        @Override
+        public boolean isAlive() {
+            return ColumnarRoster.this.isAlive(slot);
+        }
+
+        @Override
+        public void setAlive(boolean alive) {
+            ColumnarRoster.this.setAlive(slot, alive);
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package com.saespmar.warbot.twitter;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ *
+ * <p>Thread-safe wrapper of a {@link Battlefield}. Fights and other changes
+ * are applied one at a time under a write lock, while readers share a read
+ * lock, so any number of snapshots can be copied at the same time and they
+ * only wait for the change in progress. Fights wait for the snapshots being
+ * copied, but the copy only takes the status and the position of the names
+ * of a {@link ColumnarRoster}: the names are decoded after the lock is
+ * released, when they're read from the snapshot.</p>
+ *
+ * <p>Once wrapped, the battlefield must only be changed through this
+ * class.</p>
+ *
+ * @author saespmar
+ * @version 1.0
+ */
+public class ConcurrentBattlefield {
+    private final Battlefield battlefield;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile int alive;
+    private volatile int round;
+    
+    /**
+     *
+     * <p>Wrap a battlefield.</p>
+     *
+     * @param battlefield the battlefield shared between threads.
+     */
+    public ConcurrentBattlefield(Battlefield battlefield) {
+        this.battlefield = battlefield;
+        this.alive = battlefield.getAlive();
+        this.round = battlefield.getRound();
+    }
+    
+    /**
+     *
+     * <p>Get the wrapped battlefield. It must not be changed directly.</p>
+     *
+     * @return the battlefield.
+     */
+    public Battlefield getBattlefield() {
+        return battlefield;
+    }
+    
+    /**
+     *
+     * <p>Get the number of people alive, without locking.</p>
+     *
+     * @return the number of participants alive after the last change.
+     */
+    public int getAlive() {
+        return alive;
+    }
+    
+    /**
+     *
+     * <p>Get the number of fights that have taken place, without
+     * locking.</p>
+     *
+     * @return the round of the last fight.
+     */
+    public int getRound() {
+        return round;
+    }
+    
+    /**
+     *
+     * <p>Selects a random participant to kill other random participant, as
+     * a single atomic change.</p>
+     *
+     * @return an array which has the killer in position 0 and the victim in
+     * position 1, both detached from the battlefield. If there are less than
+     * 2 participants, null is returned, because the game has ended.
+     */
+    public Participant[] fight() {
+        lock.writeLock().lock();
+        try {
+            return battlefield.fight(); // The participants are already detached
+        } finally {
+            endChange();
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     *
+     * <p>Apply any other change to the battlefield atomically, such as
+     * reading the list again or editing participants. Readers never see the
+     * change half done.</p>
+     *
+     * @param change the code that changes the battlefield.
+     */
+    public void update(Runnable change) {
+        lock.writeLock().lock();
+        try {
+            change.run();
+        } finally {
+            endChange();
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     *
+     * <p>Run some code that needs the battlefield to stay still but doesn't
+     * change it, such as writing the list of participants to the file.
+     * Fights wait until it finishes, but other readers don't.</p>
+     *
+     * @param task the code that reads the battlefield.
+     */
+    public void read(Runnable task) {
+        lock.readLock().lock();
+        try {
+            task.run();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     *
+     * <p>Write the list of participants to the file, without letting any
+     * fight take place in the middle.</p>
+     */
+    public void updateFile() {
+        update(new Runnable() {
+            @Override
+            public void run() {
+                battlefield.updateFile(); // It may change the journal
+            }
+        });
+    }
+    
+    /**
+     *
+     * <p>Get a consistent copy of all the participants. The copy is made
+     * under the read lock, so it waits for the change in progress but not
+     * for other readers, and the fights wait while it's made.</p>
+     *
+     * @return the participants at a single point in time.
+     */
+    public Snapshot snapshot() {
+        lock.readLock().lock();
+        try {
+            return copy();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     *
+     * <p>Draw the table of a consistent copy of the participants. The
+     * fights only wait while the {@link #snapshot() snapshot} is copied,
+     * not while the table is drawn. It's stored in the same place as
+     * {@link Battlefield#drawTable() Battlefield.drawTable}.</p>
+     *
+     * @param renderer the renderer used to draw the table. It shouldn't be
+     * used by other threads at the same time. If it shows the leaderboard of
+     * the battlefield, the copy of the snapshot is shown instead.
+     * @return the generated image file.
+     */
+    public File drawTable(TableRenderer renderer) {
+        Snapshot snapshot = snapshot();
+        renderer.invalidate(); // The snapshot is a different roster every time
+        KillStats leaderboard = renderer.getLeaderboard();
+        if (leaderboard != null && leaderboard == snapshot.source) renderer.setLeaderboard(snapshot.getStats());
+        File result = new File(battlefield.getPicturePath() + "/" + snapshot.getAlive() + "remaining.jpg");
+        try {
+            battlefield.getEncoder().write(renderer.render(snapshot), result);
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        } finally {
+            renderer.setLeaderboard(leaderboard);
+        }
+        return result;
+    }
+    
+    /**
+     *
+     * <p>Same as {@link #drawTable(TableRenderer) drawTable}, but the table
+     * is drawn without AWT and stored as [alive]remaining.png.</p>
+     *
+     * @param renderer the renderer used to draw the table. It shouldn't be
+     * used by other threads at the same time.
+     * @return the generated image file.
+     */
+    public File drawTable(RasterTableRenderer renderer) {
+        Snapshot snapshot = snapshot();
+        renderer.invalidate();
+        KillStats leaderboard = renderer.getLeaderboard();
+        if (leaderboard != null && leaderboard == snapshot.source) renderer.setLeaderboard(snapshot.getStats());
+        File result = new File(battlefield.getPicturePath() + "/" + snapshot.getAlive() + "remaining.png");
+        try {
+            battlefield.getPngEncoder().write(renderer.render(snapshot), result);
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        } finally {
+            renderer.setLeaderboard(leaderboard);
+        }
+        return result;
+    }
+    
+    private void endChange() {
+        alive = battlefield.getAlive();
+        round = battlefield.getRound();
+    }
+    
+    private Snapshot copy() {
+        Roster roster = battlefield.getRoster();
+        Roster copy;
+        if (roster instanceof ColumnarRoster){
+            copy = ((ColumnarRoster) roster).copy();
+        } else {
+            ArrayList<Participant> participants = new ArrayList<>(roster.size());
+            for (int i = 0; i<roster.size(); i++){
+                participants.add(new Participant(roster.getName(i), roster.isAlive(i)));
+            }
+            copy = new ListRoster(participants);
+        }
+        KillStats stats = battlefield.getStats();
+        return new Snapshot(copy, alive, round, stats, stats == null ? null : new KillStats(stats));
+    }
+    
+    /**
+     *
+     * <p>Read-only copy of the participants of a battlefield at a single
+     * point in time, with its statistics.</p>
+     */
+    public static class Snapshot implements Roster {
+        private final Roster copy; // Not shared, and never changed
+        private final int alive;
+        private final int round;
+        final KillStats source; // The statistics of the battlefield that were copied
+        private final KillStats stats;
+        
+        Snapshot(Roster copy, int alive, int round, KillStats source, KillStats stats) {
+            this.copy = copy;
+            this.alive = alive;
+            this.round = round;
+            this.source = source;
+            this.stats = stats;
+        }
+        
+        /**
+         *
+         * <p>Get the number of people alive when the copy was made.</p>
+         *
+         * @return the number of participants alive.
+         */
+        public int getAlive() {
+            return alive;
+        }
+        
+        /**
+         *
+         * <p>Get the number of fights when the copy was made.</p>
+         *
+         * @return the round of the last fight.
+         */
+        public int getRound() {
+            return round;
+        }
+        
+        /**
+         *
+         * <p>Get a copy of the statistics of the game when the copy was made,
+         * which belongs to the caller.</p>
+         *
+         * @return the statistics, or null if the battlefield doesn't keep
+         * them.
+         */
+        public KillStats getStats() {
+            return stats;
+        }
+        
+        @Override
+        public int size() {
+            return copy.size();
+        }
+        
+        @Override
+        public String getName(int slot) {
+            return copy.getName(slot);
+        }
+        
+        @Override
+        public void setName(int slot, String name) {
+            throw new UnsupportedOperationException("A snapshot can't be changed");
+        }
+        
+        @Override
+        public boolean isAlive(int slot) {
+            return copy.isAlive(slot);
+        }
+        
+        @Override
+        public void setAlive(int slot, boolean alive) {
+            throw new UnsupportedOperationException("A snapshot can't be changed");
+        }
+        
+        @Override
+        public void add(String name, boolean alive) {
+            throw new UnsupportedOperationException("A snapshot can't be changed");
+        }
+        
+        @Override
+        public void clear() {
+            throw new UnsupportedOperationException("A snapshot can't be changed");
+        }
+        
+        @Override
+        public Participant get(int slot) {
+            return new Participant(getName(slot), isAlive(slot));
+        }
+        
+        @Override
+        public ArrayList<Participant> asList() {
+            ArrayList<Participant> list = new ArrayList<>(size());
+            for (int i = 0; i<size(); i++){
+                list.add(get(i));
+            }
+            return list;
+        }
+    }
+}
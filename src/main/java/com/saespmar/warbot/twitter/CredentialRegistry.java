@@ -0,0 +1,257 @@
+package com.saespmar.warbot.twitter;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import twitter4j.Twitter;
+import twitter4j.TwitterFactory;
+import twitter4j.conf.ConfigurationBuilder;
+
+/**
+ *
+ * <p>Tokens of several bot accounts, each one with a name. The tokens are
+ * read once, and every account has a single Twitter client and a single
+ * {@link Publisher}, created the first time they're requested and shared
+ * by all the battles of that account afterwards. It can be used by several
+ * threads at once.</p>
+ *
+ * <p>The tokens can be read from files in the format of
+ * <a href="config/tokens.env.example">config/tokens.env</a>, from
+ * environment variables named <code>WARBOT_[ACCOUNT]_CONSUMER_KEY</code>
+ * and so on, or from properties named
+ * <code>warbot.[account].CONSUMER_KEY</code> and so on. Account names are
+ * case insensitive.</p>
+ *
+ * @author saespmar
+ * @version 1.0
+ */
+public class CredentialRegistry {
+    private static final String[] VARIABLES = {"CONSUMER_KEY", "CONSUMER_SECRET", "ACCESS_KEY", "ACCESS_SECRET"};
+    
+    private final ConcurrentHashMap<String, Authentication> credentials = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Twitter> clients = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Publisher> publishers = new ConcurrentHashMap<>();
+    
+    /**
+     *
+     * <p>Add or replace the tokens of an account. The client of the
+     * account, if it was already created, is discarded.</p>
+     *
+     * @param account the name of the account.
+     * @param authentication the tokens.
+     */
+    public void register(String account, Authentication authentication) {
+        if (!authentication.isComplete()) throw new IllegalArgumentException("Missing tokens for account " + account);
+        String key = key(account);
+        
+        // Under the lock of the clients, so none is created with the old tokens after they're replaced
+        synchronized (this){
+            if (credentials.putIfAbsent(key, authentication) == null) return; // No client to discard
+            credentials.put(key, authentication);
+            clients.remove(key);
+            publishers.remove(key);
+        }
+    }
+    
+    /**
+     *
+     * <p>Read the tokens of an account from a file.</p>
+     *
+     * @param account the name of the account.
+     * @param file the file where the tokens are declared.
+     */
+    public void loadFile(String account, File file) {
+        register(account, new Authentication(file));
+    }
+    
+    /**
+     *
+     * <p>Read the tokens of every file ending in .env in a directory. Each
+     * file is an account named after the file, without the extension.</p>
+     *
+     * @param directory the directory.
+     * @return the number of accounts read.
+     */
+    public int loadDirectory(File directory) {
+        File[] files = directory.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return file.isFile() && file.getName().endsWith(".env");
+            }
+        });
+        if (files == null) return 0;
+        for (File file : files){
+            String name = file.getName();
+            loadFile(name.substring(0, name.length() - 4), file);
+        }
+        return files.length;
+    }
+    
+    /**
+     *
+     * <p>Read the tokens of every account declared in the environment
+     * variables.</p>
+     *
+     * @return the number of accounts read.
+     */
+    public int loadEnvironment() {
+        return loadEnvironment(System.getenv());
+    }
+    
+    /**
+     *
+     * <p>Read the tokens of every account declared in a map of environment
+     * variables, named <code>WARBOT_[ACCOUNT]_CONSUMER_KEY</code> and so
+     * on. Accounts with missing tokens are ignored.</p>
+     *
+     * @param environment the variables.
+     * @return the number of accounts read.
+     */
+    public int loadEnvironment(Map<String, String> environment) {
+        return load(environment, "WARBOT_", "_");
+    }
+    
+    /**
+     *
+     * <p>Read the tokens of every account declared in the system
+     * properties.</p>
+     *
+     * @return the number of accounts read.
+     */
+    public int loadSystemProperties() {
+        return loadProperties(System.getProperties());
+    }
+    
+    /**
+     *
+     * <p>Read the tokens of every account declared in some properties, named
+     * <code>warbot.[account].CONSUMER_KEY</code> and so on. Accounts with
+     * missing tokens are ignored.</p>
+     *
+     * @param properties the properties.
+     * @return the number of accounts read.
+     */
+    public int loadProperties(Properties properties) {
+        Map<String, String> values = new HashMap<>();
+        for (String name : properties.stringPropertyNames()){
+            values.put(name, properties.getProperty(name));
+        }
+        return load(values, "warbot.", ".");
+    }
+    
+    /**
+     *
+     * <p>Get the names of all the accounts.</p>
+     *
+     * @return the names, in lower case.
+     */
+    public Set<String> getAccounts() {
+        return new TreeSet<>(credentials.keySet());
+    }
+    
+    /**
+     *
+     * <p>Get the tokens of an account.</p>
+     *
+     * @param account the name of the account.
+     * @return the tokens.
+     */
+    public Authentication getAuthentication(String account) {
+        Authentication authentication = credentials.get(key(account));
+        if (authentication == null) throw new IllegalArgumentException("Unknown account " + account);
+        return authentication;
+    }
+    
+    /**
+     *
+     * <p>Get the Twitter client of an account, creating it the first
+     * time.</p>
+     *
+     * @param account the name of the account.
+     * @return the client, the same one every time.
+     */
+    public Twitter getTwitter(String account) {
+        String key = key(account);
+        Twitter twitter = clients.get(key);
+        if (twitter != null) return twitter;
+        
+        synchronized (this){
+            twitter = clients.get(key);
+            if (twitter == null){
+                Authentication auth = getAuthentication(account);
+                ConfigurationBuilder builder = new ConfigurationBuilder();
+                builder.setOAuthConsumerKey(auth.getCONSUMER_KEY());
+                builder.setOAuthConsumerSecret(auth.getCONSUMER_SECRET());
+                builder.setOAuthAccessToken(auth.getACCESS_KEY());
+                builder.setOAuthAccessTokenSecret(auth.getACCESS_SECRET());
+                twitter = new TwitterFactory(builder.build()).getInstance();
+                clients.put(key, twitter);
+            }
+            return twitter;
+        }
+    }
+    
+    /**
+     *
+     * <p>Get a publisher that posts with an account, creating it the first
+     * time.</p>
+     *
+     * @param account the name of the account.
+     * @return the publisher, the same one every time.
+     */
+    public Publisher getPublisher(String account) {
+        String key = key(account);
+        Publisher publisher = publishers.get(key);
+        if (publisher != null) return publisher;
+        
+        synchronized (this){
+            publisher = publishers.get(key);
+            if (publisher == null){
+                publisher = new TwitterPublisher(getTwitter(account));
+                publishers.put(key, publisher);
+            }
+            return publisher;
+        }
+    }
+    
+    private int load(Map<String, String> values, String prefix, String separator) {
+        
+        // Collect the tokens of every account before registering them
+        Map<String, Authentication> found = new HashMap<>();
+        for (Map.Entry<String, String> entry : values.entrySet()){
+            String name = entry.getKey();
+            if (!name.regionMatches(true, 0, prefix, 0, prefix.length())) continue;
+            for (String variable : VARIABLES){
+                String suffix = separator + variable;
+                if (name.length() > prefix.length() + suffix.length() && name.endsWith(suffix)){
+                    String account = key(name.substring(prefix.length(), name.length() - suffix.length()));
+                    Authentication auth = found.get(account);
+                    if (auth == null){
+                        auth = new Authentication(null, null, null, null);
+                        found.put(account, auth);
+                    }
+                    auth.set(variable, entry.getValue().trim());
+                }
+            }
+        }
+        
+        int loaded = 0;
+        for (Map.Entry<String, Authentication> entry : found.entrySet()){
+            if (entry.getValue().isComplete()){
+                register(entry.getKey(), entry.getValue());
+                loaded++;
+            }
+        }
+        return loaded;
+    }
+    
+    private static String key(String account) {
+        return account.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,80 @@
+package com.saespmar.warbot.twitter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ *
+ * <p>Helpers to replace files so a crash never leaves them half written:
+ * the new content is written to a temporary file next to the target,
+ * synced to the disk, and renamed over the target in a single step.</p>
+ *
+ * @author saespmar
+ * @version 1.0
+ */
+final class DurableFiles {
+    
+    private DurableFiles() {
+    }
+    
+    /**
+     *
+     * <p>Get the temporary file where the new content of a file is
+     * written. It's in the same directory, so it can be renamed
+     * atomically.</p>
+     *
+     * @param target the file that will be replaced.
+     * @return the temporary file.
+     */
+    static File temporary(File target) {
+        return new File(target.getPath() + ".tmp");
+    }
+    
+    /**
+     *
+     * <p>Rename a temporary file over its target, atomically if the file
+     * system supports it, and sync the directory so the rename survives a
+     * crash. The temporary file must be already synced.</p>
+     *
+     * @param temporary the new content.
+     * @param target the file replaced.
+     * @throws IOException if the file can't be renamed.
+     */
+    static void replace(File temporary, File target) throws IOException {
+        try {
+            Files.move(temporary.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(temporary.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        syncDirectory(target.getAbsoluteFile().getParentFile());
+    }
+    
+    /**
+     *
+     * <p>Sync the entries of a directory. Some systems can't open
+     * directories, in that case nothing is done.</p>
+     */
+    private static void syncDirectory(File directory) {
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ);
+            channel.force(true);
+        } catch (IOException ex) {
+            // Not supported on this platform
+        } finally {
+            if (channel != null){
+                try {
+                    channel.close();
+                } catch (IOException ex) {
+                    ex.printStackTrace();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.saespmar.warbot.twitter;
+
+/**
+ *
+ * <p>Binary indexed tree of weights. Changing a weight, summing a prefix
+ * and finding the position where a cumulative weight falls all take
+ * logarithmic time, which allows weighted random picks over weights that
+ * keep changing.</p>
+ *
+ * @author saespmar
+ * @version 1.0
+ */
+class FenwickTree {
+    private final long[] tree; // 1-based
+    private final int size;
+    private final int topBit;
+    
+    /**
+     *
+     * <p>Build a tree from some weights in linear time.</p>
+     *
+     * @param weights the initial weight of every position.
+     */
+    FenwickTree(long[] weights) {
+        size = weights.length;
+        tree = new long[size + 1];
+        for (int i = 1; i<=size; i++){
+            tree[i] += weights[i - 1];
+            int parent = i + (i & -i);
+            if (parent <= size) tree[parent] += tree[i];
+        }
+        topBit = size == 0 ? 0 : Integer.highestOneBit(size);
+    }
+    
+    int size() {
+        return size;
+    }
+    
+    /**
+     *
+     * <p>Add to the weight of a position.</p>
+     *
+     * @param position the position, starting at 0.
+     * @param delta the change of the weight.
+     */
+    void add(int position, long delta) {
+        for (int i = position + 1; i<=size; i += i & -i){
+            tree[i] += delta;
+        }
+    }
+    
+    /**
+     *
+     * <p>Sum the weights before a position.</p>
+     *
+     * @param position the position, starting at 0.
+     * @return the sum of the weights of the positions lower than it.
+     */
+    long prefix(int position) {
+        long sum = 0;
+        for (int i = position; i>0; i -= i & -i){
+            sum += tree[i];
+        }
+        return sum;
+    }
+    
+    long total() {
+        return prefix(size);
+    }
+    
+    /**
+     *
+     * <p>Find the position where a cumulative weight falls.</p>
+     *
+     * @param target a value between 0 and the total weight, exclusive.
+     * @return the position whose prefix is at most the target and whose
+     * prefix plus its own weight is greater than it.
+     */
+    int find(long target) {
+        int position = 0;
+        for (int step = topBit; step>0; step >>= 1){
+            int next = position + step;
+            if (next <= size && tree[next] <= target){
+                position = next;
+                target -= tree[next];
+            }
+        }
+        return position;
+    }
+}
@@ -0,0 +1,104 @@
+package com.saespmar.warbot.twitter;
+
+/**
+ *
+ * <p>Result of a single fight: who killed who and when.</p>
+ *
+ * @author saespmar
+ * @version 1.0
+ */
+public class FightEvent {
+    private final int round;
+    private final int killer;
+    private final int victim;
+    private final long timestamp;
+
+    /**
+     *
+     * <p>Create a fight event.</p>
+     *
+     * @param round number of the fight in the game, starting at 1.
+     * @param killer slot of the participant who won the fight, or -1 if the
+     * victim was killed by hand.
+     * @param victim slot of the participant who died.
+     * @param timestamp time of the fight, in milliseconds since the epoch.
+     */
+    public FightEvent(int round, int killer, int victim, long timestamp) {
+        this.round = round;
+        this.killer = killer;
+        this.victim = victim;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     *
+     * <p>Get the number of the fight in the game.</p>
+     *
+     * @return the round, starting at 1.
+     */
+    public int getRound() {
+        return round;
+    }
+
+    /**
+     *
+     * <p>Get the participant who won the fight.</p>
+     *
+     * @return the slot of the killer in the roster, or -1 if the victim was
+     * killed by hand.
+     */
+    public int getKiller() {
+        return killer;
+    }
+
+    /**
+     *
+     * <p>Get the participant who died in the fight.</p>
+     *
+     * @return the slot of the victim in the roster.
+     */
+    public int getVictim() {
+        return victim;
+    }
+
+    /**
+     *
+     * <p>Get the time of the fight.</p>
+     *
+     * @return the time in milliseconds since the epoch.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 5;
+        hash = 41 * hash + this.round;
+        hash = 41 * hash + this.killer;
+        hash = 41 * hash + this.victim;
+        hash = 41 * hash + (int) (this.timestamp ^ (this.timestamp >>> 32));
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        final FightEvent other = (FightEvent) obj;
+        return this.round == other.round && this.killer == other.killer
+                && this.victim == other.victim && this.timestamp == other.timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return "FightEvent{round=" + round + ", killer=" + killer + ", victim=" + victim + ", timestamp=" + timestamp + '}';
+    }
+}
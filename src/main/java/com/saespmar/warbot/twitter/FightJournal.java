@@ -0,0 +1,377 @@
+package com.saespmar.warbot.twitter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *
+ * <p>Append-only log of the fights of a battlefield. Instead of rewriting the
+ * whole list of participants after every fight, only the result of the
+ * fight is added at the end of the journal. When the list is read again,
+ * the journal is replayed over it.</p>
+ *
+ * <p>The header of the journal stores the seed of the game, so it can be
+ * replayed with {@link BattleReplay}, and the number of values drawn from
+ * it when the list was written, so a game resumed from the list and the
+ * journal keeps drawing where it stopped. Every event takes
+ * {@value #RECORD_SIZE} bytes. If the program stops
+ * while an event is being written, the incomplete event is discarded the
+ * next time the journal is opened.</p>
+ *
+ * @author saespmar
+ * @version 1.0
+ */
+public class FightJournal implements Closeable {
+    static final int MAGIC = 0x57424a4c; // "WBJL"
+    static final int VERSION = 3;
+    static final int HEADER_SIZE = 24;
+    static final int RECORD_SIZE = 20;
+    static final int DRAWS_PER_FIGHT = 2; // The victim and the killer
+    
+    private final File file;
+    private final int compactionInterval;
+    private DataOutputStream out;
+    private int events = -1; // Unknown until the file is opened
+    private long seed;
+    private long draws;
+    
+    /**
+     *
+     * <p>Create a journal. The file is created the first time an event is
+     * written.</p>
+     *
+     * @param file the file where the events are stored.
+     * @param compactionInterval number of events after which the journal
+     * should be compacted into a new list of participants.
+     */
+    public FightJournal(File file, int compactionInterval) {
+        if (compactionInterval < 1) throw new IllegalArgumentException("The compaction interval must be positive");
+        this.file = file;
+        this.compactionInterval = compactionInterval;
+    }
+    
+    /**
+     *
+     * <p>Create a journal next to a list of participants, named like the list
+     * followed by .journal.</p>
+     *
+     * @param participantsFile the list of participants.
+     * @param compactionInterval number of events after which the journal
+     * should be compacted into a new list of participants.
+     * @return the journal for that list.
+     */
+    public static FightJournal forParticipantsFile(File participantsFile, int compactionInterval) {
+        return new FightJournal(new File(participantsFile.getPath() + ".journal"), compactionInterval);
+    }
+    
+    /**
+     *
+     * <p>Get the file where the events are stored.</p>
+     *
+     * @return the journal file.
+     */
+    public File getFile() {
+        return file;
+    }
+    
+    /**
+     *
+     * <p>Get the number of events after which the journal should be
+     * compacted.</p>
+     *
+     * @return the compaction interval.
+     */
+    public int getCompactionInterval() {
+        return compactionInterval;
+    }
+    
+    /**
+     *
+     * <p>Get the seed stored in the header of the journal.</p>
+     *
+     * @return the seed of the game, or the seed set in this object if the
+     * file doesn't exist yet.
+     * @throws IOException if the file can't be read.
+     */
+    public long getSeed() throws IOException {
+        flush();
+        if (file.length() < HEADER_SIZE) return seed;
+        DataInputStream in = new DataInputStream(new FileInputStream(file));
+        try {
+            return readHeader(in).getSeed();
+        } finally {
+            in.close();
+        }
+    }
+    
+    /**
+     *
+     * <p>Set the seed of the game. It's stored in the header the next time
+     * the journal is created or emptied.</p>
+     *
+     * @param seed the seed of the random generator of the game.
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+    
+    /**
+     *
+     * <p>Set the number of values drawn from the random generator of the
+     * game when the list was written. It's stored in the header the next
+     * time the journal is created or emptied.</p>
+     *
+     * @param draws the position of the random generator.
+     */
+    public void setDraws(long draws) {
+        this.draws = draws;
+    }
+    
+    /**
+     *
+     * <p>Get the random generator of the game where the journal ends: the
+     * seed and position stored in the header, moved forward by the values
+     * drawn in every fight of the journal. Deaths outside of a fight don't
+     * draw any value.</p>
+     *
+     * @return the random generator, or null if the file doesn't exist
+     * yet.
+     * @throws IOException if the file can't be read.
+     */
+    public SplitMixRandom getRandom() throws IOException {
+        flush();
+        if (file.length() < HEADER_SIZE) return null;
+        
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            SplitMixRandom random = readHeader(in);
+            long remaining = (file.length() - HEADER_SIZE) / RECORD_SIZE;
+            long fights = 0;
+            for (long i = 0; i<remaining; i++){
+                in.readInt();
+                if (in.readInt() >= 0) fights++;
+                in.readInt();
+                in.readLong();
+            }
+            random.setDraws(random.getDraws() + fights * DRAWS_PER_FIGHT);
+            return random;
+        } finally {
+            if (in != null) in.close();
+        }
+    }
+    
+    /**
+     *
+     * <p>Get the number of events stored in the journal.</p>
+     *
+     * @return the number of complete events in the file.
+     * @throws IOException if the file can't be read.
+     */
+    public int getEvents() throws IOException {
+        open();
+        return events;
+    }
+    
+    /**
+     *
+     * <p>Check if the journal has grown enough to be compacted.</p>
+     *
+     * @return true if the events should be merged into a new list of
+     * participants.
+     * @throws IOException if the file can't be read.
+     */
+    public boolean needsCompaction() throws IOException {
+        return getEvents() >= compactionInterval;
+    }
+    
+    /**
+     *
+     * <p>Add an event at the end of the journal. The event may stay in a
+     * buffer until {@link #flush() flush} is called.</p>
+     *
+     * @param event the result of a fight.
+     * @throws IOException if the event can't be written.
+     */
+    public void append(FightEvent event) throws IOException {
+        open();
+        out.writeInt(event.getRound());
+        out.writeInt(event.getKiller());
+        out.writeInt(event.getVictim());
+        out.writeLong(event.getTimestamp());
+        events++;
+    }
+    
+    /**
+     *
+     * <p>Write all the buffered events to the file.</p>
+     *
+     * @throws IOException if the events can't be written.
+     */
+    public void flush() throws IOException {
+        if (out != null) out.flush();
+    }
+    
+    /**
+     *
+     * <p>Apply all the events of the journal to a roster. Events whose
+     * participants aren't in the roster are ignored.</p>
+     *
+     * @param roster the list of participants loaded from the last
+     * compaction.
+     * @return the round of the last event, or 0 if the journal is empty.
+     * @throws IOException if the file can't be read.
+     */
+    public int replay(Roster roster) throws IOException {
+        flush();
+        if (file.length() < HEADER_SIZE) return 0;
+        
+        int round = 0;
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            readHeader(in);
+            long remaining = (file.length() - HEADER_SIZE) / RECORD_SIZE;
+            for (long i = 0; i<remaining; i++){
+                int eventRound = in.readInt();
+                in.readInt(); // The killer doesn't change the list
+                int victim = in.readInt();
+                in.readLong();
+                if (victim >= 0 && victim < roster.size()) roster.setAlive(victim, false);
+                round = eventRound;
+            }
+        } finally {
+            if (in != null) in.close();
+        }
+        return round;
+    }
+    
+    /**
+     *
+     * <p>Read all the events of the journal. There are never more than a
+     * few more events than the compaction interval.</p>
+     *
+     * @return the events, in the order they were written.
+     * @throws IOException if the file can't be read.
+     */
+    public List<FightEvent> readEvents() throws IOException {
+        flush();
+        List<FightEvent> result = new ArrayList<>();
+        if (file.length() < HEADER_SIZE) return result;
+        
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            readHeader(in);
+            long remaining = (file.length() - HEADER_SIZE) / RECORD_SIZE;
+            for (long i = 0; i<remaining; i++){
+                result.add(new FightEvent(in.readInt(), in.readInt(), in.readInt(), in.readLong()));
+            }
+        } finally {
+            if (in != null) in.close();
+        }
+        return result;
+    }
+    
+    /**
+     *
+     * <p>Remove all the events. It must be called once the events are
+     * stored in a new list of participants.</p>
+     *
+     * @throws IOException if the file can't be truncated.
+     */
+    public void reset() throws IOException {
+        close();
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(0);
+            writeHeader(raf);
+        } finally {
+            raf.close();
+        }
+        events = 0;
+    }
+    
+    /**
+     *
+     * <p>Write the buffered events and close the file. The journal can still
+     * be used afterwards, the file is opened again when needed.</p>
+     *
+     * @throws IOException if the file can't be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (out != null){
+            try {
+                out.close();
+            } finally {
+                out = null;
+                events = -1;
+            }
+        }
+    }
+    
+    /**
+     *
+     * <p>Opens the file for appending. The header is written if the file is
+     * new, and an incomplete event at the end is discarded.</p>
+     */
+    private void open() throws IOException {
+        if (out != null) return;
+        
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            if (raf.length() < HEADER_SIZE){
+                raf.setLength(0);
+                writeHeader(raf);
+            } else {
+                if (raf.readInt() != MAGIC) throw new IOException(file + " is not a fight journal");
+                int version = raf.readInt();
+                if (version != VERSION) throw new IOException("Unsupported journal version: " + version);
+            }
+            long complete = (raf.length() - HEADER_SIZE) / RECORD_SIZE;
+            raf.setLength(HEADER_SIZE + complete * RECORD_SIZE);
+            events = (int) complete;
+        } finally {
+            raf.close();
+        }
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+    }
+    
+    private void writeHeader(RandomAccessFile raf) throws IOException {
+        raf.writeInt(MAGIC);
+        raf.writeInt(VERSION);
+        raf.writeLong(seed);
+        raf.writeLong(draws);
+    }
+    
+    /**
+     *
+     * <p>Checks the header of the journal.</p>
+     *
+     * @return the random generator at the seed and position stored in the
+     * header.
+     */
+    private SplitMixRandom readHeader(DataInputStream in) throws IOException {
+        try {
+            if (in.readInt() != MAGIC) throw new IOException(file + " is not a fight journal");
+            int version = in.readInt();
+            if (version != VERSION) throw new IOException("Unsupported journal version: " + version);
+            long headerSeed = in.readLong();
+            return new SplitMixRandom(headerSeed, in.readLong());
+        } catch (EOFException ex) {
+            throw new IOException(file + " is not a fight journal", ex);
+        }
+    }
+}
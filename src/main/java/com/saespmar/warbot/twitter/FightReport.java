@@ -0,0 +1,93 @@
+package com.saespmar.warbot.twitter;
+
+/**
+ *
+ * <p>A fight as seen by the consumers of a {@link FightStream}: the event
+ * with the names of the participants and the state of the game right after
+ * it. The names are copied when the fight takes place, so the report can be
+ * read from any thread while the battlefield keeps changing.</p>
+ *
+ * @author saespmar
+ * @version 1.0
+ */
+public class FightReport {
+    private final FightEvent event;
+    private final String killerName;
+    private final String victimName;
+    private final int alive;
+    private final boolean gameOver;
+    
+    /**
+     *
+     * <p>Create a report.</p>
+     *
+     * @param event the fight.
+     * @param killerName name of the killer, or null if the victim was killed
+     * by hand.
+     * @param victimName name of the victim.
+     * @param alive number of participants alive after the fight.
+     * @param gameOver true if it was the last fight of the game.
+     */
+    public FightReport(FightEvent event, String killerName, String victimName, int alive, boolean gameOver) {
+        this.event = event;
+        this.killerName = killerName;
+        this.victimName = victimName;
+        this.alive = alive;
+        this.gameOver = gameOver;
+    }
+    
+    /**
+     *
+     * <p>Get the fight, with the slots of the participants.</p>
+     *
+     * @return the event.
+     */
+    public FightEvent getEvent() {
+        return event;
+    }
+    
+    /**
+     *
+     * <p>Get the name of the participant who won the fight.</p>
+     *
+     * @return the name, or null if the victim was killed by hand.
+     */
+    public String getKillerName() {
+        return killerName;
+    }
+    
+    /**
+     *
+     * <p>Get the name of the participant who died.</p>
+     *
+     * @return the name.
+     */
+    public String getVictimName() {
+        return victimName;
+    }
+    
+    /**
+     *
+     * <p>Get the number of people alive after the fight.</p>
+     *
+     * @return the participants alive.
+     */
+    public int getAlive() {
+        return alive;
+    }
+    
+    /**
+     *
+     * <p>Check if it was the last fight of the game.</p>
+     *
+     * @return true if no more fights can take place.
+     */
+    public boolean isGameOver() {
+        return gameOver;
+    }
+    
+    @Override
+    public String toString() {
+        return "FightReport{round=" + event.getRound() + ", killer=" + killerName + ", victim=" + victimName + ", alive=" + alive + ", gameOver=" + gameOver + '}';
+    }
+}
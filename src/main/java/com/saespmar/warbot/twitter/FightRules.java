@@ -0,0 +1,302 @@
+package com.saespmar.warbot.twitter;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Random;
+
+/**
+ *
+ * <p>Game modes where the killer isn't picked uniformly: every participant
+ * can have a weight that makes it more likely to win a fight, and
+ * participants can be grouped in teams whose members never fight each
+ * other. The victim is still picked uniformly among the alive participants,
+ * and the killer is picked proportionally to the weights among the alive
+ * participants of the other teams. The game ends when only one team is
+ * left.</p>
+ *
+ * <p>The weights are kept in a {@link FenwickTree}, with the members of
+ * every team next to each other, so the team of the victim can be skipped
+ * and every pick takes logarithmic time even with millions of
+ * participants. The rules are set with
+ * {@link Battlefield#setRules(FightRules) setRules}, and they follow the
+ * participants of that battlefield from then on.</p>
+ *
+ * @author saespmar
+ * @version 1.0
+ */
+public class FightRules {
+    private long[] initialWeights; // Lines of the list, they move when lines are removed
+    private int[] initialTeams;
+    private long killBonus;
+    
+    // Built when the rules are bound to a roster
+    private long[] weights = new long[0]; // Weight of every slot, also while it's dead
+    private int[] team = new int[0]; // Dense team of every slot
+    private int[] position = new int[0]; // Position of every slot in the tree
+    private int[] slotAt = new int[0]; // Slot at every position of the tree
+    private boolean[] alive = new boolean[0];
+    private int[] teamStart = new int[0]; // First position of every team
+    private int[] teamAlive = new int[0];
+    private int teamsAlive;
+    private FenwickTree tree = new FenwickTree(new long[0]);
+    
+    /**
+     *
+     * <p>Create the rules.</p>
+     *
+     * @param weights the weight of every slot, or null. Slots without a
+     * weight have weight 1. Weights must be positive.
+     * @param teams the team of every slot, or null. Slots without a team are
+     * in a team of their own.
+     */
+    public FightRules(long[] weights, int[] teams) {
+        if (weights != null){
+            for (long weight : weights){
+                checkWeight(weight);
+            }
+        }
+        this.initialWeights = weights == null ? null : weights.clone();
+        this.initialTeams = teams == null ? null : teams.clone();
+    }
+    
+    /**
+     *
+     * <p>Create rules where the killer is picked proportionally to some
+     * weights.</p>
+     *
+     * @param weights the weight of every slot.
+     * @return the rules.
+     */
+    public static FightRules weighted(long[] weights) {
+        return new FightRules(weights, null);
+    }
+    
+    /**
+     *
+     * <p>Create rules where the members of a team never fight each
+     * other.</p>
+     *
+     * @param teams the team of every slot.
+     * @return the rules.
+     */
+    public static FightRules teams(int[] teams) {
+        return new FightRules(null, teams);
+    }
+    
+    /**
+     *
+     * <p>Get the weight added to a participant every time it wins a
+     * fight.</p>
+     *
+     * @return the bonus.
+     */
+    public long getKillBonus() {
+        return killBonus;
+    }
+    
+    /**
+     *
+     * <p>Set a weight added to a participant every time it wins a fight, so
+     * kill streaks make it stronger.</p>
+     *
+     * @param killBonus the bonus, 0 by default.
+     */
+    public void setKillBonus(long killBonus) {
+        if (killBonus < 0) throw new IllegalArgumentException("The bonus can't be negative");
+        this.killBonus = killBonus;
+    }
+    
+    /**
+     *
+     * <p>Get the weight of a participant.</p>
+     *
+     * @param slot position of the participant in the list.
+     * @return the weight.
+     */
+    public long getWeight(int slot) {
+        return weights[slot];
+    }
+    
+    /**
+     *
+     * <p>Change the weight of a participant.</p>
+     *
+     * @param slot position of the participant in the list.
+     * @param weight the new weight, positive.
+     */
+    public void setWeight(int slot, long weight) {
+        checkWeight(weight);
+        if (alive[slot]) tree.add(position[slot], weight - weights[slot]);
+        weights[slot] = weight;
+    }
+    
+    /**
+     *
+     * <p>Check if two participants are in the same team.</p>
+     *
+     * @param first position of a participant in the list.
+     * @param second position of another participant in the list.
+     * @return true if they can't fight each other.
+     */
+    public boolean sameTeam(int first, int second) {
+        return team[first] == team[second];
+    }
+    
+    /**
+     *
+     * <p>Get the number of teams with participants alive.</p>
+     *
+     * @return the number of teams alive.
+     */
+    public int getTeamsAlive() {
+        return teamsAlive;
+    }
+    
+    /**
+     *
+     * <p>Builds the tree for the participants of a roster, with the dead
+     * ones at weight 0. Weights changed before are kept for the slots that
+     * still exist.</p>
+     */
+    void reset(Roster roster) {
+        int size = roster.size();
+        long[] oldWeights = weights;
+        weights = new long[size];
+        for (int i = 0; i<size; i++){
+            if (i < oldWeights.length) weights[i] = oldWeights[i];
+            else if (initialWeights != null && i < initialWeights.length) weights[i] = initialWeights[i];
+            else weights[i] = 1;
+        }
+        
+        // Dense team numbers, slots without a team get their own
+        team = new int[size];
+        HashMap<Integer, Integer> dense = new HashMap<>();
+        int teams = 0;
+        for (int i = 0; i<size; i++){
+            if (initialTeams != null && i < initialTeams.length){
+                Integer known = dense.get(initialTeams[i]);
+                if (known == null){
+                    known = teams++;
+                    dense.put(initialTeams[i], known);
+                }
+                team[i] = known;
+            } else {
+                team[i] = teams++;
+            }
+        }
+        
+        // Counting sort of the slots by team, so every team is a range of the tree
+        teamStart = new int[teams + 1];
+        for (int i = 0; i<size; i++){
+            teamStart[team[i] + 1]++;
+        }
+        for (int t = 0; t<teams; t++){
+            teamStart[t + 1] += teamStart[t];
+        }
+        int[] next = Arrays.copyOf(teamStart, teams);
+        position = new int[size];
+        slotAt = new int[size];
+        alive = new boolean[size];
+        long[] treeWeights = new long[size];
+        teamAlive = new int[teams];
+        teamsAlive = 0;
+        for (int i = 0; i<size; i++){
+            position[i] = next[team[i]]++;
+            slotAt[position[i]] = i;
+            if (roster.isAlive(i)){
+                alive[i] = true;
+                treeWeights[position[i]] = weights[i];
+                if (teamAlive[team[i]]++ == 0) teamsAlive++;
+            }
+        }
+        tree = new FenwickTree(treeWeights);
+    }
+    
+    /**
+     *
+     * <p>Drops the participants removed from the list, moving the weights
+     * and teams of the ones after them like the roster does. The rules must
+     * be reset with the new roster afterwards.</p>
+     */
+    void remove(BitSet removed) {
+        weights = compact(weights, removed);
+        if (initialWeights != null) initialWeights = compact(initialWeights, removed);
+        if (initialTeams != null){
+            int kept = 0;
+            for (int slot = 0; slot<initialTeams.length; slot++){
+                if (!removed.get(slot)) initialTeams[kept++] = initialTeams[slot];
+            }
+            initialTeams = Arrays.copyOf(initialTeams, kept);
+        }
+    }
+    
+    /**
+     *
+     * <p>Check if there are participants of at least two teams alive.</p>
+     */
+    boolean canFight() {
+        return teamsAlive >= 2;
+    }
+    
+    /**
+     *
+     * <p>Takes a participant who died out of the picks.</p>
+     */
+    void remove(int slot) {
+        if (!alive[slot]) return;
+        alive[slot] = false;
+        tree.add(position[slot], -weights[slot]);
+        if (--teamAlive[team[slot]] == 0) teamsAlive--;
+    }
+    
+    /**
+     *
+     * <p>Puts a participant who came back to life in the picks.</p>
+     */
+    void restore(int slot) {
+        if (alive[slot]) return;
+        alive[slot] = true;
+        tree.add(position[slot], weights[slot]);
+        if (teamAlive[team[slot]]++ == 0) teamsAlive++;
+    }
+    
+    /**
+     *
+     * <p>Picks the killer of a victim proportionally to the weights, among
+     * the alive participants of the other teams.</p>
+     *
+     * @return the slot of the killer, or -1 if no one else is alive.
+     */
+    int pickKiller(Random random, int victim) {
+        int t = team[victim];
+        long before = tree.prefix(teamStart[t]);
+        long excluded = tree.prefix(teamStart[t + 1]) - before;
+        long available = tree.total() - excluded;
+        if (available <= 0) return -1;
+        
+        long target = (random.nextLong() >>> 1) % available;
+        if (target >= before) target += excluded; // Skip the team of the victim
+        return slotAt[tree.find(target)];
+    }
+    
+    /**
+     *
+     * <p>Gives the kill bonus to the winner of a fight.</p>
+     */
+    void credit(int killer) {
+        if (killBonus > 0) setWeight(killer, weights[killer] + killBonus);
+    }
+    
+    private static long[] compact(long[] values, BitSet removed) {
+        int kept = 0;
+        for (int slot = 0; slot<values.length; slot++){
+            if (!removed.get(slot)) values[kept++] = values[slot];
+        }
+        return Arrays.copyOf(values, kept);
+    }
+    
+    private static void checkWeight(long weight) {
+        if (weight < 1) throw new IllegalArgumentException("Weights must be positive");
+    }
+}
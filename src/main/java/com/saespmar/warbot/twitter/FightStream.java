@@ -0,0 +1,378 @@
+package com.saespmar.warbot.twitter;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *
+ * <p>Publishes the fights of a battlefield to any number of consumers, such
+ * as persistence, rendering, publishing or analytics. It follows the
+ * reactive streams protocol: every subscriber asks for the number of
+ * reports it can take with {@link Subscription#request(long) request}, and
+ * it's only called on its own executor, one report at a time.</p>
+ *
+ * <p>Every subscriber has a bounded buffer of the reports it hasn't taken
+ * yet. Publishing never waits: when a buffer is full, a report is dropped
+ * following the {@link Overflow overflow} policy of that subscriber, so a
+ * slow consumer can't stall the fights nor run out of memory, and it
+ * doesn't delay the rest of consumers.</p>
+ *
+ * <p>A stream is attached with
+ * {@link Battlefield#setStream(FightStream) setStream}.</p>
+ *
+ * @author saespmar
+ * @version 1.0
+ */
+public class FightStream implements Closeable {
+    
+    /**
+     *
+     * <p>Consumer of the reports of a stream. The methods are never called
+     * at the same time for the same subscriber.</p>
+     */
+    public interface Subscriber {
+        
+        /**
+         *
+         * <p>Called before any other method. No report is delivered until
+         * some are requested from the subscription.</p>
+         *
+         * @param subscription the link with the stream.
+         */
+        void onSubscribe(Subscription subscription);
+        
+        /**
+         *
+         * <p>Called for every report requested.</p>
+         *
+         * @param report the fight.
+         */
+        void onNext(FightReport report);
+        
+        /**
+         *
+         * <p>Called once if the stream fails or the subscriber breaks the
+         * protocol. Nothing else is called after it.</p>
+         *
+         * @param error the cause.
+         */
+        void onError(Throwable error);
+        
+        /**
+         *
+         * <p>Called once when the stream is closed and every report in the
+         * buffer has been delivered. Nothing else is called after it.</p>
+         */
+        void onComplete();
+    }
+    
+    /**
+     *
+     * <p>Link between a stream and one of its subscribers.</p>
+     */
+    public interface Subscription {
+        
+        /**
+         *
+         * <p>Ask for more reports. The demand adds up, and
+         * {@link Long#MAX_VALUE} means no limit.</p>
+         *
+         * @param n number of reports, positive.
+         */
+        void request(long n);
+        
+        /**
+         *
+         * <p>Stop receiving reports. The ones in the buffer are
+         * discarded.</p>
+         */
+        void cancel();
+    }
+    
+    /**
+     *
+     * <p>What to do with a new report when the buffer of a subscriber is
+     * full.</p>
+     */
+    public enum Overflow {
+        
+        /**
+         *
+         * <p>Discard the oldest report in the buffer. With a buffer of 1,
+         * the subscriber always gets the latest fight, which is enough for
+         * consumers that only care about the current state, like the table
+         * or the list file.</p>
+         */
+        DROP_OLDEST,
+        
+        /**
+         *
+         * <p>Discard the new report.</p>
+         */
+        DROP_NEWEST
+    }
+    
+    private final CopyOnWriteArrayList<Link> links = new CopyOnWriteArrayList<>();
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile boolean closed;
+    
+    /**
+     *
+     * <p>Add a subscriber with a buffer of 256 reports that drops the oldest
+     * ones.</p>
+     *
+     * @param subscriber the consumer.
+     * @param executor where the subscriber is called.
+     */
+    public void subscribe(Subscriber subscriber, Executor executor) {
+        subscribe(subscriber, executor, 256, Overflow.DROP_OLDEST);
+    }
+    
+    /**
+     *
+     * <p>Add a subscriber. It only gets the reports published from now on.
+     * If the stream is already closed, it's completed right away.</p>
+     *
+     * @param subscriber the consumer.
+     * @param executor where the subscriber is called. Several subscribers
+     * can share it.
+     * @param capacity number of reports that can wait for the subscriber.
+     * @param overflow what to do when they don't fit.
+     */
+    public void subscribe(Subscriber subscriber, Executor executor, int capacity, Overflow overflow) {
+        if (capacity < 1) throw new IllegalArgumentException("The capacity must be positive");
+        Link link = new Link(subscriber, executor, capacity, overflow);
+        links.add(link);
+        if (closed) link.complete(null);
+        link.signal(); // Calls onSubscribe
+    }
+    
+    /**
+     *
+     * <p>Send a report to every subscriber, without waiting for any of
+     * them. Reports published after closing the stream are ignored.</p>
+     *
+     * @param report the fight.
+     */
+    public void publish(FightReport report) {
+        if (closed) return;
+        published.incrementAndGet();
+        for (Link link : links){
+            link.offer(report);
+        }
+    }
+    
+    /**
+     *
+     * <p>Complete every subscriber once it has taken the reports in its
+     * buffer.</p>
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (Link link : links){
+            link.complete(null);
+        }
+    }
+    
+    /**
+     *
+     * <p>Fail every subscriber right away, discarding the reports in the
+     * buffers.</p>
+     *
+     * @param error the cause, given to the subscribers.
+     */
+    public void closeExceptionally(Throwable error) {
+        closed = true;
+        for (Link link : links){
+            link.complete(error);
+        }
+    }
+    
+    /**
+     *
+     * <p>Check if the stream has been closed.</p>
+     *
+     * @return true if the reports published are ignored.
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+    
+    /**
+     *
+     * <p>Get the number of subscribers still receiving reports.</p>
+     *
+     * @return the subscribers.
+     */
+    public int getSubscribers() {
+        return links.size();
+    }
+    
+    /**
+     *
+     * <p>Get the number of reports published.</p>
+     *
+     * @return the reports.
+     */
+    public long getPublished() {
+        return published.get();
+    }
+    
+    /**
+     *
+     * <p>Get the number of reports dropped because a buffer was full,
+     * adding up all the subscribers.</p>
+     *
+     * @return the dropped reports.
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+    
+    /**
+     *
+     * <p>Buffer and state of a subscriber. Only one task delivering reports
+     * runs at a time: whoever makes the counter of pending signals leave 0
+     * submits it, and the task keeps running until it has seen every
+     * signal.</p>
+     */
+    private class Link implements Subscription, Runnable {
+        private final Subscriber subscriber;
+        private final Executor executor;
+        private final int capacity;
+        private final Overflow overflow;
+        private final ArrayDeque<FightReport> buffer = new ArrayDeque<>(); // Guarded by this
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger signals = new AtomicInteger();
+        private volatile boolean cancelled;
+        private boolean completing; // Guarded by this
+        private Throwable error; // Guarded by this
+        private boolean subscribed; // Only used by the delivering task
+        
+        Link(Subscriber subscriber, Executor executor, int capacity, Overflow overflow) {
+            this.subscriber = subscriber;
+            this.executor = executor;
+            this.capacity = capacity;
+            this.overflow = overflow;
+        }
+        
+        void offer(FightReport report) {
+            synchronized (this){
+                if (cancelled || completing) return;
+                if (buffer.size() == capacity){
+                    dropped.incrementAndGet();
+                    if (overflow == Overflow.DROP_NEWEST) return;
+                    buffer.poll();
+                }
+                buffer.add(report);
+            }
+            signal();
+        }
+        
+        void complete(Throwable cause) {
+            synchronized (this){
+                if (completing) return;
+                completing = true;
+                error = cause;
+                if (cause != null) buffer.clear();
+            }
+            signal();
+        }
+        
+        @Override
+        public void request(long n) {
+            if (n <= 0){
+                
+                // Breaking the protocol ends the subscription
+                synchronized (this){
+                    completing = true;
+                    error = new IllegalArgumentException("The number of reports requested must be positive");
+                    buffer.clear();
+                }
+            } else {
+                long current, next;
+                do {
+                    current = demand.get();
+                    next = current + n < 0 ? Long.MAX_VALUE : current + n;
+                } while (!demand.compareAndSet(current, next));
+            }
+            signal();
+        }
+        
+        @Override
+        public void cancel() {
+            cancelled = true;
+            links.remove(this);
+            synchronized (this){
+                buffer.clear();
+            }
+        }
+        
+        void signal() {
+            if (signals.getAndIncrement() == 0){
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException ex) {
+                    cancel();
+                }
+            }
+        }
+        
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                deliver();
+                missed = signals.addAndGet(-missed);
+            } while (missed != 0);
+        }
+        
+        private void deliver() {
+            if (!subscribed){
+                subscribed = true;
+                try {
+                    subscriber.onSubscribe(this);
+                } catch (Throwable ex) {
+                    fail(ex);
+                    return;
+                }
+            }
+            while (!cancelled){
+                FightReport report;
+                boolean done;
+                Throwable cause;
+                synchronized (this){
+                    report = demand.get() > 0 ? buffer.poll() : null;
+                    done = report == null && completing && buffer.isEmpty();
+                    cause = error;
+                }
+                if (done){
+                    cancel();
+                    if (cause == null) subscriber.onComplete();
+                    else subscriber.onError(cause);
+                    return;
+                }
+                if (report == null) return;
+                if (demand.get() != Long.MAX_VALUE) demand.decrementAndGet();
+                try {
+                    subscriber.onNext(report);
+                } catch (Throwable ex) {
+                    fail(ex);
+                    return;
+                }
+            }
+        }
+        
+        private void fail(Throwable ex) {
+            cancel();
+            subscriber.onError(ex);
+        }
+    }
+}
@@ -0,0 +1,497 @@
+package com.saespmar.warbot.twitter;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ * <p>Journal shared by many battlefields, which makes their fights durable
+ * with a single disk sync for all of them. Every battlefield gets its own
+ * {@link FightJournal} from {@link #journal(String, int) journal}, and its
+ * {@link FightJournal#flush() flush} waits until the fights are synced.
+ * The fights flushed by all the battlefields in the same window are written
+ * and synced together by a background thread (group commit), so the cost
+ * of a sync is shared by all the battles that ticked in that window instead
+ * of paid by every one of them.</p>
+ *
+ * <p>The journals keep their events in memory, and the file only grows
+ * until it's compacted: it's rewritten with the events of every journal
+ * since its last {@link FightJournal#reset() reset}, and renamed over the
+ * old one. Every record takes {@value #RECORD_SIZE} bytes, and an
+ * incomplete record at the end is discarded when the log is opened.</p>
+ *
+ * <p>Journals are identified in the file by the hash of their name, so two
+ * names with the same hash can't be used in the same log. The seed and the
+ * position of the random generator of a journal are stored in its reset
+ * records, so {@link FightJournal#getRandom() getRandom} resumes the game
+ * like a journal of its own.</p>
+ *
+ * @author saespmar
+ * @version 1.0
+ */
+public class GroupCommitLog implements Closeable {
+    static final int MAGIC = 0x57424743; // "WBGC"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 8;
+    static final int RECORD_SIZE = 28;
+    private static final int FIGHT = 0;
+    private static final int RESET = 1; // The draws take the killer and victim fields
+    private static final int MIN_COMPACTION_RECORDS = 4096;
+    
+    private final File file;
+    private final long windowNanos;
+    private final HashMap<Integer, Journal> journals = new HashMap<>();
+    private final Thread committer;
+    
+    // Guarded by this
+    private FileChannel channel;
+    private ByteBuffer pending = ByteBuffer.allocate(64 * RECORD_SIZE);
+    private long appended; // Records appended since the log was opened
+    private long committed; // Records synced since the log was opened
+    private long fileRecords;
+    private long syncs;
+    private IOException failure;
+    private boolean closed;
+    
+    /**
+     *
+     * <p>Open a log, creating the file if it doesn't exist. The fights
+     * already in the file are loaded, and given to the journals with the
+     * same name.</p>
+     *
+     * @param file the file of the log.
+     * @param window time the background thread waits for more fights after
+     * the first one, before syncing them. Longer windows sync less often,
+     * but {@link FightJournal#flush() flush} takes longer.
+     * @param unit unit of the window.
+     * @throws IOException if the file can't be read or created.
+     */
+    public GroupCommitLog(File file, long window, TimeUnit unit) throws IOException {
+        this.file = file;
+        this.windowNanos = unit.toNanos(window);
+        load();
+        channel = new RandomAccessFile(file, "rw").getChannel();
+        channel.position(channel.size());
+        
+        committer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                commitLoop();
+            }
+        }, "group-commit");
+        committer.setDaemon(true);
+        committer.start();
+    }
+    
+    /**
+     *
+     * <p>Get the journal of a battlefield, with the fights stored for it in
+     * the log. The same journal is returned for the same name.</p>
+     *
+     * @param name the name of the battlefield.
+     * @param compactionInterval number of events after which the journal
+     * should be compacted into a new list of participants.
+     * @return the journal.
+     */
+    public synchronized FightJournal journal(String name, int compactionInterval) {
+        Journal journal = journals.get(name.hashCode());
+        if (journal == null){
+            journal = new Journal(name.hashCode());
+            journals.put(journal.id, journal);
+        }
+        if (journal.name != null && !journal.name.equals(name)){
+            throw new IllegalArgumentException(name + " has the same hash as " + journal.name);
+        }
+        journal.name = name;
+        return journal.view(compactionInterval);
+    }
+    
+    /**
+     *
+     * <p>Get the file of the log.</p>
+     *
+     * @return the file.
+     */
+    public File getFile() {
+        return file;
+    }
+    
+    /**
+     *
+     * <p>Get the number of times the log has been synced to the disk.</p>
+     *
+     * @return the number of syncs.
+     */
+    public synchronized long getSyncs() {
+        return syncs;
+    }
+    
+    /**
+     *
+     * <p>Sync the pending fights and close the file.</p>
+     *
+     * @throws IOException if the fights can't be synced.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this){
+            if (closed) return;
+            closed = true;
+            notifyAll();
+        }
+        try {
+            committer.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this){
+            channel.close();
+            if (failure != null) throw failure;
+        }
+    }
+    
+    /**
+     *
+     * <p>Adds a record to the buffer of the next commit.</p>
+     *
+     * @return the number of the record, to wait for it.
+     */
+    private long append(int id, int type, int round, int killer, int victim, long value) throws IOException {
+        if (closed) throw new IOException("The log is closed");
+        if (pending.remaining() < RECORD_SIZE){
+            ByteBuffer bigger = ByteBuffer.allocate(pending.capacity() * 2);
+            pending.flip();
+            bigger.put(pending);
+            pending = bigger;
+        }
+        pending.putInt(id).putInt(type).putInt(round).putInt(killer).putInt(victim).putLong(value);
+        return ++appended;
+    }
+    
+    /**
+     *
+     * <p>Waits until a record is synced.</p>
+     */
+    private synchronized void await(long record) throws IOException {
+        notifyAll(); // Wake up the committer
+        try {
+            while (committed < record && failure == null){
+                wait();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the log", ex);
+        }
+        if (failure != null) throw failure;
+    }
+    
+    private void commitLoop() {
+        try {
+            while (true){
+                synchronized (this){
+                    while (pending.position() == 0 && !closed){
+                        wait();
+                    }
+                    if (pending.position() == 0 && closed) return;
+                }
+                
+                // Let other battlefields join this commit
+                if (windowNanos > 0) TimeUnit.NANOSECONDS.sleep(windowNanos);
+                commit();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (IOException ex) {
+            synchronized (this){
+                failure = ex;
+                notifyAll();
+            }
+        }
+    }
+    
+    /**
+     *
+     * <p>Writes and syncs all the pending records at once, and compacts the
+     * file if it has grown too much. The buffer is swapped, so fights can
+     * keep being appended while the records are written.</p>
+     */
+    private void commit() throws IOException {
+        ByteBuffer batch;
+        long last;
+        synchronized (this){
+            batch = pending;
+            last = appended;
+            pending = ByteBuffer.allocate(batch.capacity());
+        }
+        batch.flip();
+        int records = batch.remaining() / RECORD_SIZE;
+        while (batch.hasRemaining()){
+            channel.write(batch);
+        }
+        channel.force(false);
+        
+        synchronized (this){
+            fileRecords += records;
+            committed = last;
+            syncs++;
+            notifyAll();
+            if (fileRecords > Math.max(MIN_COMPACTION_RECORDS, 4 * liveRecords())) compact();
+        }
+    }
+    
+    private long liveRecords() {
+        long live = 0;
+        for (Journal journal : journals.values()){
+            live += journal.events.size() + (journal.reset ? 1 : 0);
+        }
+        return live;
+    }
+    
+    /**
+     *
+     * <p>Rewrites the file with the live records of every journal. The
+     * records still pending are included, so they're committed too.</p>
+     */
+    private void compact() throws IOException {
+        ByteBuffer image = ByteBuffer.allocate(HEADER_SIZE + (int) liveRecords() * RECORD_SIZE);
+        image.putInt(MAGIC).putInt(VERSION);
+        for (Journal journal : journals.values()){
+            if (journal.reset){
+                image.putInt(journal.id).putInt(RESET).putInt(0).putInt((int) (journal.resetDraws >>> 32))
+                        .putInt((int) journal.resetDraws).putLong(journal.resetSeed);
+            }
+            for (FightEvent event : journal.events){
+                image.putInt(journal.id).putInt(FIGHT).putInt(event.getRound()).putInt(event.getKiller())
+                        .putInt(event.getVictim()).putLong(event.getTimestamp());
+            }
+        }
+        image.flip();
+        
+        File temporary = DurableFiles.temporary(file);
+        FileOutputStream out = new FileOutputStream(temporary);
+        try {
+            FileChannel temp = out.getChannel();
+            while (image.hasRemaining()){
+                temp.write(image);
+            }
+            temp.force(false);
+        } finally {
+            out.close();
+        }
+        channel.close();
+        DurableFiles.replace(temporary, file);
+        channel = new RandomAccessFile(file, "rw").getChannel();
+        channel.position(channel.size());
+        
+        fileRecords = liveRecords();
+        pending.clear();
+        committed = appended;
+        syncs++;
+        notifyAll();
+    }
+    
+    /**
+     *
+     * <p>Reads the records of the file into the journals, and discards an
+     * incomplete record at the end.</p>
+     */
+    private void load() throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            if (raf.length() < HEADER_SIZE){
+                raf.setLength(0);
+                raf.writeInt(MAGIC);
+                raf.writeInt(VERSION);
+                raf.getFD().sync();
+                return;
+            }
+            if (raf.readInt() != MAGIC) throw new IOException(file + " is not a group commit log");
+            int version = raf.readInt();
+            if (version != VERSION) throw new IOException("Unsupported log version: " + version);
+            fileRecords = (raf.length() - HEADER_SIZE) / RECORD_SIZE;
+            raf.setLength(HEADER_SIZE + fileRecords * RECORD_SIZE);
+        } finally {
+            raf.close();
+        }
+        
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            in.skipBytes(HEADER_SIZE);
+            for (long i = 0; i<fileRecords; i++){
+                int id = in.readInt();
+                int type = in.readInt();
+                int round = in.readInt();
+                int killer = in.readInt();
+                int victim = in.readInt();
+                long value = in.readLong();
+                
+                Journal journal = journals.get(id);
+                if (journal == null){
+                    journal = new Journal(id);
+                    journals.put(id, journal);
+                }
+                if (type == RESET){
+                    journal.events.clear();
+                    journal.fights = 0;
+                    journal.reset = true;
+                    journal.seed = journal.resetSeed = value;
+                    journal.draws = journal.resetDraws = ((long) killer << 32) | (victim & 0xFFFFFFFFL);
+                } else {
+                    journal.add(new FightEvent(round, killer, victim, value));
+                }
+            }
+        } finally {
+            in.close();
+        }
+    }
+    
+    /**
+     *
+     * <p>Events of a battlefield since its last reset.</p>
+     */
+    private class Journal {
+        private final int id;
+        private final ArrayList<FightEvent> events = new ArrayList<>();
+        private String name;
+        private long seed;
+        private long draws;
+        private boolean reset; // If there's a reset record with the seed
+        private long resetSeed;
+        private long resetDraws;
+        private long fights; // Events that drew from the random generator
+        private long lastRecord; // The last record to wait for on flush
+        private View view;
+        
+        Journal(int id) {
+            this.id = id;
+        }
+        
+        void add(FightEvent event) {
+            events.add(event);
+            if (event.getKiller() >= 0) fights++;
+        }
+        
+        View view(int compactionInterval) {
+            if (view == null || view.getCompactionInterval() != compactionInterval) view = new View(this, compactionInterval);
+            return view;
+        }
+    }
+    
+    /**
+     *
+     * <p>The {@link FightJournal} given to a battlefield. It keeps the same
+     * contract, but reads from memory and writes to the shared log.</p>
+     */
+    private class View extends FightJournal {
+        private final Journal journal;
+        
+        View(Journal journal, int compactionInterval) {
+            super(file, compactionInterval);
+            this.journal = journal;
+        }
+        
+        @Override
+        public long getSeed() {
+            synchronized (GroupCommitLog.this){
+                return journal.seed;
+            }
+        }
+        
+        @Override
+        public void setSeed(long seed) {
+            synchronized (GroupCommitLog.this){
+                journal.seed = seed;
+            }
+        }
+        
+        @Override
+        public void setDraws(long draws) {
+            synchronized (GroupCommitLog.this){
+                journal.draws = draws;
+            }
+        }
+        
+        @Override
+        public SplitMixRandom getRandom() {
+            synchronized (GroupCommitLog.this){
+                if (!journal.reset) return null;
+                return new SplitMixRandom(journal.resetSeed,
+                        journal.resetDraws + journal.fights * DRAWS_PER_FIGHT);
+            }
+        }
+        
+        @Override
+        public int getEvents() {
+            synchronized (GroupCommitLog.this){
+                return journal.events.size();
+            }
+        }
+        
+        @Override
+        public void append(FightEvent event) throws IOException {
+            synchronized (GroupCommitLog.this){
+                journal.lastRecord = GroupCommitLog.this.append(journal.id, FIGHT, event.getRound(),
+                        event.getKiller(), event.getVictim(), event.getTimestamp());
+                journal.add(event);
+            }
+        }
+        
+        @Override
+        public void flush() throws IOException {
+            long record;
+            synchronized (GroupCommitLog.this){
+                record = journal.lastRecord;
+            }
+            await(record);
+        }
+        
+        @Override
+        public int replay(Roster roster) {
+            int round = 0;
+            for (FightEvent event : readEvents()){
+                int victim = event.getVictim();
+                if (victim >= 0 && victim < roster.size()) roster.setAlive(victim, false);
+                round = event.getRound();
+            }
+            return round;
+        }
+        
+        @Override
+        public List<FightEvent> readEvents() {
+            synchronized (GroupCommitLog.this){
+                return new ArrayList<>(journal.events);
+            }
+        }
+        
+        @Override
+        public void reset() throws IOException {
+            synchronized (GroupCommitLog.this){
+                journal.lastRecord = GroupCommitLog.this.append(journal.id, RESET, 0,
+                        (int) (journal.draws >>> 32), (int) journal.draws, journal.seed);
+                journal.events.clear();
+                journal.fights = 0;
+                journal.reset = true;
+                journal.resetSeed = journal.seed;
+                journal.resetDraws = journal.draws;
+            }
+            flush();
+        }
+        
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.saespmar.warbot.twitter;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.FileImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+
+/**
+ *
+ * <p>Writes images to files with a single {@link ImageWriter} that is looked
+ * up once and reused. Images can be written in the calling thread or in a
+ * background thread of the encoder, so the caller doesn't wait for the
+ * compression.</p>
+ *
+ * @author saespmar
+ * @version 1.0
+ */
+public class ImageEncoder {
+    private final ImageWriter writer;
+    private final ImageWriteParam param;
+    private final Object writerLock = new Object(); // Only the writer is shared by the encodes
+    private ExecutorService executor; // Guarded by this
+    private volatile BattleMetrics metrics;
+    
+    /**
+     *
+     * <p>Create an encoder of JPEG images with the default quality of the
+     * writer.</p>
+     */
+    public ImageEncoder() {
+        this("jpg", -1);
+    }
+    
+    /**
+     *
+     * <p>Create an encoder.</p>
+     *
+     * @param format informal name of the format, such as jpg or png.
+     * @param quality compression quality between 0 and 1, or a negative
+     * number to use the default quality of the writer. It's ignored if the
+     * format doesn't support compression.
+     */
+    public ImageEncoder(String format, float quality) {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(format);
+        if (!writers.hasNext()) throw new IllegalArgumentException("No writer for the format " + format);
+        writer = writers.next();
+        param = writer.getDefaultWriteParam();
+        if (quality > 1) throw new IllegalArgumentException("The quality can't be greater than 1");
+        if (quality >= 0 && param.canWriteCompressed()){
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+        }
+    }
+    
+    /**
+     *
+     * <p>Write an image in the calling thread.</p>
+     *
+     * @param img the image.
+     * @param file where the image is stored.
+     * @throws IOException if the image can't be written.
+     */
+    public void write(BufferedImage img, File file) throws IOException {
+        long start = metrics != null ? System.nanoTime() : 0;
+        synchronized (writerLock){
+            file.delete(); // The stream doesn't truncate existing files
+            FileImageOutputStream out = new FileImageOutputStream(file);
+            try {
+                writer.setOutput(out);
+                writer.write(null, new IIOImage(img, null, null), param);
+            } finally {
+                writer.setOutput(null);
+                out.close();
+            }
+        }
+        BattleMetrics m = metrics;
+        if (m != null){
+            m.record(BattleMetrics.Stage.ENCODE, System.nanoTime() - start);
+            m.addImage(file.length());
+        }
+    }
+    
+    /**
+     *
+     * <p>Write an image to a stream in the calling thread.</p>
+     *
+     * @param img the image.
+     * @param out the stream, which isn't closed.
+     * @throws IOException if the image can't be written.
+     */
+    public void write(BufferedImage img, OutputStream out) throws IOException {
+        synchronized (writerLock){
+            MemoryCacheImageOutputStream stream = new MemoryCacheImageOutputStream(out);
+            try {
+                writer.setOutput(stream);
+                writer.write(null, new IIOImage(img, null, null), param);
+            } finally {
+                writer.setOutput(null);
+                stream.close(); // It writes what is left to out, without closing it
+            }
+        }
+    }
+    
+    /**
+     *
+     * <p>Set the metrics where the time spent encoding and the size of the
+     * images are measured.</p>
+     *
+     * @param metrics the metrics, or null to stop measuring.
+     */
+    public void setMetrics(BattleMetrics metrics) {
+        this.metrics = metrics;
+    }
+    
+    /**
+     *
+     * <p>Write an image in the background. The image must not be changed
+     * until the returned future is done, so images that are reused must be
+     * copied before calling this method. Images are written in the same
+     * order they are submitted. It doesn't wait for the image being
+     * written.</p>
+     *
+     * @param img the image.
+     * @param file where the image is stored.
+     * @return a future that returns the file once it's written.
+     */
+    public synchronized Future<File> submit(final BufferedImage img, final File file) {
+        if (executor == null){
+            executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "image-encoder");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return executor.submit(new Callable<File>() {
+            @Override
+            public File call() throws IOException {
+                write(img, file);
+                return file;
+            }
+        });
+    }
+    
+    /**
+     *
+     * <p>Stop the background thread once the submitted images are written.
+     * New images can still be submitted afterwards, a new thread is
+     * started.</p>
+     */
+    public synchronized void shutdown() {
+        if (executor != null){
+            executor.shutdown();
+            executor = null;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.saespmar.warbot.twitter;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *
+ * <p>Publisher that keeps the updates in memory instead of sending them
+ * anywhere. It can simulate the latency and the temporary errors of a real
+ * service, so the publishing pipeline can be tested without network
+ * access.</p>
+ *
+ * @author saespmar
+ * @version 1.0
+ */
+public class InMemoryPublisher implements Publisher {
+    private final long latencyMillis;
+    private final int failEvery;
+    private final List<String> published = new ArrayList<>();
+    private int attempts;
+    
+    /**
+     *
+     * <p>Create a publisher that never fails and doesn't wait.</p>
+     */
+    public InMemoryPublisher() {
+        this(0, 0);
+    }
+    
+    /**
+     *
+     * <p>Create a publisher that simulates a real service.</p>
+     *
+     * @param latencyMillis time spent on every attempt.
+     * @param failEvery every attempt which number is a multiple of it fails
+     * with a temporary error, or 0 to never fail.
+     */
+    public InMemoryPublisher(long latencyMillis, int failEvery) {
+        this.latencyMillis = latencyMillis;
+        this.failEvery = failEvery;
+    }
+
+    @Override
+    public void publish(String text, File media) throws PublishException {
+        if (latencyMillis > 0){
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new PublishException("Interrupted", ex, true);
+            }
+        }
+        synchronized (this){
+            attempts++;
+            if (failEvery > 0 && attempts % failEvery == 0) throw new PublishException("Simulated error", true);
+            published.add(text);
+        }
+    }
+    
+    /**
+     *
+     * <p>Get the texts of the updates published so far.</p>
+     *
+     * @return a copy of the published texts, in order.
+     */
+    public synchronized List<String> getPublished() {
+        return new ArrayList<>(published);
+    }
+    
+    /**
+     *
+     * <p>Get the number of times an update was tried, including the
+     * failures.</p>
+     *
+     * @return the number of attempts.
+     */
+    public synchronized int getAttempts() {
+        return attempts;
+    }
+}
@@ -0,0 +1,190 @@
+package com.saespmar.warbot.twitter;
+
+import java.util.Arrays;
+
+/**
+ *
+ * <p>Binary min-heap of slots with a bounded capacity, that knows where
+ * every slot is stored. Checking if a slot is in the heap takes constant
+ * time, and adding a slot, raising its key or replacing the minimum take
+ * logarithmic time on the capacity, whatever the number of slots.</p>
+ *
+ * @author saespmar
+ * @version 1.0
+ */
+class IndexedMinHeap {
+    private final int[] slots;
+    private final long[] keys;
+    private int[] position; // Position of every slot in the heap, -1 if it isn't there
+    private int size;
+    
+    /**
+     *
+     * <p>Create an empty heap.</p>
+     *
+     * @param capacity the maximum number of slots in the heap.
+     * @param universe the number of slots that can be added.
+     */
+    IndexedMinHeap(int capacity, int universe) {
+        slots = new int[capacity];
+        keys = new long[capacity];
+        position = new int[universe];
+        Arrays.fill(position, -1);
+    }
+    
+    /**
+     *
+     * <p>Create a copy of a heap, with the same slots in the same
+     * positions.</p>
+     *
+     * @param other the heap copied.
+     */
+    IndexedMinHeap(IndexedMinHeap other) {
+        slots = other.slots.clone();
+        keys = other.keys.clone();
+        position = other.position.clone();
+        size = other.size;
+    }
+    
+    int size() {
+        return size;
+    }
+    
+    int capacity() {
+        return slots.length;
+    }
+    
+    boolean contains(int slot) {
+        return position[slot] >= 0;
+    }
+    
+    /**
+     *
+     * <p>Get the lowest key, the key of the root.</p>
+     *
+     * @return the key.
+     */
+    long minKey() {
+        return keys[0];
+    }
+    
+    /**
+     *
+     * <p>Get the slot stored in a position, in no particular order.</p>
+     *
+     * @param index the position, lower than the size.
+     * @return the slot.
+     */
+    int slotAt(int index) {
+        return slots[index];
+    }
+    
+    long keyAt(int index) {
+        return keys[index];
+    }
+    
+    /**
+     *
+     * <p>Add a slot that isn't in the heap. There must be room for it.</p>
+     *
+     * @param slot the slot.
+     * @param key its key.
+     */
+    void add(int slot, long key) {
+        int i = size++;
+        place(i, slot, key);
+        siftUp(i);
+    }
+    
+    /**
+     *
+     * <p>Raise the key of a slot that is in the heap, moving it away from the
+     * root.</p>
+     *
+     * @param slot the slot.
+     * @param key the new key, not lower than the current one.
+     */
+    void increase(int slot, long key) {
+        int i = position[slot];
+        keys[i] = key;
+        siftDown(i);
+    }
+    
+    /**
+     *
+     * <p>Take the root out of the heap and put a slot in its place.</p>
+     *
+     * @param slot a slot that isn't in the heap.
+     * @param key its key, not lower than the key of the root.
+     */
+    void replaceMin(int slot, long key) {
+        position[slots[0]] = -1;
+        place(0, slot, key);
+        siftDown(0);
+    }
+    
+    /**
+     *
+     * <p>Remove every slot and set how many slots can be added from now
+     * on.</p>
+     *
+     * @param universe the number of slots.
+     */
+    void clear(int universe) {
+        if (position.length == universe){
+            for (int i = 0; i<size; i++){
+                position[slots[i]] = -1;
+            }
+        } else {
+            position = new int[universe];
+            Arrays.fill(position, -1);
+        }
+        size = 0;
+    }
+    
+    /**
+     *
+     * <p>Allow more slots to be added, keeping the heap.</p>
+     *
+     * @param universe the new number of slots, not lower than the current
+     * one.
+     */
+    void grow(int universe) {
+        int old = position.length;
+        if (universe <= old) return;
+        position = Arrays.copyOf(position, universe);
+        Arrays.fill(position, old, universe, -1);
+    }
+    
+    private void siftUp(int i) {
+        int slot = slots[i];
+        long key = keys[i];
+        while (i > 0){
+            int parent = (i - 1) >>> 1;
+            if (keys[parent] <= key) break;
+            place(i, slots[parent], keys[parent]);
+            i = parent;
+        }
+        place(i, slot, key);
+    }
+    
+    private void siftDown(int i) {
+        int slot = slots[i];
+        long key = keys[i];
+        int half = size >>> 1;
+        while (i < half){
+            int child = 2 * i + 1;
+            if (child + 1 < size && keys[child + 1] < keys[child]) child++;
+            if (key <= keys[child]) break;
+            place(i, slots[child], keys[child]);
+            i = child;
+        }
+        place(i, slot, key);
+    }
+    
+    private void place(int i, int slot, long key) {
+        slots[i] = slot;
+        keys[i] = key;
+        position[slot] = i;
+    }
+}
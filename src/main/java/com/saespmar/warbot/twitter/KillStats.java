@@ -0,0 +1,231 @@
+package com.saespmar.warbot.twitter;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ *
+ * <p>Statistics of a game kept up to date as the fights happen: the kills of
+ * every participant, the round where it died, and a leaderboard with the
+ * participants with the most kills. Ties go to whoever got there first.</p>
+ *
+ * <p>The leaderboard is an {@link IndexedMinHeap} with the weakest leader
+ * at the root, so a kill takes logarithmic time on the size of the
+ * leaderboard and reading it never goes through the roster. The statistics
+ * are set with {@link Battlefield#setStats(KillStats) setStats}, and they
+ * follow the participants of that battlefield from then on. They start
+ * again when the list is read again or replaced.</p>
+ *
+ * @author saespmar
+ * @version 1.0
+ */
+public class KillStats {
+    private int[] kills = new int[0];
+    private int[] deathRound = new int[0]; // -1 while alive
+    private int[] lastKill = new int[0]; // Order of the last kill of every slot
+    private int sequence;
+    private final IndexedMinHeap leaders;
+    private int[] ranking; // Leaders sorted, built when they're read
+    
+    /**
+     *
+     * <p>Create the statistics with a leaderboard of 10 participants.</p>
+     */
+    public KillStats() {
+        this(10);
+    }
+    
+    /**
+     *
+     * <p>Create the statistics.</p>
+     *
+     * @param leaderboardSize the number of participants in the
+     * leaderboard.
+     */
+    public KillStats(int leaderboardSize) {
+        if (leaderboardSize < 1) throw new IllegalArgumentException("The leaderboard must have at least one participant");
+        leaders = new IndexedMinHeap(leaderboardSize, 0);
+    }
+    
+    /**
+     *
+     * <p>Create a copy of some statistics, which doesn't follow the
+     * battlefield. Only the counters are read, so the copy can be made
+     * while other threads read the statistics too.</p>
+     *
+     * @param other the statistics copied.
+     */
+    KillStats(KillStats other) {
+        kills = other.kills.clone();
+        deathRound = other.deathRound.clone();
+        lastKill = other.lastKill.clone();
+        sequence = other.sequence;
+        leaders = new IndexedMinHeap(other.leaders);
+    }
+    
+    /**
+     *
+     * <p>Get the maximum number of participants in the leaderboard.</p>
+     *
+     * @return the size of the leaderboard.
+     */
+    public int getLeaderboardSize() {
+        return leaders.capacity();
+    }
+    
+    /**
+     *
+     * <p>Get the kills of a participant.</p>
+     *
+     * @param slot position of the participant in the list.
+     * @return the participants it killed in a fight.
+     */
+    public int getKills(int slot) {
+        return kills[slot];
+    }
+    
+    /**
+     *
+     * <p>Get the round where a participant died. Participants killed
+     * outside of a fight died in the round of the last fight.</p>
+     *
+     * @param slot position of the participant in the list.
+     * @return the round, or -1 if it's alive or died before the statistics
+     * were set.
+     */
+    public int getDeathRound(int slot) {
+        return deathRound[slot];
+    }
+    
+    /**
+     *
+     * <p>Get the leaderboard. Only participants with at least one kill are
+     * in it.</p>
+     *
+     * @return the slots of the leaders, with the most kills first.
+     */
+    public int[] getLeaders() {
+        if (ranking == null){
+            
+            // Insertion sort, the leaderboard is small
+            int count = leaders.size();
+            int[] sorted = new int[count];
+            long[] keys = new long[count];
+            for (int i = 0; i<count; i++){
+                int slot = leaders.slotAt(i);
+                long key = leaders.keyAt(i);
+                int j = i;
+                while (j > 0 && keys[j - 1] < key){
+                    sorted[j] = sorted[j - 1];
+                    keys[j] = keys[j - 1];
+                    j--;
+                }
+                sorted[j] = slot;
+                keys[j] = key;
+            }
+            ranking = sorted;
+        }
+        return ranking.clone();
+    }
+    
+    /**
+     *
+     * <p>Binds the statistics to a roster, with no kills and nobody dead
+     * yet.</p>
+     */
+    void reset(Roster roster) {
+        int size = roster.size();
+        kills = new int[size];
+        lastKill = new int[size];
+        deathRound = new int[size];
+        Arrays.fill(deathRound, -1);
+        sequence = 0;
+        leaders.clear(size);
+        ranking = null;
+    }
+    
+    /**
+     *
+     * <p>Makes room for participants added at the end of the list.</p>
+     */
+    void grow(int size) {
+        int old = kills.length;
+        if (size <= old) return;
+        kills = Arrays.copyOf(kills, size);
+        lastKill = Arrays.copyOf(lastKill, size);
+        deathRound = Arrays.copyOf(deathRound, size);
+        Arrays.fill(deathRound, old, size, -1);
+        leaders.grow(size);
+    }
+    
+    /**
+     *
+     * <p>Drops the participants removed from the list, moving the ones after
+     * them like the roster does, and builds the leaderboard again.</p>
+     */
+    void remove(BitSet removed) {
+        int kept = 0;
+        for (int slot = 0; slot<kills.length; slot++){
+            if (removed.get(slot)) continue;
+            kills[kept] = kills[slot];
+            lastKill[kept] = lastKill[slot];
+            deathRound[kept] = deathRound[slot];
+            kept++;
+        }
+        kills = Arrays.copyOf(kills, kept);
+        lastKill = Arrays.copyOf(lastKill, kept);
+        deathRound = Arrays.copyOf(deathRound, kept);
+        leaders.clear(kept);
+        for (int slot = 0; slot<kept; slot++){
+            if (kills[slot] > 0) offer(slot);
+        }
+        ranking = null;
+    }
+    
+    /**
+     *
+     * <p>Records a death, and the kill if there's a killer.</p>
+     *
+     * @param killer the slot of the killer, or -1 if it was killed outside
+     * of a fight.
+     */
+    void kill(int killer, int victim, int round) {
+        deathRound[victim] = round;
+        if (killer < 0) return;
+        kills[killer]++;
+        lastKill[killer] = ++sequence;
+        offer(killer);
+    }
+    
+    void revive(int slot) {
+        deathRound[slot] = -1;
+    }
+    
+    /**
+     *
+     * <p>Puts a participant whose kills went up in the leaderboard, if it's
+     * better than the weakest leader. Kills only go up one by one, so anyone
+     * left out is never better than the leaders.</p>
+     */
+    private void offer(int slot) {
+        long key = key(slot);
+        if (leaders.contains(slot)){
+            leaders.increase(slot, key);
+        } else if (leaders.size() < leaders.capacity()){
+            leaders.add(slot, key);
+        } else if (key > leaders.minKey()){
+            leaders.replaceMin(slot, key);
+        } else {
+            return;
+        }
+        ranking = null;
+    }
+    
+    /**
+     *
+     * <p>More kills rank higher, and then the earliest to get them.</p>
+     */
+    private long key(int slot) {
+        return ((long) kills[slot] << 32) - lastKill[slot];
+    }
+}
@@ -0,0 +1,132 @@
+package com.saespmar.warbot.twitter;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ *
+ * <p>Histogram of durations with a bucket for every power of 2
+ * nanoseconds. Recording a value takes a few atomic increments and no
+ * allocation, so it can be used in the hot paths and by several threads at
+ * once. Percentiles are approximated by the upper bound of their bucket, so
+ * they are at most twice the real value.</p>
+ *
+ * @author saespmar
+ * @version 1.0
+ */
+public class LatencyHistogram {
+    private static final int BUCKETS = 64;
+    
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+    
+    /**
+     *
+     * <p>Record a duration.</p>
+     *
+     * @param nanos the duration, in nanoseconds. Negative values are
+     * recorded as 0.
+     */
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        buckets.incrementAndGet(bucket(nanos));
+        count.incrementAndGet();
+        sum.addAndGet(nanos);
+        long current = max.get();
+        while (nanos > current && !max.compareAndSet(current, nanos)){
+            current = max.get();
+        }
+    }
+    
+    /**
+     *
+     * <p>Get the number of durations recorded.</p>
+     *
+     * @return the number of durations.
+     */
+    public long getCount() {
+        return count.get();
+    }
+    
+    /**
+     *
+     * <p>Get the sum of the durations recorded.</p>
+     *
+     * @return the total time, in nanoseconds.
+     */
+    public long getSum() {
+        return sum.get();
+    }
+    
+    /**
+     *
+     * <p>Get the mean of the durations recorded.</p>
+     *
+     * @return the mean, in nanoseconds, or 0 if nothing was recorded.
+     */
+    public double getMean() {
+        long n = count.get();
+        return n == 0 ? 0 : (double) sum.get() / n;
+    }
+    
+    /**
+     *
+     * <p>Get the longest duration recorded.</p>
+     *
+     * @return the maximum, in nanoseconds.
+     */
+    public long getMax() {
+        return max.get();
+    }
+    
+    /**
+     *
+     * <p>Get an approximation of a percentile of the durations.</p>
+     *
+     * @param percentile the percentile, between 0 and 100.
+     * @return the upper bound of the bucket that holds the percentile, in
+     * nanoseconds, or 0 if nothing was recorded.
+     */
+    public long getPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) throw new IllegalArgumentException("The percentile must be between 0 and 100");
+        long n = 0;
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i<BUCKETS; i++){
+            snapshot[i] = buckets.get(i);
+            n += snapshot[i];
+        }
+        if (n == 0) return 0;
+        
+        long rank = Math.max(1, (long) Math.ceil(n * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i<BUCKETS; i++){
+            seen += snapshot[i];
+            if (seen >= rank) return Math.min(upperBound(i), max.get());
+        }
+        return max.get();
+    }
+    
+    /**
+     *
+     * <p>Discard all the durations recorded.</p>
+     */
+    public void reset() {
+        for (int i = 0; i<BUCKETS; i++){
+            buckets.set(i, 0);
+        }
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+    
+    // Bucket i holds the values from 2^(i-1) to 2^i - 1, and bucket 0 holds 0
+    private static int bucket(long nanos) {
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(nanos));
+    }
+    
+    private static long upperBound(int bucket) {
+        return bucket >= 63 ? Long.MAX_VALUE : (1L << bucket) - 1;
+    }
+}
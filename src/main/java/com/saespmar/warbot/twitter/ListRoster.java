@@ -0,0 +1,79 @@
+package com.saespmar.warbot.twitter;
+
+import java.util.ArrayList;
+
+/**
+ *
+ * <p>Roster that keeps every participant as a {@link Participant} object
+ * inside an ArrayList.</p>
+ *
+ * @author saespmar
+ * @version 1.0
+ */
+public class ListRoster implements Roster {
+    private ArrayList<Participant> participants;
+    
+    /**
+     *
+     * <p>Create an empty roster.</p>
+     */
+    public ListRoster() {
+        this(new ArrayList<Participant>());
+    }
+    
+    /**
+     *
+     * <p>Create a roster backed by an existing list. The list isn't copied,
+     * so changes in the list are visible in the roster and vice versa.</p>
+     *
+     * @param participants the list of participants.
+     */
+    public ListRoster(ArrayList<Participant> participants) {
+        this.participants = participants;
+    }
+
+    @Override
+    public int size() {
+        return participants.size();
+    }
+
+    @Override
+    public String getName(int slot) {
+        return participants.get(slot).getName();
+    }
+
+    @Override
+    public void setName(int slot, String name) {
+        participants.get(slot).setName(name);
+    }
+
+    @Override
+    public boolean isAlive(int slot) {
+        return participants.get(slot).isAlive();
+    }
+
+    @Override
+    public void setAlive(int slot, boolean alive) {
+        participants.get(slot).setAlive(alive);
+    }
+
+    @Override
+    public void add(String name, boolean alive) {
+        participants.add(new Participant(name, alive));
+    }
+
+    @Override
+    public void clear() {
+        participants = new ArrayList<>(); // The old list may still be used by someone else
+    }
+
+    @Override
+    public Participant get(int slot) {
+        return participants.get(slot);
+    }
+
+    @Override
+    public ArrayList<Participant> asList() {
+        return participants;
+    }
+}
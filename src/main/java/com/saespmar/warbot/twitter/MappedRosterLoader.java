@@ -0,0 +1,144 @@
+package com.saespmar.warbot.twitter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ *
+ * <p>Reads a list of participants by mapping the file in memory. The lines
+ * are parsed straight from the mapped bytes and the names are copied as
+ * UTF-8 into a {@link ColumnarRoster}, so no String is created until a name
+ * is requested. Big files are mapped in windows, so they don't need a
+ * single mapping, but the names are copied into the arena of the roster,
+ * which holds up to 2 GB of names: bigger lists can't be loaded.</p>
+ *
+ * <p>The format is the same one read by
+ * {@link Battlefield#updateList() Battlefield.updateList}: one participant
+ * per line, dead participants starting with a #, and blank lines ignored.
+ * Lines can end with \n, \r or both, like the ones read by a
+ * {@link java.io.BufferedReader}. The file must be encoded in UTF-8.</p>
+ *
+ * @author saespmar
+ * @version 1.0
+ */
+public class MappedRosterLoader {
+    private static final int DEFAULT_WINDOW = 256 * 1024 * 1024;
+    
+    private final int window;
+    private byte[] name = new byte[256];
+    
+    /**
+     *
+     * <p>Create a loader which maps up to 256 MB of the file at a time.</p>
+     */
+    public MappedRosterLoader() {
+        this(DEFAULT_WINDOW);
+    }
+    
+    /**
+     *
+     * <p>Create a loader.</p>
+     *
+     * @param window maximum number of bytes of the file mapped at a time.
+     * Lines longer than this are mapped in a bigger window.
+     */
+    public MappedRosterLoader(int window) {
+        if (window < 1) throw new IllegalArgumentException("The window must be positive");
+        this.window = window;
+    }
+    
+    /**
+     *
+     * <p>Add all the participants of a file at the end of a roster.</p>
+     *
+     * @param file the list of participants.
+     * @param roster where the participants are added.
+     * @throws IOException if the file can't be read.
+     * @throws IllegalStateException if the names don't fit in the 2 GB of
+     * the arena of the roster.
+     */
+    public void load(File file, ColumnarRoster roster) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            long length = channel.size();
+            long position = 0;
+            int size = window;
+            while (position < length){
+                int mapped = (int) Math.min(size, length - position);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, mapped);
+                boolean last = position + mapped == length;
+                int consumed = parse(buffer, mapped, last, roster);
+                
+                if (consumed == 0){
+                    
+                    // A single line doesn't fit in the window
+                    if (size == Integer.MAX_VALUE) throw new IOException("Line too long in " + file);
+                    size = (int) Math.min((long) size * 2, Integer.MAX_VALUE);
+                } else {
+                    position += consumed;
+                    size = window;
+                }
+            }
+        } finally {
+            raf.close();
+        }
+    }
+    
+    /**
+     *
+     * <p>Parses all the complete lines of a window. If it's the last window
+     * of the file, the last line doesn't need a line break.</p>
+     *
+     * @return the number of bytes parsed.
+     */
+    private int parse(MappedByteBuffer buffer, int limit, boolean last, ColumnarRoster roster) {
+        int lineStart = 0;
+        for (int i = 0; i<limit; i++){
+            byte b = buffer.get(i);
+            if (b == '\n' || b == '\r'){ // A \r\n leaves a blank line in the middle, which is skipped
+                addLine(buffer, lineStart, i, roster);
+                lineStart = i + 1;
+            }
+        }
+        if (last && lineStart < limit){
+            addLine(buffer, lineStart, limit, roster);
+            lineStart = limit;
+        }
+        return lineStart;
+    }
+    
+    /**
+     *
+     * <p>Adds a participant from the bytes between start (inclusive) and end
+     * (exclusive), unless the line is blank.</p>
+     */
+    private void addLine(MappedByteBuffer buffer, int start, int end, ColumnarRoster roster) {
+        
+        // Same as String.trim(): remove control characters and spaces
+        while (start < end && isBlank(buffer.get(start))) start++;
+        while (end > start && isBlank(buffer.get(end - 1))) end--;
+        if (start == end) return;
+        
+        // A # at the beginning means the participant is dead
+        boolean alive = true;
+        if (buffer.get(start) == '#'){
+            alive = false;
+            start++;
+            while (start < end && isBlank(buffer.get(start))) start++;
+        }
+        
+        int length = end - start;
+        if (length > name.length) name = new byte[Math.max(length, name.length * 2)];
+        buffer.position(start);
+        buffer.get(name, 0, length);
+        roster.add(name, 0, length, alive);
+    }
+    
+    private static boolean isBlank(byte b) {
+        return (b & 0xff) <= ' ';
+    }
+}
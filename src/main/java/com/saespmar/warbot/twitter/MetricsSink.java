@@ -0,0 +1,34 @@
+package com.saespmar.warbot.twitter;
+
+/**
+ *
+ * <p>Receives the measures of a battlefield as they are taken, to send them
+ * to an external monitoring system. The methods are called in the thread
+ * that took the measure, usually in the hot paths, so they should return
+ * quickly.</p>
+ *
+ * @author saespmar
+ * @version 1.0
+ */
+public interface MetricsSink {
+    
+    /**
+     *
+     * <p>Called when a stage of a battlefield finishes.</p>
+     *
+     * @param battlefield the name of the battlefield.
+     * @param stage the stage.
+     * @param nanos the time spent, in nanoseconds.
+     */
+    void latency(String battlefield, BattleMetrics.Stage stage, long nanos);
+    
+    /**
+     *
+     * <p>Called when a counter of a battlefield increases.</p>
+     *
+     * @param battlefield the name of the battlefield.
+     * @param counter the name of the counter.
+     * @param delta the increase.
+     */
+    void counter(String battlefield, String counter, long delta);
+}
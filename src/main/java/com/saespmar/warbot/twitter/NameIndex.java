@@ -0,0 +1,73 @@
+package com.saespmar.warbot.twitter;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ *
+ * <p>Index from the name of a participant to its slots in a roster.
+ * Repeated names keep all their slots, in the order they were added.</p>
+ *
+ * @author saespmar
+ * @version 1.0
+ */
+class NameIndex {
+    private static final int[] NONE = new int[0];
+    
+    private final HashMap<String, int[]> slots;
+    
+    /**
+     *
+     * <p>Index all the participants of a roster.</p>
+     *
+     * @param roster the roster.
+     */
+    NameIndex(Roster roster) {
+        slots = new HashMap<>(Math.max(16, roster.size() * 4 / 3 + 1));
+        for (int i = 0; i<roster.size(); i++){
+            add(roster.getName(i), i);
+        }
+    }
+    
+    /**
+     *
+     * <p>Get the slots of the participants with a name.</p>
+     *
+     * @param name the name.
+     * @return the slots, or an empty array if there's none. It must not be
+     * changed.
+     */
+    int[] get(String name) {
+        int[] result = slots.get(name);
+        return result == null ? NONE : result;
+    }
+    
+    void add(String name, int slot) {
+        int[] current = slots.get(name);
+        if (current == null){
+            slots.put(name, new int[]{slot});
+        } else {
+            int[] bigger = Arrays.copyOf(current, current.length + 1);
+            bigger[current.length] = slot;
+            slots.put(name, bigger);
+        }
+    }
+    
+    void remove(String name, int slot) {
+        int[] current = slots.get(name);
+        if (current == null) return;
+        for (int i = 0; i<current.length; i++){
+            if (current[i] == slot){
+                if (current.length == 1){
+                    slots.remove(name);
+                } else {
+                    int[] smaller = new int[current.length - 1];
+                    System.arraycopy(current, 0, smaller, 0, i);
+                    System.arraycopy(current, i + 1, smaller, i, current.length - i - 1);
+                    slots.put(name, smaller);
+                }
+                return;
+            }
+        }
+    }
+}
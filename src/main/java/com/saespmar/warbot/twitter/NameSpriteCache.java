@@ -0,0 +1,154 @@
+package com.saespmar.warbot.twitter;
+
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ *
+ * <p>Cache of pre-rendered cells of the table, so a name that was already
+ * drawn with the same status is copied instead of drawn again. The least
+ * recently used cells are discarded when the cache is full. A cache can be
+ * shared by several renderers.</p>
+ *
+ * @author saespmar
+ * @version 1.0
+ */
+public class NameSpriteCache {
+    private final int maxEntries;
+    private final LinkedHashMap<Key, BufferedImage> sprites;
+    private long hits;
+    private long misses;
+    private long evictions;
+    
+    /**
+     *
+     * <p>Create a cache. Every cell takes around 20 KB.</p>
+     *
+     * @param maxEntries maximum number of cells stored.
+     */
+    public NameSpriteCache(int maxEntries) {
+        if (maxEntries < 1) throw new IllegalArgumentException("The cache must hold at least one entry");
+        this.maxEntries = maxEntries;
+        this.sprites = new LinkedHashMap<Key, BufferedImage>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, BufferedImage> eldest) {
+                if (size() > NameSpriteCache.this.maxEntries){
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+    
+    /**
+     *
+     * <p>Get a cell from the cache.</p>
+     *
+     * @param text the text drawn in the cell.
+     * @param alive the status of the participant.
+     * @return the cell, or null if it isn't in the cache.
+     */
+    public synchronized BufferedImage get(String text, boolean alive) {
+        BufferedImage sprite = sprites.get(new Key(text, alive));
+        if (sprite == null) misses++;
+        else hits++;
+        return sprite;
+    }
+    
+    /**
+     *
+     * <p>Store a cell in the cache. The image must not be changed
+     * afterwards.</p>
+     *
+     * @param text the text drawn in the cell.
+     * @param alive the status of the participant.
+     * @param sprite the image of the cell.
+     */
+    public synchronized void put(String text, boolean alive, BufferedImage sprite) {
+        sprites.put(new Key(text, alive), sprite);
+    }
+    
+    /**
+     *
+     * <p>Remove all the cells from the cache. The counters aren't
+     * reset.</p>
+     */
+    public synchronized void clear() {
+        sprites.clear();
+    }
+    
+    /**
+     *
+     * <p>Get the maximum number of cells stored.</p>
+     *
+     * @return the capacity of the cache.
+     */
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+    
+    /**
+     *
+     * <p>Get the number of cells stored.</p>
+     *
+     * @return the number of entries in the cache.
+     */
+    public synchronized int size() {
+        return sprites.size();
+    }
+    
+    /**
+     *
+     * <p>Get the number of times a requested cell was in the cache.</p>
+     *
+     * @return the number of hits.
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+    
+    /**
+     *
+     * <p>Get the number of times a requested cell wasn't in the cache.</p>
+     *
+     * @return the number of misses.
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+    
+    /**
+     *
+     * <p>Get the number of cells discarded to make room for new ones.</p>
+     *
+     * @return the number of evictions.
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+    
+    private static class Key {
+        private final String text;
+        private final boolean alive;
+
+        Key(String text, boolean alive) {
+            this.text = text;
+            this.alive = alive;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * text.hashCode() + (alive ? 1 : 0);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) return false;
+            Key other = (Key) obj;
+            return alive == other.alive && Objects.equals(text, other.text);
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.saespmar.warbot.twitter;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ *
+ * <p>Draws the table of participants split in several images (pages) with a
+ * fixed number of participants each, so very big rosters don't end up in a
+ * single huge image. The pages are drawn in parallel and written by an
+ * {@link ImageEncoder}, and the pages without changes since the last call
+ * aren't drawn again.</p>
+ *
+ * <p>The pages are stored as page[number].jpg, starting at page1.jpg.</p>
+ *
+ * @author saespmar
+ * @version 1.0
+ */
+public class PagedTableRenderer {
+    private static final ForkJoinPool SHARED_POOL = new ForkJoinPool(); // Its threads are only started when needed
+    
+    private final int pageSize;
+    private final ForkJoinPool pool;
+    private ImageEncoder encoder;
+    private NameSpriteCache spriteCache;
+    
+    // Pages of the last call
+    private int size = -1;
+    private String picturePath;
+    private final ArrayList<TableRenderer> pages = new ArrayList<>();
+    private final BitSet dirtyPages = new BitSet();
+    
+    /**
+     *
+     * <p>Create a renderer with pages of 100 participants (4 columns of 25)
+     * and a pool of threads shared by all the renderers created this
+     * way.</p>
+     */
+    public PagedTableRenderer() {
+        this(100, SHARED_POOL);
+    }
+    
+    /**
+     *
+     * <p>Create a renderer.</p>
+     *
+     * @param pageSize number of participants in every page.
+     * @param pool threads used to draw the pages.
+     */
+    public PagedTableRenderer(int pageSize, ForkJoinPool pool) {
+        if (pageSize < 1) throw new IllegalArgumentException("The page size must be positive");
+        this.pageSize = pageSize;
+        this.pool = pool;
+    }
+    
+    /**
+     *
+     * <p>Get the number of participants in every page.</p>
+     *
+     * @return the size of the pages.
+     */
+    public int getPageSize() {
+        return pageSize;
+    }
+    
+    /**
+     *
+     * <p>Get the encoder that writes the pages.</p>
+     *
+     * @return the encoder. By default, a JPEG encoder with the default
+     * quality.
+     */
+    public ImageEncoder getEncoder() {
+        if (encoder == null) encoder = new ImageEncoder();
+        return encoder;
+    }
+    
+    /**
+     *
+     * <p>Set the encoder that writes the pages, such as the one of the
+     * battlefield. The pages must still be JPEG images.</p>
+     *
+     * @param encoder the encoder.
+     */
+    public void setEncoder(ImageEncoder encoder) {
+        this.encoder = encoder;
+    }
+    
+    /**
+     *
+     * <p>Get the cache of pre-rendered cells shared by all the pages.</p>
+     *
+     * @return the cache, or null if every name is drawn.
+     */
+    public NameSpriteCache getSpriteCache() {
+        return spriteCache;
+    }
+    
+    /**
+     *
+     * <p>Set a cache of pre-rendered cells shared by all the pages.</p>
+     *
+     * @param spriteCache the cache, or null to draw every name.
+     */
+    public void setSpriteCache(NameSpriteCache spriteCache) {
+        this.spriteCache = spriteCache;
+        for (TableRenderer page : pages){
+            page.setSpriteCache(spriteCache);
+        }
+    }
+    
+    /**
+     *
+     * <p>Mark the cell of a participant as changed, so its page is drawn
+     * again in the next call.</p>
+     *
+     * @param slot position of the participant in the roster.
+     */
+    public void markDirty(int slot) {
+        int page = slot / pageSize;
+        if (page < pages.size()){
+            pages.get(page).markDirty(slot - page * pageSize);
+            dirtyPages.set(page);
+        }
+    }
+    
+    /**
+     *
+     * <p>Force all the pages to be drawn from scratch in the next call.</p>
+     */
+    public void invalidate() {
+        size = -1;
+    }
+    
+    /**
+     *
+     * <p>Draw the pages of a roster that changed since the last call.</p>
+     *
+     * @param roster the participants to draw.
+     * @param picturePath directory where the pages are stored.
+     * @return all the pages of the roster, including the ones that weren't
+     * drawn again.
+     */
+    public List<File> render(final Roster roster, String picturePath) {
+        if (roster.size() != size || !picturePath.equals(this.picturePath)){
+            createPages(roster.size());
+            this.picturePath = picturePath;
+        }
+        
+        // Draw the changed pages in parallel, the encoder writes them as they're ready
+        final ImageEncoder writer = getEncoder();
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = dirtyPages.nextSetBit(0); i >= 0; i = dirtyPages.nextSetBit(i + 1)){
+            final int page = i;
+            final Roster range = new RosterRange(roster, page * pageSize, Math.min(pageSize, size - page * pageSize));
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() throws IOException {
+                    BufferedImage img = pages.get(page).render(range);
+                    writer.write(img, pageFile(page));
+                    return null;
+                }
+            });
+        }
+        dirtyPages.clear();
+        for (Future<Void> result : pool.invokeAll(tasks)){
+            try {
+                result.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException ex) {
+                ex.printStackTrace();
+            }
+        }
+        
+        List<File> files = new ArrayList<>(pages.size());
+        for (int i = 0; i<pages.size(); i++){
+            files.add(pageFile(i));
+        }
+        return files;
+    }
+    
+    /**
+     *
+     * <p>Creates an incremental renderer for every page and marks all of them
+     * as changed.</p>
+     */
+    private void createPages(int size) {
+        this.size = size;
+        int count = (size + pageSize - 1) / pageSize;
+        pages.clear();
+        for (int i = 0; i<count; i++){
+            TableRenderer page = new TableRenderer(true);
+            page.setSpriteCache(spriteCache);
+            pages.add(page);
+        }
+        dirtyPages.clear();
+        dirtyPages.set(0, count);
+    }
+    
+    private File pageFile(int page) {
+        return new File(picturePath + "/page" + (page + 1) + ".jpg");
+    }
+}
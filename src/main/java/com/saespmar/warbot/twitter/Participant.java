@@ -79,8 +79,8 @@ public class Participant {
     @Override
     public int hashCode() {
         int hash = 7;
-        hash = 97 * hash + Objects.hashCode(this.name);
-        hash = 97 * hash + (this.alive ? 1 : 0);
+        hash = 97 * hash + Objects.hashCode(getName());
+        hash = 97 * hash + (isAlive() ? 1 : 0);
         return hash;
     }
 
@@ -92,14 +92,14 @@ public class Participant {
         if (obj == null) {
             return false;
         }
-        if (getClass() != obj.getClass()) {
+        if (!(obj instanceof Participant)) {
             return false;
         }
         final Participant other = (Participant) obj;
-        if (this.alive != other.alive) {
+        if (isAlive() != other.isAlive()) {
             return false;
         }
-        if (!Objects.equals(this.name, other.name)) {
+        if (!Objects.equals(getName(), other.getName())) {
             return false;
         }
         return true;
@@ -0,0 +1,215 @@
+package com.saespmar.warbot.twitter;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ *
+ * <p>Writes {@link RasterImage raster images} as 24-bit PNG files with the
+ * {@link Deflater} of the JDK, without using AWT nor ImageIO. Like the
+ * {@link ImageEncoder}, images can be written in the calling thread or in
+ * a background thread of the encoder.</p>
+ *
+ * <p>Rows are filtered with the difference to the pixel on the left, so
+ * the long runs of the same color in a table compress to almost
+ * nothing.</p>
+ *
+ * @author saespmar
+ * @version 1.0
+ */
+public class PngEncoder {
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+    private static final int FILTER_SUB = 1;
+    
+    private final Deflater deflater;
+    private final CRC32 crc = new CRC32();
+    private final Object writerLock = new Object(); // Only the deflater and the CRC are shared by the encodes
+    private ExecutorService executor; // Guarded by this
+    private volatile BattleMetrics metrics;
+    
+    /**
+     *
+     * <p>Create an encoder with compression level 3, which takes as long as
+     * the fastest level on a table and makes the files around a quarter
+     * smaller.</p>
+     */
+    public PngEncoder() {
+        this(3);
+    }
+    
+    /**
+     *
+     * <p>Create an encoder.</p>
+     *
+     * @param level compression level of the {@link Deflater}, from 0 to 9.
+     */
+    public PngEncoder(int level) {
+        if (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION) throw new IllegalArgumentException("The level must be between 0 and 9");
+        deflater = new Deflater(level);
+    }
+    
+    /**
+     *
+     * <p>Write an image in the calling thread.</p>
+     *
+     * @param img the image.
+     * @param file where the image is stored.
+     * @throws IOException if the image can't be written.
+     */
+    public void write(RasterImage img, File file) throws IOException {
+        long start = metrics != null ? System.nanoTime() : 0;
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+        try {
+            write(img, out);
+        } finally {
+            out.close();
+        }
+        BattleMetrics m = metrics;
+        if (m != null){
+            m.record(BattleMetrics.Stage.ENCODE, System.nanoTime() - start);
+            m.addImage(file.length());
+        }
+    }
+    
+    /**
+     *
+     * <p>Write an image to a stream in the calling thread.</p>
+     *
+     * @param img the image. It can't be empty.
+     * @param out the stream, which isn't closed.
+     * @throws IOException if the image can't be written.
+     */
+    public void write(RasterImage img, OutputStream out) throws IOException {
+        int width = img.getWidth();
+        int height = img.getHeight();
+        if (width == 0 || height == 0) throw new IllegalArgumentException("PNG images can't be empty");
+        synchronized (writerLock){
+            out.write(SIGNATURE);
+            
+            // Header: size, 8 bits per channel, RGB, default compression, filtering and no interlace
+            ByteArrayOutputStream header = new ByteArrayOutputStream(13);
+            DataOutputStream data = new DataOutputStream(header);
+            data.writeInt(width);
+            data.writeInt(height);
+            data.write(new byte[]{8, 2, 0, 0, 0});
+            chunk(out, "IHDR", header.toByteArray(), header.size());
+            
+            // Pixels, every row starts with its filter
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(width * height / 8 + 64);
+            deflater.reset();
+            DeflaterOutputStream zip = new DeflaterOutputStream(compressed, deflater, 64 * 1024);
+            int[] pixels = img.getPixels();
+            byte[] row = new byte[1 + width * 3];
+            row[0] = FILTER_SUB;
+            for (int y = 0; y<height; y++){
+                int previous = 0;
+                int base = y * width;
+                for (int x = 0, i = 1; x<width; x++, i += 3){
+                    int rgb = pixels[base + x];
+                    row[i] = (byte) ((rgb >> 16) - (previous >> 16));
+                    row[i + 1] = (byte) ((rgb >> 8) - (previous >> 8));
+                    row[i + 2] = (byte) (rgb - previous);
+                    previous = rgb;
+                }
+                zip.write(row);
+            }
+            zip.finish();
+            chunk(out, "IDAT", compressed.toByteArray(), compressed.size());
+            chunk(out, "IEND", new byte[0], 0);
+            out.flush();
+        }
+    }
+    
+    /**
+     *
+     * <p>Set the metrics where the time spent encoding and the size of the
+     * images are measured.</p>
+     *
+     * @param metrics the metrics, or null to stop measuring.
+     */
+    public void setMetrics(BattleMetrics metrics) {
+        this.metrics = metrics;
+    }
+    
+    /**
+     *
+     * <p>Write an image in the background. The image must not be changed
+     * until the returned future is done, so images that are reused must be
+     * copied before calling this method. Images are written in the same
+     * order they are submitted. It doesn't wait for the image being
+     * written.</p>
+     *
+     * @param img the image.
+     * @param file where the image is stored.
+     * @return a future that returns the file once it's written.
+     */
+    public synchronized Future<File> submit(final RasterImage img, final File file) {
+        if (executor == null){
+            executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "png-encoder");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return executor.submit(new Callable<File>() {
+            @Override
+            public File call() throws IOException {
+                write(img, file);
+                return file;
+            }
+        });
+    }
+    
+    /**
+     *
+     * <p>Stop the background thread once the submitted images are written.
+     * New images can still be submitted afterwards, a new thread is
+     * started.</p>
+     */
+    public synchronized void shutdown() {
+        if (executor != null){
+            executor.shutdown();
+            executor = null;
+        }
+    }
+    
+    /**
+     *
+     * <p>Writes a chunk: its length, type, data and the CRC of the type
+     * and the data.</p>
+     */
+    private void chunk(OutputStream out, String type, byte[] data, int length) throws IOException {
+        byte[] name = type.getBytes(StandardCharsets.US_ASCII);
+        writeInt(out, length);
+        out.write(name);
+        out.write(data, 0, length);
+        crc.reset();
+        crc.update(name);
+        crc.update(data, 0, length);
+        writeInt(out, (int) crc.getValue());
+    }
+    
+    private static void writeInt(OutputStream out, int value) throws IOException {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+}
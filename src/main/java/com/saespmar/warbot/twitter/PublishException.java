@@ -0,0 +1,51 @@
+package com.saespmar.warbot.twitter;
+
+/**
+ *
+ * <p>Thrown when an update can't be published. Some errors, like network
+ * problems or rate limits, are temporary and the update can be tried
+ * again.</p>
+ *
+ * @author saespmar
+ * @version 1.0
+ */
+public class PublishException extends Exception {
+    private static final long serialVersionUID = 1L;
+    
+    private final boolean retryable;
+    
+    /**
+     *
+     * <p>Create an exception.</p>
+     *
+     * @param message the description of the error.
+     * @param retryable true if publishing again may work.
+     */
+    public PublishException(String message, boolean retryable) {
+        super(message);
+        this.retryable = retryable;
+    }
+    
+    /**
+     *
+     * <p>Create an exception caused by another one.</p>
+     *
+     * @param message the description of the error.
+     * @param cause the original exception.
+     * @param retryable true if publishing again may work.
+     */
+    public PublishException(String message, Throwable cause, boolean retryable) {
+        super(message, cause);
+        this.retryable = retryable;
+    }
+    
+    /**
+     *
+     * <p>Get whether the update can be tried again.</p>
+     *
+     * @return true if the error is temporary.
+     */
+    public boolean isRetryable() {
+        return retryable;
+    }
+}
@@ -0,0 +1,23 @@
+package com.saespmar.warbot.twitter;
+
+import java.io.File;
+
+/**
+ *
+ * <p>Destination of the updates of a battle, such as a Twitter account.</p>
+ *
+ * @author saespmar
+ * @version 1.0
+ */
+public interface Publisher {
+    
+    /**
+     *
+     * <p>Publish an update.</p>
+     *
+     * @param text the text of the update.
+     * @param media an image attached to the update, or null.
+     * @throws PublishException if the update couldn't be published.
+     */
+    void publish(String text, File media) throws PublishException;
+}
@@ -0,0 +1,331 @@
+package com.saespmar.warbot.twitter;
+
+import java.io.File;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *
+ * <p>Publishes the updates of a battle in the background. The updates wait
+ * in a bounded queue, so the fights never wait for the network, and a
+ * worker thread sends them respecting a rate limit. Temporary errors are
+ * retried with an exponential backoff. An update that fails in any other
+ * way is counted as failed, and the worker goes on with the next one.</p>
+ *
+ * @author saespmar
+ * @version 1.0
+ */
+public class PublishingPipeline {
+    private static final Post POISON = new Post("", (File) null);
+    
+    private final Publisher publisher;
+    private final TokenBucket rateLimiter;
+    private final BlockingQueue<Post> queue;
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final Thread worker;
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile BattleMetrics metrics;
+    private volatile boolean shuttingDown;
+    
+    /**
+     *
+     * <p>Create a pipeline with room for 100 updates, which tries every
+     * update up to 5 times waiting from 1 second to 5 minutes between
+     * attempts.</p>
+     *
+     * @param publisher where the updates are sent.
+     * @param rateLimiter the limit of updates sent, or null for no limit.
+     */
+    public PublishingPipeline(Publisher publisher, TokenBucket rateLimiter) {
+        this(publisher, rateLimiter, 100, 5, 1000, 300000);
+    }
+    
+    /**
+     *
+     * <p>Create a pipeline.</p>
+     *
+     * @param publisher where the updates are sent.
+     * @param rateLimiter the limit of updates sent, or null for no limit.
+     * @param capacity maximum number of updates waiting.
+     * @param maxAttempts maximum number of attempts for every update.
+     * @param initialBackoffMillis time waited after the first failure. It's
+     * doubled after every other failure.
+     * @param maxBackoffMillis maximum time waited between attempts.
+     */
+    public PublishingPipeline(Publisher publisher, TokenBucket rateLimiter, int capacity,
+            int maxAttempts, long initialBackoffMillis, long maxBackoffMillis) {
+        if (maxAttempts < 1) throw new IllegalArgumentException("There must be at least one attempt");
+        this.publisher = publisher;
+        this.rateLimiter = rateLimiter;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.worker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                work();
+            }
+        }, "publisher");
+        worker.start();
+    }
+    
+    /**
+     *
+     * <p>Queue an update without waiting. If the queue is full, or the
+     * pipeline is shutting down, the update is discarded.</p>
+     *
+     * @param post the update.
+     * @return true if the update was queued.
+     */
+    public boolean offer(Post post) {
+        if (!shuttingDown && queue.offer(post) && !rejected(post)) return true;
+        dropped.incrementAndGet();
+        return false;
+    }
+    
+    /**
+     *
+     * <p>Queue an update, waiting if the queue is full.</p>
+     *
+     * @param post the update.
+     * @throws InterruptedException if the thread is interrupted while
+     * waiting.
+     * @throws IllegalStateException if the pipeline is shutting down.
+     */
+    public void put(Post post) throws InterruptedException {
+        // Wait in steps, so a shutdown doesn't leave the thread blocked
+        do {
+            if (shuttingDown) throw new IllegalStateException("The pipeline is shutting down");
+        } while (!queue.offer(post, 100, TimeUnit.MILLISECONDS));
+        if (rejected(post)) throw new IllegalStateException("The pipeline is shutting down");
+    }
+    
+    /**
+     *
+     * <p>Takes back an update queued while the pipeline started shutting
+     * down, because it could be behind the end of the queue.</p>
+     *
+     * @return true if the update was taken back.
+     */
+    private boolean rejected(Post post) {
+        return shuttingDown && queue.remove(post);
+    }
+    
+    /**
+     *
+     * <p>Stop the pipeline once the queued updates are sent. If they
+     * aren't sent in time, the worker is interrupted and the updates left
+     * are discarded. No more updates are accepted once it's called.</p>
+     *
+     * @param timeout maximum time to wait for the updates.
+     * @param unit unit of the timeout.
+     * @return true if all the updates were processed in time.
+     * @throws InterruptedException if the thread is interrupted while
+     * waiting.
+     */
+    public boolean shutdown(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        shuttingDown = true;
+        if (queue.offer(POISON, timeout, unit)){
+            TimeUnit.NANOSECONDS.timedJoin(worker, deadline - System.nanoTime());
+        }
+        if (!worker.isAlive()) return true;
+        worker.interrupt();
+        return false;
+    }
+    
+    /**
+     *
+     * <p>Set the metrics where every attempt to send an update is
+     * measured.</p>
+     *
+     * @param metrics the metrics, or null to stop measuring.
+     */
+    public void setMetrics(BattleMetrics metrics) {
+        this.metrics = metrics;
+    }
+    
+    /**
+     *
+     * <p>Get the number of updates waiting to be sent.</p>
+     *
+     * @return the size of the queue.
+     */
+    public int getPending() {
+        return queue.size();
+    }
+    
+    /**
+     *
+     * <p>Get the number of updates sent.</p>
+     *
+     * @return the number of successful updates.
+     */
+    public long getPublished() {
+        return published.get();
+    }
+    
+    /**
+     *
+     * <p>Get the number of updates given up after a permanent error, an
+     * unexpected exception or too many attempts.</p>
+     *
+     * @return the number of failed updates.
+     */
+    public long getFailed() {
+        return failed.get();
+    }
+    
+    /**
+     *
+     * <p>Get the number of attempts repeated after a temporary error.</p>
+     *
+     * @return the number of retries.
+     */
+    public long getRetries() {
+        return retries.get();
+    }
+    
+    /**
+     *
+     * <p>Get the number of updates discarded because the queue was full
+     * or the pipeline was shutting down.</p>
+     *
+     * @return the number of dropped updates.
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+    
+    private void work() {
+        try {
+            while (true){
+                Post post = queue.take();
+                if (post == POISON) return;
+                send(post);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     *
+     * <p>Sends an update, retrying the temporary errors.</p>
+     */
+    private void send(Post post) throws InterruptedException {
+        File media;
+        try {
+            media = post.getMedia();
+        } catch (ExecutionException | RuntimeException ex) {
+            ex.printStackTrace();
+            failed.incrementAndGet();
+            return;
+        }
+        
+        long backoff = initialBackoffMillis;
+        for (int attempt = 1; ; attempt++){
+            if (rateLimiter != null) rateLimiter.acquire();
+            long start = System.nanoTime();
+            try {
+                publisher.publish(post.getText(), media);
+                published.incrementAndGet();
+                measure(start);
+                return;
+            } catch (PublishException ex) {
+                measure(start);
+                if (!ex.isRetryable() || attempt >= maxAttempts){
+                    ex.printStackTrace();
+                    failed.incrementAndGet();
+                    return;
+                }
+            } catch (RuntimeException ex) {
+                // A bug in the publisher mustn't stop the worker
+                measure(start);
+                ex.printStackTrace();
+                failed.incrementAndGet();
+                return;
+            }
+            retries.incrementAndGet();
+            Thread.sleep(backoff);
+            backoff = Math.min(backoff * 2, maxBackoffMillis);
+        }
+    }
+    
+    private void measure(long start) {
+        BattleMetrics m = metrics;
+        if (m != null) m.record(BattleMetrics.Stage.PUBLISH, System.nanoTime() - start);
+    }
+    
+    /**
+     *
+     * <p>An update waiting to be published. The image can still be being
+     * written, the pipeline waits for it before sending the update.</p>
+     */
+    public static class Post {
+        private final String text;
+        private final File media;
+        private final Future<File> pendingMedia;
+        
+        /**
+         *
+         * <p>Create an update.</p>
+         *
+         * @param text the text of the update.
+         * @param media an image attached to the update, or null.
+         */
+        public Post(String text, File media) {
+            this.text = text;
+            this.media = media;
+            this.pendingMedia = null;
+        }
+        
+        /**
+         *
+         * <p>Create an update with an image that is still being written,
+         * such as the one returned by
+         * {@link Battlefield#drawTableAsync() drawTableAsync}.</p>
+         *
+         * @param text the text of the update.
+         * @param media the image attached to the update.
+         */
+        public Post(String text, Future<File> media) {
+            this.text = text;
+            this.media = null;
+            this.pendingMedia = media;
+        }
+        
+        /**
+         *
+         * <p>Get the text of the update.</p>
+         *
+         * @return the text.
+         */
+        public String getText() {
+            return text;
+        }
+        
+        /**
+         *
+         * <p>Get the image of the update, waiting until it's written.</p>
+         *
+         * @return the image, or null if there's none.
+         * @throws InterruptedException if the thread is interrupted while
+         * waiting.
+         * @throws ExecutionException if the image couldn't be written.
+         */
+        public File getMedia() throws InterruptedException, ExecutionException {
+            return pendingMedia != null ? pendingMedia.get() : media;
+        }
+    }
+}
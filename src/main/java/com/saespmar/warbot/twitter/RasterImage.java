@@ -0,0 +1,86 @@
+package com.saespmar.warbot.twitter;
+
+/**
+ *
+ * <p>Image stored as a plain array of RGB pixels, row by row, drawn by the
+ * {@link RasterTableRenderer} and written by the {@link PngEncoder} without
+ * using AWT.</p>
+ *
+ * @author saespmar
+ * @version 1.0
+ */
+public class RasterImage {
+    private final int width;
+    private final int height;
+    private final int[] pixels;
+    
+    /**
+     *
+     * <p>Create a black image.</p>
+     *
+     * @param width columns of the image.
+     * @param height rows of the image.
+     */
+    public RasterImage(int width, int height) {
+        if (width < 0 || height < 0) throw new IllegalArgumentException("The size can't be negative");
+        this.width = width;
+        this.height = height;
+        this.pixels = new int[width * height];
+    }
+    
+    /**
+     *
+     * <p>Get the width of the image.</p>
+     *
+     * @return the columns.
+     */
+    public int getWidth() {
+        return width;
+    }
+    
+    /**
+     *
+     * <p>Get the height of the image.</p>
+     *
+     * @return the rows.
+     */
+    public int getHeight() {
+        return height;
+    }
+    
+    /**
+     *
+     * <p>Get the color of a pixel.</p>
+     *
+     * @param x column of the pixel.
+     * @param y row of the pixel.
+     * @return the color as 0xRRGGBB.
+     */
+    public int getRGB(int x, int y) {
+        if (x < 0 || x >= width) throw new IndexOutOfBoundsException("Column " + x + " out of the image");
+        if (y < 0 || y >= height) throw new IndexOutOfBoundsException("Row " + y + " out of the image");
+        return pixels[y * width + x];
+    }
+    
+    /**
+     *
+     * <p>Get the pixels of the image, which can be changed directly.</p>
+     *
+     * @return the colors as 0xRRGGBB, row by row.
+     */
+    public int[] getPixels() {
+        return pixels;
+    }
+    
+    /**
+     *
+     * <p>Copy the image.</p>
+     *
+     * @return a new image with the same pixels.
+     */
+    public RasterImage copy() {
+        RasterImage copy = new RasterImage(width, height);
+        System.arraycopy(pixels, 0, copy.pixels, 0, pixels.length);
+        return copy;
+    }
+}
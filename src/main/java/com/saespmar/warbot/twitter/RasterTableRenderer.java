@@ -0,0 +1,247 @@
+package com.saespmar.warbot.twitter;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ *
+ * <p>Draws the same table as the {@link TableRenderer}, with the same
+ * layout and the same glyphs, but on a {@link RasterImage} with a
+ * {@link BitmapFont}. Nothing of AWT is loaded, which saves most of the
+ * time of a cold start when a single table is drawn, and the table can be
+ * written as PNG with a {@link PngEncoder}.</p>
+ *
+ * <p>Like the table renderer, it can work in incremental mode, painting
+ * only the cells marked as dirty on the last image, and it can show the
+ * leaderboard of the game next to the table.</p>
+ *
+ * @author saespmar
+ * @version 1.0
+ */
+public class RasterTableRenderer {
+    private static final int WHITE = 0xffffff;
+    private static final int BLACK = 0x000000;
+    private static final int RED = 0xff0000;
+    
+    private final BitmapFont font;
+    private boolean incremental;
+    private KillStats leaderboard;
+    
+    // Last image and its layout
+    private RasterImage img;
+    private int size = -1;
+    private int columns;
+    private int rows;
+    
+    // Cells changed since the last image
+    private final BitSet dirty = new BitSet();
+    private boolean invalid = true;
+    
+    /**
+     *
+     * <p>Create a renderer that draws the whole table every time.</p>
+     */
+    public RasterTableRenderer() {
+        this(false);
+    }
+    
+    /**
+     *
+     * <p>Create a renderer.</p>
+     *
+     * @param incremental true to paint only the cells that changed since the
+     * last image.
+     */
+    public RasterTableRenderer(boolean incremental) {
+        this(BitmapFont.getDefault(), incremental);
+    }
+    
+    RasterTableRenderer(BitmapFont font, boolean incremental) {
+        if (font.getHeight() != TableRenderer.CELL_HEIGHT) throw new IllegalArgumentException("The font must be as tall as a cell");
+        this.font = font;
+        this.incremental = incremental;
+    }
+    
+    /**
+     *
+     * <p>Get whether only the changed cells are painted.</p>
+     *
+     * @return true if the renderer works in incremental mode.
+     */
+    public boolean isIncremental() {
+        return incremental;
+    }
+    
+    /**
+     *
+     * <p>Set whether only the changed cells are painted.</p>
+     *
+     * @param incremental true to paint only the cells that changed since the
+     * last image.
+     */
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+        invalidate();
+    }
+    
+    /**
+     *
+     * <p>Get the statistics whose leaderboard is shown next to the
+     * table.</p>
+     *
+     * @return the statistics, or null if there's no leaderboard.
+     */
+    public KillStats getLeaderboard() {
+        return leaderboard;
+    }
+    
+    /**
+     *
+     * <p>Show the leaderboard of some statistics in a column on the right of
+     * the table, like {@link TableRenderer#setLeaderboard(KillStats) the
+     * table renderer} does.</p>
+     *
+     * @param leaderboard the statistics of the participants drawn, or null
+     * to draw only the table.
+     */
+    public void setLeaderboard(KillStats leaderboard) {
+        this.leaderboard = leaderboard;
+        invalidate();
+    }
+    
+    /**
+     *
+     * <p>Mark the cell of a participant as changed, so it's painted in the
+     * next image.</p>
+     *
+     * @param slot position of the participant in the roster.
+     */
+    public void markDirty(int slot) {
+        dirty.set(slot);
+    }
+    
+    /**
+     *
+     * <p>Force the next image to be painted from scratch. It must be called
+     * when the roster is replaced or changes without notifying the
+     * renderer.</p>
+     */
+    public void invalidate() {
+        invalid = true;
+        dirty.clear();
+    }
+    
+    /**
+     *
+     * <p>Draw the table of a roster. In incremental mode, the returned
+     * image is reused, so it must not be kept between calls.</p>
+     *
+     * @param roster the participants to draw.
+     * @return the image with the table.
+     */
+    public RasterImage render(Roster roster) {
+        if (!incremental || invalid || roster.size() != size){
+            renderAll(roster);
+        } else {
+            for (int slot = dirty.nextSetBit(0); slot >= 0; slot = dirty.nextSetBit(slot + 1)){
+                if (slot < size) drawCell(roster, slot);
+            }
+        }
+        if (leaderboard != null) drawLeaderboard(roster);
+        dirty.clear();
+        invalid = false;
+        
+        if (!incremental){
+            RasterImage result = img;
+            img = null;
+            size = -1;
+            return result;
+        }
+        return img;
+    }
+    
+    /**
+     *
+     * <p>Get the number of rows of the last table, which sets the position
+     * of every cell: the participants fill the columns one by one.</p>
+     */
+    int rows() {
+        return rows;
+    }
+    
+    /**
+     *
+     * <p>Paints every cell of the table, with the layout of the
+     * {@link TableRenderer}.</p>
+     */
+    private void renderAll(Roster roster) {
+        size = roster.size();
+        columns = size/26 + 1; // Max. 25 participants per on each column
+        rows = size/columns; // Split participants equally in all columns
+        if (columns*rows != size) rows++;
+        
+        int width = columns * TableRenderer.CELL_WIDTH;
+        int height = rows * TableRenderer.CELL_HEIGHT;
+        if (leaderboard != null){
+            width += TableRenderer.CELL_WIDTH;
+            height = Math.max(height, TableRenderer.leaderboardRows(leaderboard) * TableRenderer.CELL_HEIGHT);
+        }
+        if (img == null || img.getWidth() != width || img.getHeight() != height){
+            img = new RasterImage(width, height);
+        }
+        Arrays.fill(img.getPixels(), WHITE);
+        
+        for (int index = 0; index<size; index++){
+            drawCell(roster, index);
+        }
+    }
+    
+    /**
+     *
+     * <p>Paints the background and the name of a participant in its
+     * cell.</p>
+     */
+    private void drawCell(Roster roster, int index) {
+        int x = (index / rows) * TableRenderer.CELL_WIDTH;
+        int y = (index % rows) * TableRenderer.CELL_HEIGHT;
+        String text = roster.getName(index);
+        boolean alive = roster.isAlive(index);
+        
+        // Very long names are cut and ended with ...
+        if (text.length() > 34) text = text.substring(0, 31) + "...";
+        drawName(text, alive, x, y);
+    }
+    
+    /**
+     *
+     * <p>Paints the leaderboard in the column after the table, with the
+     * layout of the {@link TableRenderer}.</p>
+     */
+    private void drawLeaderboard(Roster roster) {
+        int x = columns * TableRenderer.CELL_WIDTH;
+        drawName(TableRenderer.LEADERBOARD_TITLE, true, x, 0);
+        int[] leaders = leaderboard.getLeaders();
+        for (int rank = 0; rank<leaderboard.getLeaderboardSize(); rank++){
+            int y = (rank + 1) * TableRenderer.CELL_HEIGHT;
+            if (rank < leaders.length && leaders[rank] < size){
+                int slot = leaders[rank];
+                drawName(TableRenderer.leaderText(rank + 1, roster.getName(slot), leaderboard.getKills(slot)), roster.isAlive(slot), x, y);
+            } else {
+                drawName("", true, x, y);
+            }
+        }
+    }
+    
+    /**
+     *
+     * <p>Paints the background and a name in a cell.</p>
+     */
+    private void drawName(String text, boolean alive, int x, int y) {
+        int[] pixels = img.getPixels();
+        int stride = img.getWidth();
+        for (int row = y; row<y + TableRenderer.CELL_HEIGHT; row++){
+            Arrays.fill(pixels, row * stride + x, row * stride + x + TableRenderer.CELL_WIDTH, WHITE);
+        }
+        font.draw(pixels, stride, text, x, y, x, x + TableRenderer.CELL_WIDTH, alive ? BLACK : RED, !alive);
+    }
+}
@@ -0,0 +1,95 @@
+package com.saespmar.warbot.twitter;
+
+import java.util.ArrayList;
+
+/**
+ *
+ * <p>Storage of the participants of a battlefield. Every participant is
+ * identified by its slot, the position it has in the list of
+ * participants.</p>
+ *
+ * @author saespmar
+ * @version 1.0
+ */
+public interface Roster {
+    
+    /**
+     *
+     * <p>Get the number of participants stored, dead or alive.</p>
+     *
+     * @return the number of participants.
+     */
+    int size();
+    
+    /**
+     *
+     * <p>Get the name of a participant.</p>
+     *
+     * @param slot position of the participant in the list.
+     * @return the String shown on screen for this participant.
+     */
+    String getName(int slot);
+    
+    /**
+     *
+     * <p>Set a new name for a participant.</p>
+     *
+     * @param slot position of the participant in the list.
+     * @param name the String shown on screen for this participant.
+     */
+    void setName(int slot, String name);
+    
+    /**
+     *
+     * <p>Get whether a participant is still fighting or not.</p>
+     *
+     * @param slot position of the participant in the list.
+     * @return false if the participant is dead, true if it's still alive.
+     */
+    boolean isAlive(int slot);
+    
+    /**
+     *
+     * <p>Set a new status for a participant.</p>
+     *
+     * @param slot position of the participant in the list.
+     * @param alive false if the participant is dead, true if it's still
+     * alive.
+     */
+    void setAlive(int slot, boolean alive);
+    
+    /**
+     *
+     * <p>Add a participant at the end of the list.</p>
+     *
+     * @param name the String shown on screen for this participant.
+     * @param alive participant status, whether is alive or not.
+     */
+    void add(String name, boolean alive);
+    
+    /**
+     *
+     * <p>Remove all the participants.</p>
+     */
+    void clear();
+    
+    /**
+     *
+     * <p>Get a participant. Changes made to the returned object are stored
+     * in the roster.</p>
+     *
+     * @param slot position of the participant in the list.
+     * @return the participant in that position.
+     */
+    Participant get(int slot);
+    
+    /**
+     *
+     * <p>Get all the participants as a list. Changes made to the status or
+     * the name of the participants in the list are stored in the roster, but
+     * adding or removing items from the list may not be.</p>
+     *
+     * @return an ArrayList with all the participants.
+     */
+    ArrayList<Participant> asList();
+}
@@ -0,0 +1,250 @@
+package com.saespmar.warbot.twitter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ *
+ * <p>Changes between two versions of a list of participants, line by line.
+ * The lines are lined up like a text diff does, with the names: lines with
+ * the same name are the same participant, even if its status changed, and
+ * a line replaced by another one in the same place is the same participant
+ * renamed. The rest of the lines of the new list are participants inserted,
+ * and the rest of the old one participants removed.</p>
+ *
+ * <p>A diff is applied to a battlefield with
+ * {@link Battlefield#applyDiff(RosterDiff) applyDiff}. Only what changed
+ * between both versions is applied, so the changes made to the
+ * battlefield since the old version, such as fights, are kept.</p>
+ *
+ * @author saespmar
+ * @version 1.0
+ */
+public class RosterDiff {
+    private static final int MAX_EDITS = 1000; // Beyond this, the rest of the lines are lined up by position
+    
+    private final Roster after;
+    private final int[] sources; // Line of the old list every line of the new one comes from, -1 if it's new
+    private final BitSet renamed = new BitSet(); // Lines of the new list
+    private final BitSet statusChanged = new BitSet(); // Lines of the new list
+    private final BitSet removed = new BitSet(); // Lines of the old list
+    private int size;
+    
+    private RosterDiff(Roster after) {
+        this.after = after;
+        this.sources = new int[after.size()];
+    }
+    
+    /**
+     *
+     * <p>Compute the changes between two lists of participants. The lines
+     * that are the same at the beginning and the end are skipped, and the
+     * rest are lined up with the algorithm of Myers, which takes time
+     * proportional to the lines times the changes.</p>
+     *
+     * @param before the old list.
+     * @param after the new list. It's kept by the diff, so it must not
+     * change until it's applied.
+     * @return the changes that turn the old list into the new one.
+     */
+    public static RosterDiff between(Roster before, Roster after) {
+        RosterDiff diff = new RosterDiff(after);
+        int n = before.size();
+        int m = after.size();
+        String[] a = new String[n];
+        String[] b = new String[m];
+        for (int i = 0; i<n; i++){
+            a[i] = before.getName(i);
+        }
+        for (int j = 0; j<m; j++){
+            b[j] = after.getName(j);
+        }
+        
+        // Same lines at both ends
+        int start = 0;
+        while (start < n && start < m && a[start].equals(b[start])){
+            start++;
+        }
+        int end = 0;
+        while (end < n - start && end < m - start && a[n - 1 - end].equals(b[m - 1 - end])){
+            end++;
+        }
+        
+        // Old line of every new line in the middle, where they differ
+        int[] matches = match(a, start, n - end, b, start, m - end);
+        for (int j = 0; j<start; j++){
+            diff.sources[j] = j;
+        }
+        for (int j = m - end; j<m; j++){
+            diff.sources[j] = j - m + n;
+        }
+        
+        // Between two matched lines, the old ones are replaced by the new ones in the same place
+        int i = start;
+        int j = start;
+        while (i < n - end || j < m - end){
+            int nextJ = j;
+            while (nextJ < m - end && matches[nextJ - start] < 0){
+                nextJ++;
+            }
+            int nextI = nextJ < m - end ? matches[nextJ - start] : n - end;
+            int paired = Math.min(nextI - i, nextJ - j);
+            for (int k = 0; k<paired; k++){
+                diff.sources[j + k] = i + k;
+            }
+            for (int k = paired; k<nextJ - j; k++){
+                diff.sources[j + k] = -1;
+            }
+            diff.removed.set(i + paired, nextI);
+            if (nextJ < m - end) diff.sources[nextJ] = nextI;
+            i = nextI + 1;
+            j = nextJ + 1;
+        }
+        
+        // Count what changed
+        diff.size = diff.removed.cardinality();
+        for (j = 0; j<m; j++){
+            int source = diff.sources[j];
+            if (source < 0){
+                diff.size++;
+                continue;
+            }
+            boolean changed = false;
+            if (!a[source].equals(b[j])){
+                diff.renamed.set(j);
+                changed = true;
+            }
+            if (before.isAlive(source) != after.isAlive(j)){
+                diff.statusChanged.set(j);
+                changed = true;
+            }
+            if (changed) diff.size++;
+        }
+        return diff;
+    }
+    
+    /**
+     *
+     * <p>Check if there are no changes.</p>
+     *
+     * @return true if both lists had the same participants.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    /**
+     *
+     * <p>Get the number of lines that changed.</p>
+     *
+     * @return the participants renamed, killed, revived, inserted or
+     * removed.
+     */
+    public int size() {
+        return size;
+    }
+    
+    Roster getAfter() {
+        return after;
+    }
+    
+    /**
+     *
+     * <p>Get the line of the old list a line of the new list comes
+     * from.</p>
+     *
+     * @param line the line of the new list.
+     * @return the line of the old list, or -1 if the participant is new.
+     */
+    int getSource(int line) {
+        return sources[line];
+    }
+    
+    boolean isRenamed(int line) {
+        return renamed.get(line);
+    }
+    
+    boolean isStatusChanged(int line) {
+        return statusChanged.get(line);
+    }
+    
+    /**
+     *
+     * <p>Get the lines of the old list that aren't in the new one.</p>
+     *
+     * @return the removed lines. The set must not be changed.
+     */
+    BitSet getRemoved() {
+        return removed;
+    }
+    
+    /**
+     *
+     * <p>Lines up the lines with the same names with the greedy algorithm of
+     * Myers. Once there are too many changes, the lines left are lined up by
+     * position, as if they were all replaced.</p>
+     *
+     * @return for every new line between bStart and bEnd, the old line with
+     * the same name, or -1. The matched old lines always go up.
+     */
+    private static int[] match(String[] a, int aStart, int aEnd, String[] b, int bStart, int bEnd) {
+        int n = aEnd - aStart;
+        int m = bEnd - bStart;
+        int[] result = new int[m];
+        Arrays.fill(result, -1);
+        int max = Math.min(n + m, MAX_EDITS);
+        
+        // Furthest old line reached on every diagonal k = x - y, for every number of edits
+        ArrayList<int[]> trace = new ArrayList<>();
+        int[] v = new int[2 * max + 3];
+        int offset = max + 1;
+        int edits = -1;
+        for (int d = 0; d<=max && edits < 0; d++){
+            trace.add(Arrays.copyOfRange(v, offset - d - 1, offset + d + 2));
+            for (int k = -d; k<=d; k += 2){
+                int x;
+                if (k == -d || (k != d && v[offset + k - 1] < v[offset + k + 1])){
+                    x = v[offset + k + 1]; // Insertion
+                } else {
+                    x = v[offset + k - 1] + 1; // Removal
+                }
+                int y = x - k;
+                while (x < n && y < m && a[aStart + x].equals(b[bStart + y])){
+                    x++;
+                    y++;
+                }
+                v[offset + k] = x;
+                if (x >= n && y >= m){
+                    edits = d;
+                    break;
+                }
+            }
+        }
+        if (edits < 0) return result;
+        
+        // Go back through the edits, keeping the lines that were the same
+        int x = n;
+        int y = m;
+        for (int d = edits; d>=0; d--){
+            int[] previous = trace.get(d); // Index k is at k + d + 1
+            int k = x - y;
+            int previousK;
+            if (k == -d || (k != d && previous[k - 1 + d + 1] < previous[k + 1 + d + 1])){
+                previousK = k + 1;
+            } else {
+                previousK = k - 1;
+            }
+            int previousX = d == 0 ? 0 : previous[previousK + d + 1];
+            int previousY = previousX - previousK;
+            while (x > previousX && y > previousY){
+                x--;
+                y--;
+                result[y] = aStart + x;
+            }
+            x = previousX;
+            y = previousY;
+        }
+        return result;
+    }
+}
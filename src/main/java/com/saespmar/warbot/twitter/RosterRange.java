@@ -0,0 +1,86 @@
+package com.saespmar.warbot.twitter;
+
+import java.util.ArrayList;
+
+/**
+ *
+ * <p>View of consecutive participants of another roster. Slot 0 of the view
+ * is the first participant of the range. Participants can't be added or
+ * removed through the view.</p>
+ *
+ * @author saespmar
+ * @version 1.0
+ */
+class RosterRange implements Roster {
+    private final Roster roster;
+    private final int offset;
+    private final int length;
+
+    /**
+     *
+     * <p>Create a view.</p>
+     *
+     * @param roster the roster with all the participants.
+     * @param offset slot of the first participant of the view.
+     * @param length number of participants in the view.
+     */
+    RosterRange(Roster roster, int offset, int length) {
+        this.roster = roster;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    @Override
+    public int size() {
+        return length;
+    }
+
+    @Override
+    public String getName(int slot) {
+        return roster.getName(toParent(slot));
+    }
+
+    @Override
+    public void setName(int slot, String name) {
+        roster.setName(toParent(slot), name);
+    }
+
+    @Override
+    public boolean isAlive(int slot) {
+        return roster.isAlive(toParent(slot));
+    }
+
+    @Override
+    public void setAlive(int slot, boolean alive) {
+        roster.setAlive(toParent(slot), alive);
+    }
+
+    @Override
+    public void add(String name, boolean alive) {
+        throw new UnsupportedOperationException("Participants can't be added to a range");
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException("Participants can't be removed from a range");
+    }
+
+    @Override
+    public Participant get(int slot) {
+        return roster.get(toParent(slot));
+    }
+
+    @Override
+    public ArrayList<Participant> asList() {
+        ArrayList<Participant> list = new ArrayList<>(length);
+        for (int i = 0; i<length; i++){
+            list.add(get(i));
+        }
+        return list;
+    }
+    
+    private int toParent(int slot) {
+        if (slot < 0 || slot >= length) throw new IndexOutOfBoundsException("Slot: " + slot + ", size: " + length);
+        return offset + slot;
+    }
+}
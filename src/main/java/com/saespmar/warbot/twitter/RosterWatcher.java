@@ -0,0 +1,209 @@
+package com.saespmar.warbot.twitter;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+
+/**
+ *
+ * <p>Watches the list of participants of a battlefield and applies the
+ * changes made by hand to it, such as late entrants or fixed names,
+ * without reading the whole list again.</p>
+ *
+ * <p>The watcher remembers the list as it was the last time it was read or
+ * written by the battlefield, and only the differences between that
+ * version and the new one are applied, line by line, so the fights played
+ * since the list was written aren't undone and every participant keeps its
+ * slot. The lists written by the battlefield itself are recognized by
+ * their size and modification time, and they aren't read again. The file
+ * is read and compared without locking the battlefield; it's only locked
+ * while the changes are applied.</p>
+ *
+ * <p>The list shouldn't be edited while there's a journal with events,
+ * since they refer to the position of the participants in the list.</p>
+ *
+ * @author saespmar
+ * @version 1.0
+ */
+public class RosterWatcher implements Closeable {
+    private static final long SETTLE_MILLIS = 100;
+    
+    private final ConcurrentBattlefield battlefield;
+    private final File file;
+    private final WatchService watchService;
+    private Roster base;
+    private int[] slots; // Slot of every line of the base, null if it's the same line
+    private Battlefield.WrittenList written; // Last list written by the battlefield
+    private Thread thread;
+    private volatile long reloads;
+    
+    /**
+     *
+     * <p>Create a watcher for the list of participants of a battlefield.
+     * The list in the file is taken as the current version, so it should
+     * be the one the battlefield read.</p>
+     *
+     * @param battlefield the battlefield.
+     * @throws IOException if the list can't be read or watched.
+     */
+    public RosterWatcher(ConcurrentBattlefield battlefield) throws IOException {
+        this.battlefield = battlefield;
+        this.file = battlefield.getBattlefield().getParticipantsFile().getAbsoluteFile();
+        this.base = read();
+        battlefield.update(new Runnable() {
+            @Override
+            public void run() {
+                RosterWatcher.this.battlefield.getBattlefield().setKeepWrittenList(true);
+            }
+        });
+        this.watchService = FileSystems.getDefault().newWatchService();
+        
+        // Editors often replace the file instead of writing it
+        file.getParentFile().toPath().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+    }
+    
+    /**
+     *
+     * <p>Start watching the file in a background thread.</p>
+     */
+    public synchronized void start() {
+        if (thread != null) return;
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                watch();
+            }
+        }, "roster-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    /**
+     *
+     * <p>Stop watching the file.</p>
+     *
+     * @throws IOException if the watch service can't be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+        battlefield.update(new Runnable() {
+            @Override
+            public void run() {
+                battlefield.getBattlefield().setKeepWrittenList(false);
+            }
+        });
+    }
+    
+    /**
+     *
+     * <p>Read the file and apply its changes since the last time. It's
+     * called by the background thread every time the file changes, but it
+     * can also be called by hand.</p>
+     *
+     * @return true if the battlefield changed.
+     * @throws IOException if the list can't be read.
+     */
+    public synchronized boolean check() throws IOException {
+        
+        // The lists written by the battlefield are the new base, in the order of the roster
+        final Battlefield.WrittenList[] taken = new Battlefield.WrittenList[1];
+        battlefield.update(new Runnable() {
+            @Override
+            public void run() {
+                taken[0] = battlefield.getBattlefield().takeWrittenList();
+            }
+        });
+        if (taken[0] != null){
+            written = taken[0];
+            base = written.roster;
+            slots = null;
+        }
+        if (written != null && written.matches(file)) return false;
+        
+        Roster current = read();
+        final RosterDiff diff = RosterDiff.between(base, current);
+        if (diff.isEmpty()){
+            base = current;
+            return false;
+        }
+        
+        final int[] oldSlots = slots;
+        final int[] newSlots = new int[current.size()];
+        final boolean[] changed = new boolean[1];
+        battlefield.update(new Runnable() {
+            @Override
+            public void run() {
+                changed[0] = battlefield.getBattlefield().applyDiff(diff, oldSlots, newSlots);
+            }
+        });
+        base = current;
+        slots = newSlots;
+        if (changed[0]) reloads++;
+        return changed[0];
+    }
+    
+    /**
+     *
+     * <p>Get the number of times the file changed the battlefield.</p>
+     *
+     * @return the number of reloads.
+     */
+    public long getReloads() {
+        return reloads;
+    }
+    
+    private void watch() {
+        Path name = file.toPath().getFileName();
+        try {
+            while (true){
+                WatchKey key = watchService.take();
+                boolean relevant = false;
+                for (WatchEvent<?> event : key.pollEvents()){
+                    if (name.equals(event.context())) relevant = true;
+                }
+                key.reset();
+                if (!relevant) continue;
+                
+                // Wait until the editor finishes writing
+                Thread.sleep(SETTLE_MILLIS);
+                WatchKey pending;
+                while ((pending = watchService.poll()) != null){
+                    pending.pollEvents();
+                    pending.reset();
+                }
+                try {
+                    check();
+                } catch (IOException ex) {
+                    ex.printStackTrace();
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException ex) {
+            // The watcher was closed
+        }
+    }
+    
+    /**
+     *
+     * <p>Reads the list, again if it changed while it was being read.</p>
+     */
+    private Roster read() throws IOException {
+        while (true){
+            long length = file.length();
+            long modified = file.lastModified();
+            ColumnarRoster roster = new ColumnarRoster();
+            new MappedRosterLoader().load(file, roster);
+            if (file.length() == length && file.lastModified() == modified) return roster;
+        }
+    }
+}
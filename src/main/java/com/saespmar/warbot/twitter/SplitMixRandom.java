@@ -0,0 +1,131 @@
+package com.saespmar.warbot.twitter;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *
+ * <p>Fast random generator (SplitMix64) that can be reproduced from its
+ * seed. Its position in the sequence is the number of values drawn, and
+ * the generator can jump to any position in constant time, so a game can be
+ * replayed or resumed from its seed alone.</p>
+ *
+ * <p>Every call to {@link #nextInt(int) nextInt(bound)} draws exactly one
+ * value. This class isn't thread-safe.</p>
+ *
+ * @author saespmar
+ * @version 1.0
+ */
+public class SplitMixRandom extends Random {
+    private static final long serialVersionUID = 1L;
+    private static final long GAMMA = 0x9e3779b97f4a7c15L;
+    private static final AtomicLong UNIQUIFIER = new AtomicLong(System.nanoTime());
+    
+    private long seed;
+    private long draws;
+    
+    /**
+     *
+     * <p>Create a generator with a seed that is different every time.</p>
+     */
+    public SplitMixRandom() {
+        this(mix(UNIQUIFIER.addAndGet(GAMMA) ^ System.nanoTime()));
+    }
+    
+    /**
+     *
+     * <p>Create a generator at the beginning of the sequence of a seed.</p>
+     *
+     * @param seed the seed.
+     */
+    public SplitMixRandom(long seed) {
+        this(seed, 0);
+    }
+    
+    /**
+     *
+     * <p>Create a generator at any position of the sequence of a seed.</p>
+     *
+     * @param seed the seed.
+     * @param draws number of values already drawn.
+     */
+    public SplitMixRandom(long seed, long draws) {
+        super(0);
+        this.seed = seed;
+        this.draws = draws;
+    }
+    
+    /**
+     *
+     * <p>Get the seed of the sequence.</p>
+     *
+     * @return the seed.
+     */
+    public long getSeed() {
+        return seed;
+    }
+    
+    /**
+     *
+     * <p>Get the position in the sequence.</p>
+     *
+     * @return the number of values drawn since the beginning.
+     */
+    public long getDraws() {
+        return draws;
+    }
+    
+    /**
+     *
+     * <p>Move to any position of the sequence.</p>
+     *
+     * @param draws number of values drawn since the beginning.
+     */
+    public void setDraws(long draws) {
+        this.draws = draws;
+    }
+
+    /**
+     *
+     * <p>Go back to the beginning of the sequence of a new seed.</p>
+     *
+     * @param seed the seed.
+     */
+    @Override
+    public void setSeed(long seed) {
+        this.seed = seed;
+        this.draws = 0;
+    }
+
+    @Override
+    public long nextLong() {
+        draws++;
+        return mix(seed + draws * GAMMA);
+    }
+
+    @Override
+    protected int next(int bits) {
+        return (int) (nextLong() >>> (64 - bits));
+    }
+
+    /**
+     *
+     * <p>Get a random number between 0 (inclusive) and a bound (exclusive).
+     * Unlike {@link Random#nextInt(int)}, it always draws a single
+     * value.</p>
+     *
+     * @param bound the upper bound, which must be positive.
+     * @return the random number.
+     */
+    @Override
+    public int nextInt(int bound) {
+        if (bound <= 0) throw new IllegalArgumentException("The bound must be positive");
+        return (int) ((nextLong() >>> 1) % bound); // The bias is below 1 in 2^32
+    }
+    
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
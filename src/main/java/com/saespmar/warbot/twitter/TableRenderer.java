@@ -0,0 +1,348 @@
+package com.saespmar.warbot.twitter;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.font.TextAttribute;
+import java.awt.image.BufferedImage;
+import java.util.BitSet;
+import java.util.Hashtable;
+
+/**
+ *
+ * <p>Draws the table with the status of all the participants of a
+ * battlefield. Every participant has a cell of 250x20 pixels, with up to 25
+ * cells per column.</p>
+ *
+ * <p>In incremental mode, the last image is kept and only the cells marked
+ * as dirty are painted again, so the cost of a new image depends on the
+ * number of changes instead of the number of participants. The returned
+ * image is reused, so it must not be kept between calls.</p>
+ *
+ * <p>The {@link KillStats leaderboard} of the game can be shown in a column
+ * on the right of the table. It's read from the statistics every time, so
+ * it never goes through the roster.</p>
+ *
+ * @author saespmar
+ * @version 1.0
+ */
+public class TableRenderer {
+    static final int CELL_WIDTH = 250;
+    static final int CELL_HEIGHT = 20;
+    static final String LEADERBOARD_TITLE = "Most kills";
+    
+    private final Font aliveFont;
+    private final Font deadFont;
+    private boolean incremental;
+    private NameSpriteCache spriteCache;
+    private KillStats leaderboard;
+    
+    // Last image and its layout
+    private BufferedImage img;
+    private Graphics2D g2d;
+    private int ascent;
+    private int size = -1;
+    private int columns;
+    private int rows;
+    
+    // Cells changed since the last image
+    private final BitSet dirty = new BitSet();
+    private boolean invalid = true;
+    
+    /**
+     *
+     * <p>Create a renderer that draws the whole table every time.</p>
+     */
+    public TableRenderer() {
+        this(false);
+    }
+    
+    /**
+     *
+     * <p>Create a renderer.</p>
+     *
+     * @param incremental true to paint only the cells that changed since the
+     * last image.
+     */
+    public TableRenderer(boolean incremental) {
+        this.incremental = incremental;
+        
+        // Normal font
+        aliveFont = new Font("Console", Font.PLAIN, 15);
+        
+        // Crossed font for dead participants
+        Hashtable<TextAttribute, Object> map = new Hashtable<>();
+        map.put(TextAttribute.STRIKETHROUGH, TextAttribute.STRIKETHROUGH_ON);
+        deadFont = aliveFont.deriveFont(map);
+    }
+    
+    /**
+     *
+     * <p>Get the font of the names, used to bake the
+     * {@link BitmapFont bitmap font} of the {@link RasterTableRenderer}.</p>
+     *
+     * @param alive the status of the participants.
+     * @return the font.
+     */
+    Font getFont(boolean alive) {
+        return alive ? aliveFont : deadFont;
+    }
+    
+    /**
+     *
+     * <p>Get whether only the changed cells are painted.</p>
+     *
+     * @return true if the renderer works in incremental mode.
+     */
+    public boolean isIncremental() {
+        return incremental;
+    }
+    
+    /**
+     *
+     * <p>Set whether only the changed cells are painted.</p>
+     *
+     * @param incremental true to paint only the cells that changed since the
+     * last image.
+     */
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+        invalidate();
+    }
+    
+    /**
+     *
+     * <p>Get the cache of pre-rendered cells.</p>
+     *
+     * @return the cache, or null if every name is drawn.
+     */
+    public NameSpriteCache getSpriteCache() {
+        return spriteCache;
+    }
+    
+    /**
+     *
+     * <p>Set a cache of pre-rendered cells, so names already drawn are
+     * copied instead of drawn again.</p>
+     *
+     * @param spriteCache the cache, or null to draw every name.
+     */
+    public void setSpriteCache(NameSpriteCache spriteCache) {
+        this.spriteCache = spriteCache;
+    }
+    
+    /**
+     *
+     * <p>Get the statistics whose leaderboard is shown next to the
+     * table.</p>
+     *
+     * @return the statistics, or null if there's no leaderboard.
+     */
+    public KillStats getLeaderboard() {
+        return leaderboard;
+    }
+    
+    /**
+     *
+     * <p>Show the leaderboard of some statistics in a column on the right of
+     * the table, with a row for every leader.</p>
+     *
+     * @param leaderboard the statistics of the participants drawn, usually
+     * the {@link Battlefield#getStats() stats} of a battlefield, or null to
+     * draw only the table.
+     */
+    public void setLeaderboard(KillStats leaderboard) {
+        this.leaderboard = leaderboard;
+        invalidate();
+    }
+    
+    /**
+     *
+     * <p>Mark the cell of a participant as changed, so it's painted in the
+     * next image.</p>
+     *
+     * @param slot position of the participant in the roster.
+     */
+    public void markDirty(int slot) {
+        dirty.set(slot);
+    }
+    
+    /**
+     *
+     * <p>Force the next image to be painted from scratch. It must be called
+     * when the roster is replaced or changes without notifying the
+     * renderer.</p>
+     */
+    public void invalidate() {
+        invalid = true;
+        dirty.clear();
+    }
+    
+    /**
+     *
+     * <p>Draw the table of a roster.</p>
+     *
+     * @param roster the participants to draw.
+     * @return the image with the table.
+     */
+    public BufferedImage render(Roster roster) {
+        if (!incremental || invalid || roster.size() != size){
+            renderAll(roster);
+        } else {
+            for (int slot = dirty.nextSetBit(0); slot >= 0; slot = dirty.nextSetBit(slot + 1)){
+                if (slot < size) drawCell(roster, slot);
+            }
+        }
+        if (leaderboard != null) drawLeaderboard(roster);
+        dirty.clear();
+        invalid = false;
+        
+        if (!incremental){
+            g2d.dispose();
+            g2d = null;
+            BufferedImage result = img;
+            img = null;
+            size = -1;
+            return result;
+        }
+        return img;
+    }
+    
+    /**
+     *
+     * <p>Paints every cell of the table on a new image.</p>
+     */
+    private void renderAll(Roster roster) {
+        size = roster.size();
+        columns = size/26 + 1; // Max. 25 participants per on each column
+        rows = size/columns; // Split participants equally in all columns
+        
+        /**
+         *
+         * The number of columns and rows may not fit perfectly because of the number of participants
+         * (for example, an odd number can't be perfectly splitted in 2 columns). In these scenarios,
+         * an additional row is needed
+         */
+        if (columns*rows != size) rows++;
+        
+        int width = columns * CELL_WIDTH;
+        int height = rows * CELL_HEIGHT;
+        if (leaderboard != null){
+            width += CELL_WIDTH;
+            height = Math.max(height, leaderboardRows(leaderboard) * CELL_HEIGHT);
+        }
+        if (img == null || img.getWidth() != width || img.getHeight() != height){
+            if (g2d != null) g2d.dispose();
+            img = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            g2d = img.createGraphics();
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2d.setFont(aliveFont);
+            ascent = g2d.getFontMetrics().getAscent();
+        }
+        
+        // Background
+        g2d.setClip(null);
+        g2d.setPaint(Color.WHITE);
+        g2d.fillRect(0, 0, width, height);
+        
+        // Text
+        for (int index = 0; index<size; index++){
+            drawCell(roster, index);
+        }
+    }
+    
+    /**
+     *
+     * <p>Paints the background and the name of a participant in its
+     * cell.</p>
+     */
+    private void drawCell(Roster roster, int index) {
+        int x = (index / rows) * CELL_WIDTH;
+        int y = (index % rows) * CELL_HEIGHT;
+        String text = roster.getName(index);
+        boolean alive = roster.isAlive(index);
+        
+        // Very long names are cut and ended with ...
+        if (text.length() > 34) text = text.substring(0, 31) + "...";
+        
+        if (spriteCache == null){
+            drawName(g2d, text, alive, x, y);
+        } else {
+            BufferedImage sprite = spriteCache.get(text, alive);
+            if (sprite == null){
+                sprite = new BufferedImage(CELL_WIDTH, CELL_HEIGHT, BufferedImage.TYPE_INT_RGB);
+                Graphics2D sg = sprite.createGraphics();
+                sg.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                drawName(sg, text, alive, 0, 0);
+                sg.dispose();
+                spriteCache.put(text, alive, sprite);
+            }
+            g2d.setClip(null);
+            g2d.drawImage(sprite, x, y, null);
+        }
+    }
+    
+    /**
+     *
+     * <p>Paints the leaderboard in the column after the table: a title and a
+     * row for every leader, struck through if it's dead.</p>
+     */
+    private void drawLeaderboard(Roster roster) {
+        int x = columns * CELL_WIDTH;
+        drawName(g2d, LEADERBOARD_TITLE, true, x, 0);
+        int[] leaders = leaderboard.getLeaders();
+        for (int rank = 0; rank<leaderboard.getLeaderboardSize(); rank++){
+            int y = (rank + 1) * CELL_HEIGHT;
+            if (rank < leaders.length && leaders[rank] < size){
+                int slot = leaders[rank];
+                drawName(g2d, leaderText(rank + 1, roster.getName(slot), leaderboard.getKills(slot)), roster.isAlive(slot), x, y);
+            } else {
+                drawName(g2d, "", true, x, y);
+            }
+        }
+    }
+    
+    /**
+     *
+     * <p>Get the number of rows of the leaderboard, with its title.</p>
+     */
+    static int leaderboardRows(KillStats leaderboard) {
+        return leaderboard.getLeaderboardSize() + 1;
+    }
+    
+    /**
+     *
+     * <p>Get the text of a row of the leaderboard, with the name cut so the
+     * kills always fit in the cell.</p>
+     */
+    static String leaderText(int rank, String name, int kills) {
+        String prefix = rank + ". ";
+        String suffix = " (" + kills + ")";
+        int room = 34 - prefix.length() - suffix.length();
+        if (name.length() > room) name = name.substring(0, Math.max(0, room - 3)) + "...";
+        return prefix + name + suffix;
+    }
+    
+    /**
+     *
+     * <p>Paints the background and a name in a cell.</p>
+     */
+    private void drawName(Graphics2D g2d, String text, boolean alive, int x, int y) {
+        g2d.setClip(x, y, CELL_WIDTH, CELL_HEIGHT);
+        g2d.setPaint(Color.WHITE);
+        g2d.fillRect(x, y, CELL_WIDTH, CELL_HEIGHT);
+        
+        // Set font
+        if (alive){
+            g2d.setFont(aliveFont);
+            g2d.setColor(Color.BLACK);
+        }
+        else{
+            g2d.setFont(deadFont);
+            g2d.setColor(Color.RED);
+        }
+        
+        g2d.drawString(text, x, ascent + y);
+    }
+}
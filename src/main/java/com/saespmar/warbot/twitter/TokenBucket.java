@@ -0,0 +1,78 @@
+package com.saespmar.warbot.twitter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ * <p>Rate limiter that allows bursts of up to a number of permits and
+ * refills them at a constant rate.</p>
+ *
+ * @author saespmar
+ * @version 1.0
+ */
+public class TokenBucket {
+    private final long capacity;
+    private final double nanosPerToken;
+    private double tokens;
+    private long lastRefill;
+    
+    /**
+     *
+     * <p>Create a full bucket.</p>
+     *
+     * @param capacity maximum number of permits that can be used at once.
+     * @param tokens number of permits added every period.
+     * @param period time to add that number of permits.
+     * @param unit unit of the period.
+     */
+    public TokenBucket(long capacity, long tokens, long period, TimeUnit unit) {
+        if (capacity < 1 || tokens < 1 || period < 1) throw new IllegalArgumentException("The parameters must be positive");
+        this.capacity = capacity;
+        this.nanosPerToken = (double) unit.toNanos(period) / tokens;
+        this.tokens = capacity;
+        this.lastRefill = System.nanoTime();
+    }
+    
+    /**
+     *
+     * <p>Take a permit if there's one available.</p>
+     *
+     * @return true if the permit was taken.
+     */
+    public synchronized boolean tryAcquire() {
+        refill();
+        if (tokens >= 1){
+            tokens--;
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     *
+     * <p>Take a permit, waiting until there's one available.</p>
+     *
+     * @throws InterruptedException if the thread is interrupted while
+     * waiting.
+     */
+    public void acquire() throws InterruptedException {
+        while (true){
+            long wait;
+            synchronized (this){
+                refill();
+                if (tokens >= 1){
+                    tokens--;
+                    return;
+                }
+                wait = (long) Math.ceil((1 - tokens) * nanosPerToken);
+            }
+            TimeUnit.NANOSECONDS.sleep(Math.max(wait, 1000));
+        }
+    }
+    
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) / nanosPerToken);
+        lastRefill = now;
+    }
+}
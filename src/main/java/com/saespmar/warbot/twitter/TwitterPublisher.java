@@ -0,0 +1,42 @@
+package com.saespmar.warbot.twitter;
+
+import java.io.File;
+import twitter4j.StatusUpdate;
+import twitter4j.Twitter;
+import twitter4j.TwitterException;
+
+/**
+ *
+ * <p>Publishes the updates as tweets.</p>
+ *
+ * @author saespmar
+ * @version 1.0
+ */
+public class TwitterPublisher implements Publisher {
+    private final Twitter twitter;
+    
+    /**
+     *
+     * <p>Create a publisher for an account.</p>
+     *
+     * @param twitter the client of the account.
+     */
+    public TwitterPublisher(Twitter twitter) {
+        this.twitter = twitter;
+    }
+
+    @Override
+    public void publish(String text, File media) throws PublishException {
+        StatusUpdate status = new StatusUpdate(text);
+        if (media != null) status.setMedia(media);
+        try {
+            twitter.updateStatus(status);
+        } catch (TwitterException ex) {
+            
+            // Network problems, server errors and rate limits are temporary
+            boolean retryable = ex.isCausedByNetworkIssue() || ex.exceededRateLimitation()
+                    || ex.getStatusCode() == 429 || ex.getStatusCode() >= 500;
+            throw new PublishException("The tweet couldn't be sent", ex, retryable);
+        }
+    }
+}
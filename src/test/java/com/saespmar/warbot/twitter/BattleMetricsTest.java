@@ -0,0 +1,82 @@
+package com.saespmar.warbot.twitter;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class BattleMetricsTest {
+    
+    @Test
+    public void testBattlefield() {
+        File list = new File("test_case/metrics.txt");
+        ArrayList<Participant> roster = new ArrayList<>();
+        for (int i = 0; i<10; i++){
+            roster.add(new Participant("Test" + i));
+        }
+        Battlefield battlefield = new Battlefield(new File("test_case/battle.txt"), "test_case");
+        battlefield.setParticipantsFile(list);
+        battlefield.setParticipants(roster);
+        
+        BattleMetrics metrics = new BattleMetrics("test");
+        final AtomicLong sunk = new AtomicLong();
+        MetricsSink sink = new MetricsSink() {
+            @Override
+            public void latency(String battlefield, BattleMetrics.Stage stage, long nanos) {
+                if (stage == BattleMetrics.Stage.FIGHT) sunk.incrementAndGet();
+            }
+
+            @Override
+            public void counter(String battlefield, String counter, long delta) {
+            }
+        };
+        metrics.addSink(sink);
+        battlefield.setMetrics(metrics);
+        
+        for (int i = 0; i<3; i++){
+            battlefield.fight();
+        }
+        battlefield.updateFile();
+        File image = battlefield.drawTable();
+        
+        assertEquals(3, metrics.getRounds());
+        assertEquals(3, sunk.get());
+        assertEquals(3, metrics.getHistogram(BattleMetrics.Stage.FIGHT).getCount());
+        assertEquals(1, metrics.getHistogram(BattleMetrics.Stage.PERSIST).getCount());
+        assertEquals(1, metrics.getHistogram(BattleMetrics.Stage.RENDER).getCount());
+        assertEquals(1, metrics.getHistogram(BattleMetrics.Stage.ENCODE).getCount());
+        assertEquals(list.length(), metrics.getBytesWritten());
+        assertEquals(image.length(), metrics.getLastImageSize());
+        
+        // A removed sink doesn't get the next measures
+        metrics.removeSink(sink);
+        battlefield.fight();
+        assertEquals(3, sunk.get());
+        
+        list.delete();
+        image.delete();
+    }
+    
+    @Test
+    public void testJmx() throws JMException {
+        BattleMetrics metrics = new BattleMetrics("jmx test");
+        metrics.register();
+        try {
+            metrics.addRound();
+            metrics.record(BattleMetrics.Stage.FIGHT, 5000);
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName("com.saespmar.warbot:type=Battlefield,name=" + ObjectName.quote("jmx test"));
+            assertEquals(1L, server.getAttribute(name, "Rounds"));
+            assertNotNull(server.getAttribute(name, "StageP99Micros"));
+        } finally {
+            metrics.unregister();
+        }
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(
+                new ObjectName("com.saespmar.warbot:type=Battlefield,name=" + ObjectName.quote("jmx test"))));
+    }
+}
@@ -0,0 +1,118 @@
+package com.saespmar.warbot.twitter;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageInputStream;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class BattleRecapTest {
+    
+    @Test
+    public void testReplay() throws IOException {
+        File output = File.createTempFile("recap", ".gif");
+        try {
+            File list = new File("test_case/battle.txt");
+            int frames = new BattleRecap().write(list, 42, output);
+            Battlefield end = BattleReplay.replay(list, 42, 0);
+            int rounds = 0;
+            for (Iterator<FightEvent> it = end.fights(); it.hasNext(); it.next()){
+                rounds++;
+            }
+            
+            // The whole table, a frame per round and the end held
+            assertEquals(rounds + 2, frames);
+            List<BufferedImage> images = new ArrayList<>();
+            BufferedImage last = compose(output, images);
+            assertEquals(frames, images.size());
+            assertEquals(TableRenderer.CELL_WIDTH, images.get(1).getWidth());
+            assertEquals(TableRenderer.CELL_HEIGHT, images.get(1).getHeight());
+            assertSimilar(new RasterTableRenderer().render(end.getRoster()), last);
+        } finally {
+            output.delete();
+        }
+    }
+    
+    @Test
+    public void testRoundsPerFrame() throws IOException {
+        ColumnarRoster roster = new ColumnarRoster();
+        for (int i = 0; i<60; i++){
+            roster.add("Participant " + i, true);
+        }
+        List<FightEvent> fights = new ArrayList<>();
+        for (int i = 0; i<7; i++){
+            fights.add(new FightEvent(i + 1, 0, 3 + i * 8, 0));
+        }
+        File output = File.createTempFile("recap", ".gif");
+        try {
+            assertEquals(5, new BattleRecap(3, 50, 1000).write(roster, fights.iterator(), output));
+            List<BufferedImage> images = new ArrayList<>();
+            BufferedImage last = compose(output, images);
+            
+            // The frames cover the cells that changed, even in different columns
+            assertEquals(3 * TableRenderer.CELL_WIDTH, images.get(0).getWidth());
+            assertEquals(TableRenderer.CELL_WIDTH, images.get(1).getWidth());
+            assertEquals(2 * TableRenderer.CELL_WIDTH, images.get(2).getWidth());
+            assertFalse(roster.isAlive(51));
+            assertSimilar(new RasterTableRenderer().render(roster), last);
+        } finally {
+            output.delete();
+        }
+    }
+    
+    /**
+     *
+     * <p>Draws every frame of a GIF at its position, like a viewer would,
+     * and returns the last image shown.</p>
+     */
+    private static BufferedImage compose(File gif, List<BufferedImage> frames) throws IOException {
+        ImageReader reader = ImageIO.getImageReadersByFormatName("gif").next();
+        ImageInputStream in = ImageIO.createImageInputStream(gif);
+        try {
+            reader.setInput(in);
+            int count = reader.getNumImages(true);
+            BufferedImage canvas = null;
+            for (int i = 0; i<count; i++){
+                BufferedImage frame = reader.read(i);
+                frames.add(frame);
+                IIOMetadataNode root = (IIOMetadataNode) reader.getImageMetadata(i).getAsTree("javax_imageio_gif_image_1.0");
+                IIOMetadataNode descriptor = (IIOMetadataNode) root.getElementsByTagName("ImageDescriptor").item(0);
+                int left = Integer.parseInt(descriptor.getAttribute("imageLeftPosition"));
+                int top = Integer.parseInt(descriptor.getAttribute("imageTopPosition"));
+                if (canvas == null) canvas = new BufferedImage(frame.getWidth(), frame.getHeight(), BufferedImage.TYPE_INT_RGB);
+                for (int y = 0; y<frame.getHeight(); y++){
+                    for (int x = 0; x<frame.getWidth(); x++){
+                        canvas.setRGB(left + x, top + y, frame.getRGB(x, y));
+                    }
+                }
+            }
+            return canvas;
+        } finally {
+            reader.dispose();
+            in.close();
+        }
+    }
+    
+    private static void assertSimilar(RasterImage expected, BufferedImage actual) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        for (int y = 0; y<expected.getHeight(); y++){
+            for (int x = 0; x<expected.getWidth(); x++){
+                int a = expected.getRGB(x, y);
+                int b = actual.getRGB(x, y);
+                for (int shift = 0; shift<24; shift += 8){
+                    
+                    // The palette has a shade every 2 values
+                    assertTrue(Math.abs(((a >> shift) & 0xff) - ((b >> shift) & 0xff)) <= 2);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.saespmar.warbot.twitter;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class BattleReplayTest {
+    
+    File initial = new File("test_case/replay_initial.txt");
+    File game = new File("test_case/replay_game.txt");
+    FightJournal journal = FightJournal.forParticipantsFile(game, 1000);
+    
+    @Before
+    public void setUp() throws IOException {
+        BufferedWriter bw = new BufferedWriter(new FileWriter(initial));
+        for (int i = 0; i<200; i++){
+            if (i % 10 == 0) bw.write("# ");
+            bw.write("Participant" + i);
+            bw.newLine();
+        }
+        bw.close();
+    }
+    
+    @After
+    public void tearDown() throws IOException {
+        journal.close();
+        initial.delete();
+        game.delete();
+        journal.getFile().delete();
+    }
+    
+    @Test
+    public void testReplay() {
+        Battlefield original = new Battlefield(initial);
+        original.setRandom(new SplitMixRandom(1234));
+        for (int i = 0; i<50; i++){
+            original.fight();
+        }
+        
+        Battlefield replayed = BattleReplay.replay(initial, 1234, original.getRound());
+        assertEquals(original.getRound(), replayed.getRound());
+        assertEquals(original.getParticipants(), replayed.getParticipants());
+        
+        // The replayed game goes on exactly like the original one
+        for (int i = 0; i<20; i++){
+            assertEquals(original.fight()[1], replayed.fight()[1]);
+        }
+        
+        Battlefield ended = BattleReplay.replay(initial, 1234, -1);
+        assertEquals(1, ended.getAlive());
+    }
+    
+    @Test
+    public void testVerify() throws IOException {
+        Battlefield original = new Battlefield(initial);
+        original.setParticipantsFile(game);
+        original.setRandom(new SplitMixRandom(99));
+        original.setJournal(journal);
+        original.updateFile();
+        assertEquals(99, journal.getSeed());
+        
+        for (int i = 0; i<30; i++){
+            original.fight();
+        }
+        original.updateFile();
+        assertTrue(BattleReplay.verify(initial, journal));
+        
+        // A game with another seed doesn't match
+        journal.setSeed(100);
+        journal.reset();
+        for (int i = 0; i<5; i++){
+            journal.append(new FightEvent(original.getRound() + 1 + i, 0, 1, 0));
+        }
+        assertFalse(BattleReplay.verify(initial, journal));
+    }
+    
+    @Test
+    public void testVerifyKill() throws IOException {
+        Battlefield original = new Battlefield(initial);
+        original.setParticipantsFile(game);
+        original.setRandom(new SplitMixRandom(5));
+        original.setJournal(journal);
+        original.updateFile();
+        
+        // A death outside of a fight, first and in the middle of the journal
+        original.kill(3);
+        for (int i = 0; i<10; i++){
+            original.fight();
+        }
+        int slot = 0;
+        while (!original.getRoster().isAlive(slot)) slot++;
+        original.kill(slot);
+        for (int i = 0; i<10; i++){
+            original.fight();
+        }
+        original.updateFile();
+        assertTrue(BattleReplay.verify(initial, journal));
+    }
+    
+    @Test
+    public void testRules() throws IOException {
+        long[] weights = new long[200];
+        for (int i = 0; i<weights.length; i++){
+            weights[i] = 1 + i % 7;
+        }
+        Battlefield original = new Battlefield(initial);
+        original.setParticipantsFile(game);
+        original.setRandom(new SplitMixRandom(31));
+        original.setRules(FightRules.weighted(weights));
+        original.setJournal(journal);
+        original.updateFile();
+        for (int i = 0; i<40; i++){
+            original.fight();
+        }
+        original.updateFile();
+        
+        // The killers depend on the rules, so they're needed to replay the game
+        assertTrue(BattleReplay.verify(initial, journal, FightRules.weighted(weights)));
+        assertFalse(BattleReplay.verify(initial, journal));
+        Battlefield replayed = BattleReplay.replay(initial, 31, FightRules.weighted(weights), original.getRound());
+        assertEquals(original.getParticipants(), replayed.getParticipants());
+        assertEquals(original.fight()[0], replayed.fight()[0]);
+    }
+    
+    @Test
+    public void testResume() throws IOException {
+        Battlefield original = new Battlefield(initial);
+        original.setParticipantsFile(game);
+        original.setRandom(new SplitMixRandom(77));
+        original.setJournal(journal);
+        for (int i = 0; i<10; i++){
+            original.fight();
+        }
+        original.updateFile(); // The whole list, with the position after 10 fights
+        for (int i = 0; i<15; i++){
+            original.fight();
+        }
+        int slot = 0;
+        while (!original.getRoster().isAlive(slot)) slot++;
+        original.kill(slot); // Outside of a fight, it doesn't draw
+        original.updateFile();
+        journal.close();
+        
+        // The resumed game draws the same values the original one would draw
+        Battlefield resumed = new Battlefield(game);
+        resumed.setJournal(FightJournal.forParticipantsFile(game, 1000));
+        resumed.updateList();
+        SplitMixRandom random = (SplitMixRandom) resumed.getRandom();
+        SplitMixRandom expected = (SplitMixRandom) original.getRandom();
+        assertEquals(77, random.getSeed());
+        assertEquals(expected.getDraws(), random.getDraws());
+        assertEquals(expected.nextLong(), random.nextLong());
+        resumed.getJournal().close();
+    }
+
+}
@@ -0,0 +1,134 @@
+package com.saespmar.warbot.twitter;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class BattleSchedulerTest {
+    
+    BattleScheduler instance;
+    
+    @Before
+    public void setUp() {
+        instance = new BattleScheduler(5, TimeUnit.MILLISECONDS, 8, 4, 1000);
+    }
+    
+    @After
+    public void tearDown() throws InterruptedException {
+        instance.shutdown();
+        instance.awaitTermination(5, TimeUnit.SECONDS);
+    }
+    
+    @Test
+    public void testManyBattles() throws InterruptedException {
+        ArrayList<AtomicInteger> counters = new ArrayList<>();
+        for (int i = 0; i<1000; i++){
+            final AtomicInteger counter = new AtomicInteger();
+            counters.add(counter);
+            instance.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    counter.incrementAndGet();
+                }
+            }, 0, 50 + i % 3 * 50, TimeUnit.MILLISECONDS);
+        }
+        Thread.sleep(600);
+        for (AtomicInteger counter : counters){
+            assertTrue(counter.get() >= 2);
+        }
+    }
+    
+    @Test
+    public void testSlowBattle() throws InterruptedException {
+        BattleScheduler.Task slow = instance.schedule(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, 0, 5, TimeUnit.MILLISECONDS);
+        final AtomicInteger fast = new AtomicInteger();
+        instance.schedule(new Runnable() {
+            @Override
+            public void run() {
+                fast.incrementAndGet();
+            }
+        }, 0, 10, TimeUnit.MILLISECONDS);
+        Thread.sleep(500);
+        
+        // The slow battle skips its ticks instead of delaying the other one
+        assertTrue(slow.getSkipped() > 0);
+        assertTrue(slow.getRuns() <= 3);
+        assertTrue(fast.get() >= 10);
+    }
+    
+    @Test
+    public void testFullQueue() throws InterruptedException {
+        instance.shutdown();
+        instance = new BattleScheduler(5, TimeUnit.MILLISECONDS, 8, 1, 1);
+        final CountDownLatch release = new CountDownLatch(1);
+        Runnable blocked = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        BattleScheduler.Task first = instance.schedule(blocked, 0, 5, TimeUnit.MILLISECONDS);
+        BattleScheduler.Task second = instance.schedule(blocked, 0, 5, TimeUnit.MILLISECONDS);
+        BattleScheduler.Task third = instance.schedule(blocked, 0, 5, TimeUnit.MILLISECONDS);
+        Thread.sleep(100);
+        
+        // One battle holds the only worker, so another one waits and the ticks of the last one are skipped
+        assertEquals(1, instance.getQueued());
+        assertTrue(instance.getRejected() > 0);
+        assertEquals(0, first.getRuns() + second.getRuns() + third.getRuns());
+        release.countDown();
+    }
+    
+    @Test
+    public void testCancel() throws InterruptedException {
+        final AtomicInteger counter = new AtomicInteger();
+        BattleScheduler.Task task = instance.schedule(new Runnable() {
+            @Override
+            public void run() {
+                counter.incrementAndGet();
+            }
+        }, 0, 10, TimeUnit.MILLISECONDS);
+        Thread.sleep(100);
+        task.cancel();
+        Thread.sleep(50);
+        int runs = counter.get();
+        assertTrue(runs > 0);
+        assertTrue(task.isCancelled());
+        Thread.sleep(100);
+        assertEquals(runs, counter.get());
+    }
+    
+    @Test
+    public void testInitialDelay() throws InterruptedException {
+        final AtomicInteger counter = new AtomicInteger();
+        instance.schedule(new Runnable() {
+            @Override
+            public void run() {
+                counter.incrementAndGet();
+            }
+        }, 300, 1000, TimeUnit.MILLISECONDS);
+        Thread.sleep(150);
+        assertEquals(0, counter.get());
+        Thread.sleep(400);
+        assertEquals(1, counter.get());
+    }
+    
+}
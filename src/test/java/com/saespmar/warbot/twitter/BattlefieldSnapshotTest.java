@@ -0,0 +1,109 @@
+package com.saespmar.warbot.twitter;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Iterator;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class BattlefieldSnapshotTest {
+    
+    private static Battlefield battlefield(Roster roster, int size) {
+        ArrayList<Participant> participants = new ArrayList<>();
+        for (int i = 0; i<size; i++){
+            participants.add(new Participant("Participant ñ " + i, i % 5 != 0));
+        }
+        Battlefield battlefield = TestBattlefields.seeded(roster, participants);
+        battlefield.setParticipantsFile(new File("test_case/snapshot.txt"));
+        return battlefield;
+    }
+    
+    @Test
+    public void testRoundTrip() throws IOException {
+        File file = new File("test_case/snapshot.bin");
+        Battlefield original = battlefield(new ListRoster(), 200);
+        for (int i = 0; i<50; i++){
+            original.fight();
+        }
+        original.saveSnapshot(file);
+        
+        Battlefield restored = battlefield(new ColumnarRoster(), 3);
+        restored.loadSnapshot(file);
+        assertEquals(original.getParticipants(), restored.getParticipants());
+        assertEquals(original.getAlive(), restored.getAlive());
+        assertEquals(original.getRound(), restored.getRound());
+        
+        // The rest of the game is the same
+        Iterator<FightEvent> expected = original.fights();
+        Iterator<FightEvent> actual = restored.fights();
+        while (expected.hasNext()){
+            assertTrue(actual.hasNext());
+            FightEvent e = expected.next();
+            FightEvent a = actual.next();
+            assertEquals(e.getKiller(), a.getKiller());
+            assertEquals(e.getVictim(), a.getVictim());
+            assertEquals(e.getRound(), a.getRound());
+        }
+        assertFalse(actual.hasNext());
+        
+        // A list roster is filled in place
+        Battlefield listed = battlefield(new ListRoster(), 3);
+        listed.loadSnapshot(file);
+        assertTrue(listed.getRoster() instanceof ListRoster);
+        assertEquals(200, listed.getRoster().size());
+        file.delete();
+    }
+    
+    @Test
+    public void testCorrupted() throws IOException {
+        File file = new File("test_case/corrupted.bin");
+        battlefield(new ColumnarRoster(), 20).saveSnapshot(file);
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.seek(60);
+        int b = raf.read();
+        raf.seek(60);
+        raf.write(b ^ 1);
+        raf.close();
+        try {
+            BattlefieldSnapshot.read(file);
+            fail("The snapshot is corrupted");
+        } catch (IOException ex) {
+            assertTrue(ex.getMessage().startsWith("Corrupted"));
+        } finally {
+            file.delete();
+        }
+    }
+    
+    @Test
+    public void testText() throws IOException {
+        File list = new File("test_case/snapshot_list.txt");
+        File snapshot = new File("test_case/snapshot_list.bin");
+        File exported = new File("test_case/snapshot_exported.txt");
+        BufferedWriter bw = new BufferedWriter(new FileWriter(list));
+        bw.write("First\n# Second\nThird\n");
+        bw.close();
+        
+        BattlefieldSnapshot.importText(list, snapshot);
+        BattlefieldSnapshot loaded = BattlefieldSnapshot.read(snapshot);
+        assertEquals(3, loaded.getRoster().size());
+        assertEquals(2, loaded.getAlive());
+        assertEquals(1, loaded.getRound());
+        assertFalse(loaded.getRoster().isAlive(1));
+        
+        BattlefieldSnapshot.exportText(snapshot, exported);
+        Battlefield battlefield = new Battlefield(exported, "test_case");
+        ArrayList<Participant> expected = new ArrayList<>();
+        expected.add(new Participant("First"));
+        expected.add(new Participant("Second", false));
+        expected.add(new Participant("Third"));
+        assertEquals(expected, battlefield.getParticipants());
+        
+        list.delete();
+        snapshot.delete();
+        exported.delete();
+    }
+}
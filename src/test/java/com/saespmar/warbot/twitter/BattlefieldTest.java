@@ -9,7 +9,12 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -145,6 +150,140 @@ public class BattlefieldTest {
         instance.setParticipants(participants);
     }
     
+    @Test
+    public void testFightLargeRoster() {
+        Battlefield large = new Battlefield(new File("test_case/temp.txt"));
+        ArrayList<Participant> roster = new ArrayList<>();
+        for (int i = 0; i<10000; i++){
+            roster.add(new Participant("Participant" + i, i % 3 != 0));
+        }
+        large.setParticipants(roster);
+        assertEquals(6666, large.getAlive());
+        
+        // Fight until the end, checking the victim is always removed
+        Participant[] result;
+        int expectedAlive = large.getAlive();
+        while ((result = large.fight()) != null){
+            expectedAlive--;
+            assertTrue(result[0].isAlive());
+            assertFalse(result[1].isAlive());
+            assertEquals(expectedAlive, large.getAlive());
+        }
+        assertEquals(1, large.getAlive());
+        
+        int surviving = 0;
+        for (Participant p : large.getParticipants()){
+            if (p.isAlive()) surviving++;
+        }
+        assertEquals(1, surviving);
+    }
+    
+    @Test
+    public void testColumnarRoster() {
+        Battlefield columnar = new Battlefield(new File("test_case/battle.txt"), "test_case", new ColumnarRoster());
+        ArrayList<Participant> expected = new ArrayList<>();
+        expected.add(new Participant("Test1", true));
+        expected.add(new Participant("Test2", true));
+        expected.add(new Participant("Test3", false));
+        expected.add(new Participant("Test4", false));
+        expected.add(new Participant("Test5", true));
+        assertEquals(expected, columnar.getParticipants());
+        assertEquals(3, columnar.getAlive());
+        
+        Participant[] result = columnar.fight();
+        assertFalse(result[1].isAlive());
+        assertFalse(columnar.getRoster().isAlive(columnar.getParticipants().indexOf(result[1])));
+        assertEquals(2, columnar.getAlive());
+        
+        // The result is a copy, it doesn't follow the roster
+        columnar.getRoster().setName(columnar.getParticipants().indexOf(result[1]), "Renamed");
+        assertNotEquals("Renamed", result[1].getName());
+    }
+    
+    @Test
+    public void testJournal() throws IOException {
+        File list = new File("test_case/journal.txt");
+        ArrayList<Participant> roster = new ArrayList<>();
+        for (int i = 0; i<10; i++){
+            roster.add(new Participant("Test" + i));
+        }
+        Battlefield journaled = new Battlefield(new File("test_case/temp.txt"));
+        journaled.setParticipantsFile(list);
+        journaled.setParticipants(roster);
+        FightJournal journal = FightJournal.forParticipantsFile(list, 4);
+        journaled.setJournal(journal);
+        
+        // The first write stores the whole list
+        journaled.updateFile();
+        long listLength = list.length();
+        
+        // Next writes only append to the journal
+        for (int i = 1; i<=3; i++){
+            journaled.fight();
+            journaled.updateFile();
+            assertEquals(i, journal.getEvents());
+            assertEquals(listLength, list.length());
+        }
+        ArrayList<Participant> expected = new ArrayList<>();
+        for (Participant p : journaled.getParticipants()){
+            expected.add(new Participant(p.getName(), p.isAlive()));
+        }
+        
+        // The list is rebuilt from the file and the journal
+        journaled.updateList();
+        assertEquals(expected, journaled.getParticipants());
+        assertEquals(7, journaled.getAlive());
+        assertEquals(3, journaled.getRound());
+        
+        // The journal is compacted into the list
+        journaled.fight();
+        journaled.updateFile();
+        assertEquals(0, journal.getEvents());
+        journal.close();
+        Battlefield reloaded = new Battlefield(list);
+        assertEquals(6, reloaded.getAlive());
+        assertEquals(journaled.getParticipants(), reloaded.getParticipants());
+        
+        list.delete();
+        journal.getFile().delete();
+    }
+    
+    @Test
+    public void testFights() {
+        ColumnarRoster roster = new ColumnarRoster();
+        for (int i = 0; i<1000; i++){
+            roster.add("Participant" + i, true);
+        }
+        Battlefield first = new Battlefield(new File("test_case/temp.txt"));
+        first.setRoster(roster);
+        
+        ColumnarRoster copy = new ColumnarRoster();
+        for (int i = 0; i<1000; i++){
+            copy.add("Participant" + i, true);
+        }
+        Battlefield second = new Battlefield(new File("test_case/temp.txt"));
+        second.setRoster(copy);
+        
+        // The same seed produces the same game, and the state follows the iterator
+        Iterator<FightEvent> firstFights = first.fights(new Random(42));
+        Iterator<FightEvent> secondFights = second.fights(new Random(42));
+        int round = 0;
+        while (firstFights.hasNext()){
+            FightEvent event = firstFights.next();
+            FightEvent other = secondFights.next();
+            round++;
+            assertEquals(round, event.getRound());
+            assertEquals(event.getKiller(), other.getKiller());
+            assertEquals(event.getVictim(), other.getVictim());
+            assertFalse(roster.isAlive(event.getVictim()));
+            assertTrue(roster.isAlive(event.getKiller()));
+            assertEquals(1000 - round, first.getAlive());
+        }
+        assertEquals(999, round);
+        assertFalse(secondFights.hasNext());
+        assertNull(first.fight());
+    }
+    
     @Test
     public void testDrawTable() {
         File result = instance.drawTable();
@@ -152,4 +291,85 @@ public class BattlefieldTest {
         assertEquals(expected, result.getPath());
     }
     
+    @Test
+    public void testDrawTableAsync() throws Exception {
+        Battlefield async = new Battlefield(new File("test_case/battle.txt"), "test_case", new ColumnarRoster());
+        async.setRenderer(new TableRenderer(true));
+        File result = async.drawTableAsync().get();
+        assertEquals("test_case" + File.separator + "3remaining.jpg", result.getPath());
+        assertTrue(result.exists());
+    }
+    
+    @Test
+    public void testUtf8() throws IOException {
+        File list = new File("test_case/utf8.txt");
+        String name = "Jos\u00e9 \u00d1\u00fa\u00f1ez \u65e5\u672c";
+        OutputStream out = new FileOutputStream(list);
+        out.write(("# Ren\u00e9\n" + name + "\n").getBytes(StandardCharsets.UTF_8));
+        out.close();
+        
+        // The list is UTF-8 whatever the platform charset is
+        Battlefield utf8 = new Battlefield(list);
+        assertEquals(name, utf8.getParticipants().get(1).getName());
+        assertEquals("Ren\u00e9", utf8.getParticipants().get(0).getName());
+        utf8.updateFile();
+        Battlefield read = new Battlefield(list);
+        assertEquals(utf8.getParticipants(), read.getParticipants());
+        assertTrue(new String(Files.readAllBytes(list.toPath()), StandardCharsets.UTF_8).contains(name));
+        list.delete();
+    }
+    
+    @Test
+    public void testAdmin() {
+        ArrayList<Participant> roster = new ArrayList<>();
+        roster.add(new Participant("Ann"));
+        roster.add(new Participant("Bob"));
+        roster.add(new Participant("Ann"));
+        roster.add(new Participant("Carl", false));
+        Battlefield admin = new Battlefield(new File("test_case/temp.txt"));
+        admin.setParticipants(roster);
+        
+        assertArrayEquals(new int[]{0, 2}, admin.find("Ann"));
+        assertArrayEquals(new int[0], admin.find("Nobody"));
+        assertTrue(admin.isAlive("Bob"));
+        
+        // Kill and revive by name
+        assertTrue(admin.kill("Bob"));
+        assertFalse(admin.kill("Bob"));
+        assertFalse(admin.isAlive("Bob"));
+        assertEquals(2, admin.getAlive());
+        assertTrue(admin.revive("Carl"));
+        assertEquals(3, admin.getAlive());
+        
+        // Repeated names need the slot
+        try {
+            admin.kill("Ann");
+            fail("The name is ambiguous");
+        } catch (AmbiguousNameException ex) {
+            assertArrayEquals(new int[]{0, 2}, ex.getSlots());
+        }
+        assertTrue(admin.kill(2));
+        
+        // The index follows the renames
+        admin.rename(0, "Anna");
+        assertArrayEquals(new int[]{0}, admin.find("Anna"));
+        assertArrayEquals(new int[]{2}, admin.find("Ann"));
+        admin.rename("Carl", "Karl");
+        assertEquals("Karl", admin.getRoster().getName(3));
+        try {
+            admin.isAlive("Carl");
+            fail("Carl was renamed");
+        } catch (NoSuchElementException ex) {
+            // Expected
+        }
+        
+        // The fights only pick alive participants
+        Iterator<FightEvent> fights = admin.fights(new Random(1));
+        while (fights.hasNext()){
+            FightEvent event = fights.next();
+            assertTrue(event.getVictim() != 1 && event.getVictim() != 2);
+        }
+        assertEquals(1, admin.getAlive());
+    }
+    
 }
@@ -0,0 +1,103 @@
+package com.saespmar.warbot.twitter;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ *
+ * <p>Bakes the {@link BitmapFont} of the {@link RasterTableRenderer} from
+ * the fonts of the {@link TableRenderer}, drawing every glyph with AWT
+ * the same way the table does. It must be run again if the font of the
+ * table changes.</p>
+ */
+public class BitmapFontBaker {
+    private static final int PAD = 8; // Room for the parts of a glyph outside of its advance
+    
+    public static void main(String[] args) throws IOException {
+        File output = new File(args.length > 0 ? args[0] : "src/main/resources/com/saespmar/warbot/twitter/" + BitmapFont.RESOURCE);
+        BitmapFont font = bake(new TableRenderer());
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(output));
+        try {
+            font.write(out);
+        } finally {
+            out.close();
+        }
+        System.out.println("Font written to " + output + " (" + output.length() + " bytes)");
+    }
+    
+    static BitmapFont bake(TableRenderer renderer) {
+        Font aliveFont = renderer.getFont(true);
+        Font deadFont = renderer.getFont(false);
+        int height = TableRenderer.CELL_HEIGHT;
+        Graphics2D g2d = graphics(new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB), aliveFont);
+        FontMetrics metrics = g2d.getFontMetrics();
+        int ascent = metrics.getAscent();
+        g2d.dispose();
+        
+        // The strikethrough is the only thing painted when crossing out spaces
+        String spaces = "          ";
+        BufferedImage line = new BufferedImage(metrics.stringWidth(spaces) + 1, height, BufferedImage.TYPE_INT_RGB);
+        g2d = graphics(line, deadFont);
+        g2d.drawString(spaces, 0, ascent);
+        g2d.dispose();
+        byte[] strike = new byte[height];
+        byte[] strikeEdge = new byte[height];
+        for (int row = 0; row<height; row++){
+            strike[row] = (byte) line.getRGB(line.getWidth() / 2, row);
+            strikeEdge[row] = (byte) line.getRGB(0, row);
+        }
+        
+        BitmapFont font = new BitmapFont(height, ascent, strike, strikeEdge);
+        for (char c = ' '; c<256; c++){
+            if (c >= 0x7f && c < 0xa0 || !aliveFont.canDisplay(c)) continue;
+            int advance = metrics.charWidth(c);
+            BufferedImage img = new BufferedImage(advance + 2 * PAD, height, BufferedImage.TYPE_INT_RGB);
+            g2d = graphics(img, aliveFont);
+            g2d.drawString(String.valueOf(c), PAD, ascent);
+            g2d.dispose();
+            
+            // Keep the columns with some coverage
+            int first = img.getWidth();
+            int last = -1;
+            for (int col = 0; col<img.getWidth(); col++){
+                for (int row = 0; row<height; row++){
+                    if ((img.getRGB(col, row) & 0xff) != 0){
+                        first = Math.min(first, col);
+                        last = col;
+                    }
+                }
+            }
+            int width = Math.max(0, last - first + 1);
+            byte[] mask = new byte[width * height];
+            for (int row = 0; row<height; row++){
+                for (int col = 0; col<width; col++){
+                    mask[row * width + col] = (byte) img.getRGB(first + col, row);
+                }
+            }
+            font.setGlyph(c, advance, width == 0 ? 0 : first - PAD, width, mask);
+        }
+        return font;
+    }
+    
+    /**
+     *
+     * <p>Prepares to draw white text on black, so the blue channel is the
+     * coverage.</p>
+     */
+    private static Graphics2D graphics(BufferedImage img, Font font) {
+        Graphics2D g2d = img.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2d.setFont(font);
+        g2d.setColor(Color.WHITE);
+        return g2d;
+    }
+}
@@ -0,0 +1,91 @@
+package com.saespmar.warbot.twitter;
+
+import java.util.ArrayList;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ColumnarRosterTest {
+    
+    ColumnarRoster instance;
+    
+    @Before
+    public void setUp() {
+        instance = new ColumnarRoster(1);
+        instance.add("Test1", true);
+        instance.add("Tést2 ñ", false);
+        instance.add("", true);
+    }
+    
+    @Test
+    public void testSize() {
+        assertEquals(3, instance.size());
+    }
+    
+    @Test
+    public void testGetName() {
+        assertEquals("Test1", instance.getName(0));
+        assertEquals("Tést2 ñ", instance.getName(1));
+        assertEquals("", instance.getName(2));
+    }
+    
+    @Test
+    public void testSetName() {
+        instance.setName(0, "Renamed");
+        assertEquals("Renamed", instance.getName(0));
+        assertEquals("Tést2 ñ", instance.getName(1));
+    }
+    
+    @Test
+    public void testSetAlive() {
+        assertTrue(instance.isAlive(0));
+        assertFalse(instance.isAlive(1));
+        instance.setAlive(0, false);
+        instance.setAlive(1, true);
+        assertFalse(instance.isAlive(0));
+        assertTrue(instance.isAlive(1));
+    }
+    
+    @Test
+    public void testAddBytes() {
+        byte[] buffer = "xxTest4xx".getBytes();
+        instance.add(buffer, 2, 5, false);
+        assertEquals("Test4", instance.getName(3));
+        assertFalse(instance.isAlive(3));
+    }
+    
+    @Test
+    public void testClear() {
+        instance.clear();
+        assertEquals(0, instance.size());
+        instance.add("Test5", true);
+        assertEquals("Test5", instance.getName(0));
+        assertTrue(instance.isAlive(0));
+    }
+    
+    @Test
+    public void testViews() {
+        Participant view = instance.get(1);
+        assertEquals(new Participant("Tést2 ñ", false), view);
+        
+        view.setAlive(true);
+        view.setName("Test2");
+        assertTrue(instance.isAlive(1));
+        assertEquals("Test2", instance.getName(1));
+    }
+    
+    @Test
+    public void testAsList() {
+        ArrayList<Participant> expected = new ArrayList<>();
+        expected.add(new Participant("Test1", true));
+        expected.add(new Participant("Tést2 ñ", false));
+        expected.add(new Participant("", true));
+        assertEquals(expected, instance.asList());
+    }
+    
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testOutOfBounds() {
+        instance.getName(3);
+    }
+    
+}
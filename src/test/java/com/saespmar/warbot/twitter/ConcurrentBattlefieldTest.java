@@ -0,0 +1,170 @@
+package com.saespmar.warbot.twitter;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ConcurrentBattlefieldTest {
+    
+    static final int SIZE = 20000;
+    ConcurrentBattlefield instance;
+    
+    @Before
+    public void setUp() {
+        ColumnarRoster roster = new ColumnarRoster(SIZE);
+        for (int i = 0; i<SIZE; i++){
+            roster.add("Participant" + i, true);
+        }
+        Battlefield battlefield = new Battlefield(new File("test_case/battle.txt"));
+        battlefield.setRoster(roster);
+        instance = new ConcurrentBattlefield(battlefield);
+    }
+    
+    @Test
+    public void testSnapshot() {
+        instance.fight();
+        ConcurrentBattlefield.Snapshot snapshot = instance.snapshot();
+        assertEquals(SIZE, snapshot.size());
+        assertEquals(SIZE - 1, snapshot.getAlive());
+        assertEquals(1, snapshot.getRound());
+        assertEquals(instance.getBattlefield().getParticipants(), snapshot.asList());
+    }
+    
+    @Test
+    public void testSnapshotStats() {
+        assertNull(instance.snapshot().getStats());
+        instance.update(new Runnable() {
+            @Override
+            public void run() {
+                instance.getBattlefield().setStats(new KillStats(3));
+            }
+        });
+        instance.fight();
+        KillStats live = instance.getBattlefield().getStats();
+        KillStats copy = instance.snapshot().getStats();
+        assertNotSame(live, copy);
+        assertArrayEquals(live.getLeaders(), copy.getLeaders());
+        
+        // The copy doesn't follow the fights
+        int leader = copy.getLeaders()[0];
+        for (int i = 0; i<100; i++){
+            instance.fight();
+        }
+        assertEquals(1, copy.getKills(leader));
+        assertEquals(1, copy.getLeaders().length);
+        assertEquals(3, live.getLeaders().length);
+    }
+    
+    @Test
+    public void testSnapshotNames() {
+        ConcurrentBattlefield.Snapshot snapshot = instance.snapshot();
+        instance.update(new Runnable() {
+            @Override
+            public void run() {
+                Roster roster = instance.getBattlefield().getRoster();
+                roster.setName(0, "Renamed");
+                roster.clear();
+                roster.add("Other", false);
+            }
+        });
+        
+        // The names are read after the copy, but the changes don't reach them
+        assertEquals(SIZE, snapshot.size());
+        assertEquals("Participant0", snapshot.getName(0));
+        assertEquals("Participant" + (SIZE - 1), snapshot.getName(SIZE - 1));
+        assertTrue(snapshot.isAlive(0));
+        assertEquals("Other", instance.getBattlefield().getRoster().getName(0));
+    }
+    
+    @Test(expected = UnsupportedOperationException.class)
+    public void testSnapshotReadOnly() {
+        instance.snapshot().setAlive(0, false);
+    }
+    
+    @Test
+    public void testStress() throws InterruptedException {
+        final int fighters = 4;
+        final int readers = 2;
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicInteger fights = new AtomicInteger();
+        final AtomicInteger snapshots = new AtomicInteger();
+        final AtomicReference<String> error = new AtomicReference<>();
+        ArrayList<Thread> threads = new ArrayList<>();
+        
+        for (int i = 0; i<fighters; i++){
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    await(start);
+                    while (instance.fight() != null){
+                        fights.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (int i = 0; i<readers; i++){
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    await(start);
+                    while (!done.get()){
+                        ConcurrentBattlefield.Snapshot snapshot = instance.snapshot();
+                        int alive = 0;
+                        for (int j = 0; j<snapshot.size(); j++){
+                            if (snapshot.isAlive(j)) alive++;
+                        }
+                        if (alive != snapshot.getAlive() || snapshot.getRound() != SIZE - alive){
+                            error.set("Torn snapshot: " + alive + " alive, " + snapshot.getAlive() + " counted, round " + snapshot.getRound());
+                        }
+                        snapshots.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads){
+            thread.start();
+        }
+        start.countDown();
+        for (int i = 0; i<fighters; i++){
+            threads.get(i).join();
+        }
+        done.set(true);
+        for (Thread thread : threads){
+            thread.join();
+        }
+        
+        assertNull(error.get());
+        assertTrue(snapshots.get() > 0);
+        assertEquals(SIZE - 1, fights.get());
+        assertEquals(1, instance.getAlive());
+        assertEquals(SIZE - 1, instance.getRound());
+    }
+    
+    @Test
+    public void testUpdate() {
+        instance.update(new Runnable() {
+            @Override
+            public void run() {
+                instance.getBattlefield().updateList();
+            }
+        });
+        assertEquals(3, instance.getAlive());
+        assertEquals(5, instance.snapshot().size());
+    }
+    
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,69 @@
+package com.saespmar.warbot.twitter;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Properties;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class CredentialRegistryTest {
+    
+    @Test
+    public void testLoadFile() {
+        CredentialRegistry registry = new CredentialRegistry();
+        registry.loadFile("Main", new File("test_case/tokens"));
+        assertEquals("oauth_api_key", registry.getAuthentication("main").getCONSUMER_KEY());
+        assertEquals("oauth_access_token_secret", registry.getAuthentication("MAIN").getACCESS_SECRET());
+    }
+    
+    @Test
+    public void testLoadEnvironment() {
+        HashMap<String, String> environment = new HashMap<>();
+        environment.put("WARBOT_FIRST_BOT_CONSUMER_KEY", "key1");
+        environment.put("WARBOT_FIRST_BOT_CONSUMER_SECRET", "secret1");
+        environment.put("WARBOT_FIRST_BOT_ACCESS_KEY", "access1");
+        environment.put("WARBOT_FIRST_BOT_ACCESS_SECRET", "accessSecret1");
+        environment.put("WARBOT_INCOMPLETE_CONSUMER_KEY", "key2");
+        environment.put("PATH", "/bin");
+        
+        CredentialRegistry registry = new CredentialRegistry();
+        assertEquals(1, registry.loadEnvironment(environment));
+        assertEquals(1, registry.getAccounts().size());
+        Authentication auth = registry.getAuthentication("first_bot");
+        assertEquals("key1", auth.getCONSUMER_KEY());
+        assertEquals("secret1", auth.getCONSUMER_SECRET());
+        assertEquals("access1", auth.getACCESS_KEY());
+        assertEquals("accessSecret1", auth.getACCESS_SECRET());
+    }
+    
+    @Test
+    public void testLoadProperties() {
+        Properties properties = new Properties();
+        properties.setProperty("warbot.second.CONSUMER_KEY", "key");
+        properties.setProperty("warbot.second.CONSUMER_SECRET", "secret");
+        properties.setProperty("warbot.second.ACCESS_KEY", "access");
+        properties.setProperty("warbot.second.ACCESS_SECRET", "accessSecret");
+        
+        CredentialRegistry registry = new CredentialRegistry();
+        assertEquals(1, registry.loadProperties(properties));
+        assertEquals("access", registry.getAuthentication("second").getACCESS_KEY());
+    }
+    
+    @Test
+    public void testSharedClients() {
+        CredentialRegistry registry = new CredentialRegistry();
+        registry.loadFile("main", new File("test_case/tokens"));
+        assertSame(registry.getTwitter("main"), registry.getTwitter("Main"));
+        assertSame(registry.getPublisher("main"), registry.getPublisher("main"));
+        
+        // New tokens replace the client
+        Publisher old = registry.getPublisher("main");
+        registry.register("main", new Authentication("a", "b", "c", "d"));
+        assertNotSame(old, registry.getPublisher("main"));
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownAccount() {
+        new CredentialRegistry().getTwitter("nobody");
+    }
+}
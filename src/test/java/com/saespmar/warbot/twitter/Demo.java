@@ -1,40 +1,54 @@
 package com.saespmar.warbot.twitter;
 
 import java.io.File;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
-import twitter4j.StatusUpdate;
-import twitter4j.Twitter;
-import twitter4j.TwitterException;
-import twitter4j.TwitterFactory;
-import twitter4j.conf.ConfigurationBuilder;
+import javax.management.JMException;
 
 
 public class Demo {
     
     // Warbot configuration
-    private static Authentication auth;
+    private static CredentialRegistry credentials;
     private static Battlefield battlefield;
+    private static ConcurrentBattlefield concurrent;
+    private static FightStream stream;
     
     // Twitter configuration
-    private static ConfigurationBuilder twitterConfigBuilder;
-    private static Twitter twitter;
+    private static PublishingPipeline pipeline;
     
     public static void main(String[] args){
         
         // Warbot initialization
-        auth = new Authentication();
         battlefield = new Battlefield(new File("example_battlefield/battle.txt"));
+        battlefield.setStats(new KillStats()); // Top 10 killers
         
-        // Twitter initialization
-        twitterConfigBuilder = new ConfigurationBuilder();
-        twitterConfigBuilder.setDebugEnabled(true);
-        twitterConfigBuilder.setOAuthConsumerKey(auth.getCONSUMER_KEY());
-        twitterConfigBuilder.setOAuthConsumerSecret(auth.getCONSUMER_SECRET());
-        twitterConfigBuilder.setOAuthAccessToken(auth.getACCESS_KEY());
-        twitterConfigBuilder.setOAuthAccessTokenSecret(auth.getACCESS_SECRET());
-        twitter = new TwitterFactory(twitterConfigBuilder.build()).getInstance();
+        // Twitter initialization. Every account is read once and its client is shared by all its battles
+        credentials = new CredentialRegistry();
+        File tokens = new File("config/tokens.env");
+        if (tokens.isFile()) credentials.loadFile("warbot", tokens);
+        credentials.loadEnvironment(); // WARBOT_[ACCOUNT]_CONSUMER_KEY and so on, they replace the file
+        
+        // Publishing initialization (at most 1 tweet per minute)
+        pipeline = new PublishingPipeline(credentials.getPublisher("warbot"), new TokenBucket(1, 1, 1, TimeUnit.MINUTES));
+        
+        // Metrics, visible in any JMX console
+        BattleMetrics metrics = new BattleMetrics("battle");
+        try {
+            metrics.register();
+        } catch (JMException ex) {
+            ex.printStackTrace();
+        }
+        battlefield.setMetrics(metrics);
+        pipeline.setMetrics(metrics);
+        
+        // Every consumer of the fights runs on its own thread, so a slow one can't stall the fights
+        concurrent = new ConcurrentBattlefield(battlefield);
+        stream = new FightStream();
+        battlefield.setStream(stream);
+        subscribePersistence();
+        subscribeTweets();
         
         
         // ========= Select either a single tweet or a scheduled tweet =========
@@ -45,35 +59,106 @@ public class Demo {
     
     public static void singleTweet(){
         
-        // Simulate fight
-        Participant[] battle = battlefield.fight();
+        // Simulate fight. The consumers write the list and send the tweet
+        Participant[] battle = concurrent.fight();
         if (battle == null){
             System.out.println("Tweet not sent. The game is over!");
+            stream.close(); // The consumers and the pipeline stop
             return;
         }
-        battlefield.updateFile();
-        File image = battlefield.drawTable();
+        if (concurrent.getAlive() < 2) stream.close();
+    }
+    
+    public static void subscribePersistence(){
         
-        // Send tweet
-        String text = battle[0].getName() + " kills " + battle[1].getName() + " [" + battlefield.getAlive() + " remaining]";
-        if (battlefield.getAlive() < 2) text += ". The game has ended";
-        StatusUpdate status = new StatusUpdate(text);
-        status.setMedia(image);
+        // Only the latest fight matters, the file gets every change since the last write
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        stream.subscribe(new Consumer(executor){
+            @Override
+            public void onNext(FightReport report){
+                concurrent.updateFile();
+                subscription.request(1);
+            }
+        }, executor, 1, FightStream.Overflow.DROP_OLDEST);
+    }
+    
+    public static void subscribeTweets(){
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        final RasterTableRenderer renderer = new RasterTableRenderer(); // Faster than loading the fonts of AWT
+        renderer.setLeaderboard(battlefield.getStats());
+        stream.subscribe(new Consumer(executor){
+            @Override
+            public void onNext(FightReport report){
+                
+                // Send tweet in the background
+                File image = concurrent.drawTable(renderer);
+                String text = report.getKillerName() + " kills " + report.getVictimName() + " [" + report.getAlive() + " remaining]";
+                if (report.isGameOver()) text += ". The game has ended";
+                if (!pipeline.offer(new PublishingPipeline.Post(text, image)))
+                    System.out.println("Tweet not sent. Too many tweets waiting!");
+                subscription.request(1);
+            }
+            
+            @Override
+            public void onError(Throwable error){
+                super.onError(error);
+                shutdownPipeline();
+            }
+            
+            @Override
+            public void onComplete(){
+                super.onComplete();
+                shutdownPipeline();
+            }
+        }, executor, 16, FightStream.Overflow.DROP_NEWEST);
+    }
+    
+    // The last tweets are sent before the publisher thread stops, so the program can end
+    private static void shutdownPipeline(){
         try {
-            twitter.updateStatus(status);
-        } catch (TwitterException ex) {
-            ex.printStackTrace();
+            if (!pipeline.shutdown(30, TimeUnit.MINUTES)) System.out.println("Some tweets were not sent");
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
         }
     }
     
     public static void scheduledTweet(int hours){
-        final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
-        scheduler.scheduleAtFixedRate(new Runnable(){
+        
+        // The same scheduler can run many battles, each one with its own period
+        final BattleScheduler scheduler = new BattleScheduler();
+        scheduler.schedule(new Runnable(){
             @Override
             public void run(){
                 singleTweet();
-                if (battlefield.getAlive() < 2) scheduler.shutdown();
+                if (concurrent.getAlive() < 2) scheduler.shutdown();
             }
         }, 0, hours, TimeUnit.HOURS);
     }
+    
+    // Takes the fights one by one and stops its thread when the game ends
+    private abstract static class Consumer implements FightStream.Subscriber {
+        protected FightStream.Subscription subscription;
+        private final ExecutorService executor;
+        
+        Consumer(ExecutorService executor){
+            this.executor = executor;
+        }
+        
+        @Override
+        public void onSubscribe(FightStream.Subscription subscription){
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+        
+        @Override
+        public void onError(Throwable error){
+            error.printStackTrace();
+            executor.shutdown();
+        }
+        
+        @Override
+        public void onComplete(){
+            executor.shutdown();
+        }
+    }
 }
@@ -0,0 +1,91 @@
+package com.saespmar.warbot.twitter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class FightJournalTest {
+    
+    File file = new File("test_case/journal_test.journal");
+    FightJournal instance;
+    ColumnarRoster roster;
+    
+    @Before
+    public void setUp() {
+        file.delete();
+        instance = new FightJournal(file, 3);
+        roster = new ColumnarRoster();
+        for (int i = 0; i<5; i++){
+            roster.add("Test" + i, true);
+        }
+    }
+    
+    @After
+    public void tearDown() throws IOException {
+        instance.close();
+        file.delete();
+    }
+    
+    @Test
+    public void testReplayEmpty() throws IOException {
+        assertEquals(0, instance.replay(roster));
+        assertEquals(0, instance.getEvents());
+    }
+    
+    @Test
+    public void testAppendAndReplay() throws IOException {
+        instance.append(new FightEvent(1, 0, 3, 1000));
+        instance.append(new FightEvent(2, 0, 1, 2000));
+        instance.flush();
+        assertEquals(FightJournal.HEADER_SIZE + 2 * FightJournal.RECORD_SIZE, file.length());
+        assertEquals(2, instance.getEvents());
+        assertFalse(instance.needsCompaction());
+        
+        assertEquals(2, instance.replay(roster));
+        assertTrue(roster.isAlive(0));
+        assertFalse(roster.isAlive(1));
+        assertTrue(roster.isAlive(2));
+        assertFalse(roster.isAlive(3));
+        
+        instance.append(new FightEvent(3, 2, 0, 3000));
+        assertTrue(instance.needsCompaction());
+    }
+    
+    @Test
+    public void testIncompleteEvent() throws IOException {
+        instance.append(new FightEvent(1, 0, 3, 1000));
+        instance.close();
+        
+        // Simulate a crash in the middle of the second event
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.setLength(raf.length() + 7);
+        raf.close();
+        
+        FightJournal reopened = new FightJournal(file, 3);
+        assertEquals(1, reopened.getEvents());
+        reopened.append(new FightEvent(2, 3, 4, 2000));
+        assertEquals(2, reopened.replay(roster));
+        assertFalse(roster.isAlive(3));
+        assertFalse(roster.isAlive(4));
+        reopened.close();
+    }
+    
+    @Test
+    public void testReset() throws IOException {
+        instance.append(new FightEvent(1, 0, 3, 1000));
+        instance.reset();
+        assertEquals(0, instance.getEvents());
+        assertEquals(0, instance.replay(roster));
+        assertEquals(FightJournal.HEADER_SIZE, file.length());
+    }
+    
+    @Test(expected = IOException.class)
+    public void testNotAJournal() throws IOException {
+        new FightJournal(new File("test_case/battle.txt"), 3).replay(roster);
+    }
+    
+}
@@ -0,0 +1,153 @@
+package com.saespmar.warbot.twitter;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class FightRulesTest {
+    
+    @Test
+    public void testFenwickTree() {
+        long[] weights = {3, 0, 5, 1, 0, 0, 7};
+        FenwickTree tree = new FenwickTree(weights);
+        assertEquals(16, tree.total());
+        assertEquals(8, tree.prefix(3));
+        
+        // Every cumulative weight falls on the position that owns it
+        long sum = 0;
+        for (int i = 0; i<weights.length; i++){
+            for (long target = sum; target<sum + weights[i]; target++){
+                assertEquals(i, tree.find(target));
+            }
+            sum += weights[i];
+        }
+        
+        tree.add(1, 2);
+        tree.add(6, -7);
+        assertEquals(11, tree.total());
+        assertEquals(1, tree.find(3));
+        assertEquals(3, tree.find(10));
+    }
+    
+    @Test
+    public void testWeighted() {
+        
+        // The strong participant wins almost every first fight
+        long[] weights = new long[10];
+        Arrays.fill(weights, 1);
+        weights[0] = 91;
+        int wins = 0;
+        for (int game = 0; game<1000; game++){
+            Battlefield battlefield = TestBattlefields.seeded(10);
+            battlefield.setRules(FightRules.weighted(weights));
+            battlefield.setRandom(new SplitMixRandom(game));
+            Participant[] fight = battlefield.fight();
+            if (fight[0].getName().equals("Test0")) wins++;
+        }
+        assertTrue(wins > 800);
+    }
+    
+    @Test
+    public void testTeams() {
+        int[] teams = new int[20];
+        for (int i = 0; i<teams.length; i++){
+            teams[i] = i % 3;
+        }
+        FightRules rules = FightRules.teams(teams);
+        Battlefield battlefield = TestBattlefields.seeded(20);
+        battlefield.setRules(rules);
+        assertEquals(3, rules.getTeamsAlive());
+        
+        Iterator<FightEvent> fights = battlefield.fights();
+        while (fights.hasNext()){
+            FightEvent event = fights.next();
+            assertFalse(rules.sameTeam(event.getKiller(), event.getVictim()));
+        }
+        
+        // The game ends with one team standing
+        assertEquals(1, rules.getTeamsAlive());
+        assertNull(battlefield.fight());
+        int team = -1;
+        for (int i = 0; i<20; i++){
+            if (battlefield.getRoster().isAlive(i)){
+                if (team == -1) team = teams[i];
+                assertEquals(team, teams[i]);
+            }
+        }
+        assertTrue(battlefield.getAlive() >= 1);
+    }
+    
+    @Test
+    public void testKillBonus() {
+        FightRules rules = new FightRules(null, null);
+        rules.setKillBonus(5);
+        Battlefield battlefield = TestBattlefields.seeded(50);
+        battlefield.setRules(rules);
+        Participant[] fight = battlefield.fight();
+        int killer = battlefield.find(fight[0].getName())[0];
+        assertEquals(6, rules.getWeight(killer));
+        
+        Iterator<FightEvent> fights = battlefield.fights(new Random(1));
+        while (fights.hasNext()){
+            fights.next();
+        }
+        assertEquals(1, battlefield.getAlive());
+    }
+    
+    @Test
+    public void testAdmin() {
+        FightRules rules = FightRules.teams(new int[]{1, 1, 2, 2});
+        Battlefield battlefield = TestBattlefields.seeded(4);
+        battlefield.setRules(rules);
+        
+        // Killing a whole team ends the game, reviving one of them restarts it
+        battlefield.kill(2);
+        battlefield.kill(3);
+        assertEquals(1, rules.getTeamsAlive());
+        assertNull(battlefield.fight());
+        battlefield.revive(3);
+        assertEquals(2, rules.getTeamsAlive());
+        
+        // Participants added later are in their own team
+        ListRoster after = new ListRoster();
+        after.add("Test0", true);
+        after.add("Test1", true);
+        after.add("Test2", false);
+        after.add("Test3", true);
+        after.add("Late", true);
+        assertTrue(battlefield.applyDiff(RosterDiff.between(battlefield.getRoster(), after)));
+        assertEquals(3, rules.getTeamsAlive());
+        assertFalse(rules.sameTeam(0, 4));
+        assertNotNull(battlefield.fight());
+    }
+    
+    @Test
+    public void testRemoveRows() {
+        FightRules rules = new FightRules(new long[]{1, 2, 3, 4, 5}, new int[]{1, 1, 2, 2, 3});
+        Battlefield battlefield = TestBattlefields.seeded(5);
+        battlefield.setRules(rules);
+        rules.setWeight(3, 40);
+        
+        // Removing a row in the middle moves the weights and teams of the ones after it
+        ListRoster after = new ListRoster();
+        after.add("Test0", true);
+        after.add("Test2", true);
+        after.add("Test3", true);
+        after.add("Test4", true);
+        after.add("Late", true);
+        assertTrue(battlefield.applyDiff(RosterDiff.between(battlefield.getRoster(), after)));
+        assertEquals("Test2", battlefield.getRoster().getName(1));
+        assertEquals(1, rules.getWeight(0));
+        assertEquals(3, rules.getWeight(1));
+        assertEquals(40, rules.getWeight(2));
+        assertEquals(5, rules.getWeight(3));
+        assertEquals(1, rules.getWeight(4));
+        assertFalse(rules.sameTeam(0, 1));
+        assertTrue(rules.sameTeam(1, 2));
+        assertFalse(rules.sameTeam(2, 3));
+        assertFalse(rules.sameTeam(3, 4));
+        assertEquals(4, rules.getTeamsAlive());
+    }
+}
@@ -0,0 +1,182 @@
+package com.saespmar.warbot.twitter;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class FightStreamTest {
+    
+    /**
+     *
+     * <p>Stores the reports, asking for a fixed number of them at first and
+     * one more after each, and waits for the end of the stream.</p>
+     */
+    private static class Collector implements FightStream.Subscriber {
+        final List<FightReport> reports = Collections.synchronizedList(new ArrayList<FightReport>());
+        final CountDownLatch done = new CountDownLatch(1);
+        final CountDownLatch gate;
+        final long initial;
+        volatile Throwable error;
+        volatile FightStream.Subscription subscription;
+        
+        Collector(long initial, CountDownLatch gate) {
+            this.initial = initial;
+            this.gate = gate;
+        }
+        
+        @Override
+        public void onSubscribe(FightStream.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(initial);
+        }
+        
+        @Override
+        public void onNext(FightReport report) {
+            try {
+                if (gate != null) gate.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            reports.add(report);
+            if (initial != Long.MAX_VALUE) subscription.request(1);
+        }
+        
+        @Override
+        public void onError(Throwable error) {
+            this.error = error;
+            done.countDown();
+        }
+        
+        @Override
+        public void onComplete() {
+            done.countDown();
+        }
+    }
+    
+    private static FightReport report(int round) {
+        return new FightReport(new FightEvent(round, 0, round, 0), "Killer", "Victim" + round, 100 - round, false);
+    }
+    
+    @Test
+    public void testBattlefield() throws InterruptedException {
+        ArrayList<Participant> roster = new ArrayList<>();
+        for (int i = 0; i<50; i++){
+            roster.add(new Participant("Test" + i));
+        }
+        Battlefield battlefield = new Battlefield(new File("test_case/battle.txt"), "test_case");
+        battlefield.setParticipants(roster);
+        FightStream stream = new FightStream();
+        battlefield.setStream(stream);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Collector all = new Collector(Long.MAX_VALUE, null);
+        stream.subscribe(all, executor, 64, FightStream.Overflow.DROP_OLDEST);
+        
+        battlefield.kill(0);
+        while (battlefield.fight() != null){
+        }
+        stream.close();
+        assertTrue(all.done.await(5, TimeUnit.SECONDS));
+        executor.shutdown();
+        
+        // Every fight arrives in order, with the names as they were
+        assertNull(all.error);
+        assertEquals(49, all.reports.size());
+        assertNull(all.reports.get(0).getKillerName());
+        assertEquals("Test0", all.reports.get(0).getVictimName());
+        for (int i = 1; i<49; i++){
+            FightReport report = all.reports.get(i);
+            assertEquals(i, report.getEvent().getRound());
+            assertEquals(49 - i, report.getAlive());
+            assertEquals(roster.get(report.getEvent().getVictim()).getName(), report.getVictimName());
+        }
+        assertTrue(all.reports.get(48).isGameOver());
+    }
+    
+    @Test
+    public void testSlowSubscriber() throws InterruptedException {
+        FightStream stream = new FightStream();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CountDownLatch gate = new CountDownLatch(1);
+        Collector slow = new Collector(1, gate);
+        Collector fast = new Collector(1, null);
+        stream.subscribe(slow, executor, 4, FightStream.Overflow.DROP_OLDEST);
+        stream.subscribe(fast, executor, 1000, FightStream.Overflow.DROP_NEWEST);
+        
+        // The slow subscriber doesn't stop the publisher nor the other subscriber
+        for (int i = 1; i<=1000; i++){
+            stream.publish(report(i));
+        }
+        gate.countDown();
+        stream.close();
+        assertTrue(slow.done.await(5, TimeUnit.SECONDS));
+        assertTrue(fast.done.await(5, TimeUnit.SECONDS));
+        executor.shutdown();
+        
+        assertEquals(1000, fast.reports.size());
+        assertEquals(1000, stream.getPublished());
+        
+        // The slow one got the one it was handling and the latest ones
+        assertTrue(slow.reports.size() <= 5);
+        assertEquals(1000, slow.reports.get(slow.reports.size() - 1).getEvent().getRound());
+        assertEquals(1000 - slow.reports.size(), stream.getDropped());
+        assertEquals(0, stream.getSubscribers());
+    }
+    
+    @Test
+    public void testDemand() throws InterruptedException {
+        FightStream stream = new FightStream();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Collector none = new Collector(Long.MAX_VALUE, null) {
+            @Override
+            public void onSubscribe(FightStream.Subscription subscription) {
+                this.subscription = subscription;
+            }
+        };
+        stream.subscribe(none, executor, 10, FightStream.Overflow.DROP_NEWEST);
+        for (int i = 1; i<=20; i++){
+            stream.publish(report(i));
+        }
+        
+        // Nothing is delivered until it's requested, and the new ones didn't fit
+        Thread.sleep(50);
+        assertTrue(none.reports.isEmpty());
+        assertEquals(10, stream.getDropped());
+        none.subscription.request(3);
+        stream.close();
+        Thread.sleep(50);
+        assertEquals(3, none.reports.size());
+        assertEquals(1, none.done.getCount());
+        none.subscription.request(Long.MAX_VALUE);
+        assertTrue(none.done.await(5, TimeUnit.SECONDS));
+        assertEquals(10, none.reports.size());
+        assertEquals(10, none.reports.get(9).getEvent().getRound());
+        
+        // Wrong requests and late subscribers
+        Collector late = new Collector(0, null);
+        stream.subscribe(late, executor, 10, FightStream.Overflow.DROP_NEWEST);
+        assertTrue(late.done.await(5, TimeUnit.SECONDS));
+        assertTrue(late.error instanceof IllegalArgumentException);
+        executor.shutdown();
+    }
+    
+    @Test
+    public void testCloseExceptionally() throws InterruptedException {
+        FightStream stream = new FightStream();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Collector collector = new Collector(1, new CountDownLatch(0));
+        stream.subscribe(collector, executor);
+        stream.closeExceptionally(new IllegalStateException("Test"));
+        stream.publish(report(1));
+        assertTrue(collector.done.await(5, TimeUnit.SECONDS));
+        assertTrue(collector.error instanceof IllegalStateException);
+        assertTrue(collector.reports.isEmpty());
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,184 @@
+package com.saespmar.warbot.twitter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class GroupCommitLogTest {
+    
+    File file = new File("test_case/group.log");
+    GroupCommitLog instance;
+    
+    @Before
+    public void setUp() throws IOException {
+        file.delete();
+        instance = new GroupCommitLog(file, 5, TimeUnit.MILLISECONDS);
+    }
+    
+    @After
+    public void tearDown() throws IOException {
+        instance.close();
+        file.delete();
+    }
+    
+    @Test
+    public void testRecovery() throws IOException {
+        FightJournal first = instance.journal("first", 10);
+        FightJournal second = instance.journal("second", 10);
+        first.setSeed(42);
+        first.reset();
+        first.append(new FightEvent(1, 0, 3, 1000));
+        second.append(new FightEvent(1, 2, 1, 1000));
+        first.append(new FightEvent(2, 0, 1, 2000));
+        first.flush();
+        second.flush();
+        instance.close();
+        
+        // A torn record at the end is discarded
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.seek(raf.length());
+        raf.write(new byte[5]);
+        raf.close();
+        
+        instance = new GroupCommitLog(file, 5, TimeUnit.MILLISECONDS);
+        first = instance.journal("first", 10);
+        assertEquals(2, first.getEvents());
+        assertEquals(42, first.getSeed());
+        ColumnarRoster roster = new ColumnarRoster();
+        for (int i = 0; i<5; i++){
+            roster.add("Test" + i, true);
+        }
+        assertEquals(2, first.replay(roster));
+        assertFalse(roster.isAlive(1));
+        assertFalse(roster.isAlive(3));
+        assertEquals(1, instance.journal("second", 10).getEvents());
+        
+        // Reset only affects one journal
+        first.reset();
+        assertEquals(0, first.getEvents());
+        assertEquals(1, instance.journal("second", 10).getEvents());
+    }
+    
+    @Test
+    public void testGroupCommit() throws InterruptedException {
+        final int battles = 8;
+        final int rounds = 20;
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        ArrayList<Thread> threads = new ArrayList<>();
+        for (int b = 0; b<battles; b++){
+            final FightJournal journal = instance.journal("battle" + b, 1000);
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int r = 1; r<=rounds; r++){
+                            journal.append(new FightEvent(r, 0, r, r));
+                            journal.flush();
+                        }
+                    } catch (Throwable ex) {
+                        error.set(ex);
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads){
+            thread.start();
+        }
+        for (Thread thread : threads){
+            thread.join();
+        }
+        assertNull(error.get());
+        
+        // Flushes of different battles share the syncs
+        assertTrue(instance.getSyncs() < battles * rounds);
+        assertEquals(GroupCommitLog.HEADER_SIZE + battles * rounds * GroupCommitLog.RECORD_SIZE, file.length());
+    }
+    
+    @Test
+    public void testBattlefield() throws IOException {
+        File list = new File("test_case/group_battle.txt");
+        ArrayList<Participant> participants = new ArrayList<>();
+        for (int i = 0; i<10; i++){
+            participants.add(new Participant("Test" + i));
+        }
+        Battlefield battlefield = new Battlefield(new File("test_case/battle.txt"));
+        battlefield.setParticipantsFile(list);
+        battlefield.setParticipants(participants);
+        battlefield.setJournal(instance.journal(list.getPath(), 100));
+        battlefield.updateFile();
+        for (int i = 0; i<3; i++){
+            battlefield.fight();
+            battlefield.updateFile();
+        }
+        long listLength = list.length();
+        instance.close();
+        
+        // After a restart, the list and the log rebuild the battlefield
+        instance = new GroupCommitLog(file, 5, TimeUnit.MILLISECONDS);
+        Battlefield restored = new Battlefield(new File("test_case/battle.txt"));
+        restored.setParticipantsFile(list);
+        restored.setJournal(instance.journal(list.getPath(), 100));
+        restored.updateList();
+        assertEquals(battlefield.getParticipants(), restored.getParticipants());
+        assertEquals(7, restored.getAlive());
+        assertEquals(3, restored.getRound());
+        assertEquals(listLength, list.length());
+        assertFalse(new File("test_case/group_battle.txt.tmp").exists());
+        list.delete();
+    }
+    
+    @Test
+    public void testResume() throws IOException {
+        File list = new File("test_case/group_resume.txt");
+        ArrayList<Participant> participants = new ArrayList<>();
+        for (int i = 0; i<20; i++){
+            participants.add(new Participant("Test" + i));
+        }
+        Battlefield battlefield = new Battlefield(new File("test_case/battle.txt"));
+        battlefield.setParticipantsFile(list);
+        battlefield.setParticipants(participants);
+        battlefield.setRandom(new SplitMixRandom(77));
+        battlefield.setJournal(instance.journal(list.getPath(), 100));
+        for (int i = 0; i<3; i++){
+            battlefield.fight();
+        }
+        battlefield.updateFile(); // The list, with the position after 3 fights
+        for (int i = 0; i<4; i++){
+            battlefield.fight();
+            battlefield.updateFile();
+        }
+        int slot = 0;
+        while (!battlefield.getRoster().isAlive(slot)) slot++;
+        battlefield.kill(slot); // Outside of a fight, it doesn't draw
+        battlefield.updateFile();
+        instance.close();
+        
+        // The resumed game draws the same values the original one would draw
+        instance = new GroupCommitLog(file, 5, TimeUnit.MILLISECONDS);
+        Battlefield resumed = new Battlefield(new File("test_case/battle.txt"));
+        resumed.setParticipantsFile(list);
+        resumed.setJournal(instance.journal(list.getPath(), 100));
+        resumed.updateList();
+        assertEquals(battlefield.getParticipants(), resumed.getParticipants());
+        SplitMixRandom random = (SplitMixRandom) resumed.getRandom();
+        SplitMixRandom expected = (SplitMixRandom) battlefield.getRandom();
+        assertEquals(77, random.getSeed());
+        assertEquals(expected.getDraws(), random.getDraws());
+        assertEquals(expected.nextLong(), random.nextLong());
+        list.delete();
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testHashCollision() {
+        // Both names have the same hash
+        instance.journal("Aa", 10);
+        instance.journal("BB", 10);
+    }
+}
@@ -0,0 +1,123 @@
+package com.saespmar.warbot.twitter;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import javax.imageio.ImageIO;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ImageEncoderTest {
+    
+    BufferedImage img;
+    File low = new File("test_case/encoder_low.jpg");
+    File high = new File("test_case/encoder_high.jpg");
+    
+    @Before
+    public void setUp() {
+        ColumnarRoster roster = new ColumnarRoster();
+        for (int i = 0; i<50; i++){
+            roster.add("Participant " + i, i % 2 == 0);
+        }
+        img = new TableRenderer().render(roster);
+    }
+    
+    @After
+    public void tearDown() {
+        low.delete();
+        high.delete();
+    }
+    
+    @Test
+    public void testWrite() throws IOException {
+        new ImageEncoder().write(img, low);
+        BufferedImage read = ImageIO.read(low);
+        assertEquals(img.getWidth(), read.getWidth());
+        assertEquals(img.getHeight(), read.getHeight());
+    }
+    
+    @Test
+    public void testQuality() throws IOException {
+        new ImageEncoder("jpg", 0.1f).write(img, low);
+        new ImageEncoder("jpg", 1f).write(img, high);
+        assertTrue(low.length() < high.length());
+        
+        // Overwriting a bigger file doesn't leave old bytes
+        new ImageEncoder("jpg", 0.1f).write(img, high);
+        assertEquals(low.length(), high.length());
+    }
+    
+    @Test
+    public void testWriteStream() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new ImageEncoder("png", -1).write(img, out);
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(img.getWidth(), decoded.getWidth());
+        assertEquals(img.getRGB(0, 0), decoded.getRGB(0, 0));
+    }
+    
+    @Test
+    public void testSubmit() throws InterruptedException, ExecutionException {
+        ImageEncoder encoder = new ImageEncoder("png", -1);
+        Future<File> result = encoder.submit(img, low);
+        assertEquals(low, result.get());
+        assertTrue(low.exists());
+        encoder.shutdown();
+    }
+    
+    @Test(timeout = 10000)
+    public void testSubmitWhileWriting() throws InterruptedException, ExecutionException {
+        final ImageEncoder encoder = new ImageEncoder("png", -1);
+        final CountDownLatch writing = new CountDownLatch(1);
+        final CountDownLatch finish = new CountDownLatch(1);
+        
+        // Another thread holds the writer with a stream that blocks
+        final OutputStream blocked = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                writing.countDown();
+                try {
+                    finish.await();
+                } catch (InterruptedException ex) {
+                    throw new InterruptedIOException();
+                }
+            }
+        };
+        Thread other = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    encoder.write(img, blocked);
+                } catch (IOException ex) {
+                    ex.printStackTrace();
+                }
+            }
+        });
+        other.start();
+        writing.await();
+        
+        // Submitting doesn't wait for it, only the background write does
+        Future<File> result = encoder.submit(img, low);
+        assertFalse(result.isDone());
+        finish.countDown();
+        assertEquals(low, result.get());
+        assertTrue(low.exists());
+        other.join();
+        encoder.shutdown();
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownFormat() {
+        new ImageEncoder("unknown", -1);
+    }
+
+}
@@ -0,0 +1,151 @@
+package com.saespmar.warbot.twitter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class KillStatsTest {
+    
+    @Test
+    public void testIndexedMinHeap() {
+        IndexedMinHeap heap = new IndexedMinHeap(3, 10);
+        heap.add(4, 50);
+        heap.add(7, 20);
+        heap.add(2, 30);
+        assertEquals(20, heap.minKey());
+        assertTrue(heap.contains(7));
+        
+        heap.increase(7, 60);
+        assertEquals(30, heap.minKey());
+        heap.replaceMin(9, 40);
+        assertFalse(heap.contains(2));
+        assertTrue(heap.contains(9));
+        assertEquals(40, heap.minKey());
+        
+        heap.clear(10);
+        assertEquals(0, heap.size());
+        assertFalse(heap.contains(4));
+    }
+    
+    @Test
+    public void testGame() {
+        KillStats stats = new KillStats(5);
+        Battlefield battlefield = TestBattlefields.seeded(200);
+        battlefield.setStats(stats);
+        int[] kills = new int[200];
+        int[] deaths = new int[200];
+        Arrays.fill(deaths, -1);
+        int[] order = new int[200]; // Order of the last kill, to break ties
+        int fights = 0;
+        Participant[] fight;
+        while ((fight = battlefield.fight()) != null){
+            fights++;
+            int killer = battlefield.getRoster().asList().indexOf(fight[0]);
+            int victim = battlefield.getRoster().asList().indexOf(fight[1]);
+            kills[killer]++;
+            order[killer] = fights;
+            deaths[victim] = battlefield.getRound();
+            
+            // The leaderboard is always the same as sorting everyone
+            assertArrayEquals(expectedLeaders(kills, order, 5), stats.getLeaders());
+        }
+        assertEquals(199, fights);
+        for (int slot = 0; slot<200; slot++){
+            assertEquals(kills[slot], stats.getKills(slot));
+            assertEquals(deaths[slot], stats.getDeathRound(slot));
+        }
+    }
+    
+    @Test
+    public void testAdminChanges() {
+        KillStats stats = new KillStats(3);
+        Battlefield battlefield = TestBattlefields.seeded(10);
+        battlefield.setStats(stats);
+        for (int i = 0; i<5; i++){
+            battlefield.fight();
+        }
+        int leader = stats.getLeaders()[0];
+        int kills = stats.getKills(leader);
+        assertTrue(kills > 0);
+        
+        // Killed by hand, without a killer
+        int alive = 0;
+        while (!battlefield.getRoster().isAlive(alive) || alive == leader){
+            alive++;
+        }
+        assertTrue(battlefield.kill(alive));
+        assertEquals(5, stats.getDeathRound(alive));
+        assertTrue(battlefield.revive(alive));
+        assertEquals(-1, stats.getDeathRound(alive));
+        
+        // Removing participants before the leader moves its statistics too
+        ArrayList<Participant> after = new ArrayList<>();
+        for (Participant p : battlefield.getParticipants()){
+            after.add(new Participant(p.getName(), p.isAlive()));
+        }
+        String name = after.get(leader).getName();
+        int removed = 0;
+        for (int slot = leader - 1; slot>=0 && removed<2; slot--, removed++){
+            after.remove(slot);
+        }
+        after.add(new Participant("New"));
+        assertTrue(battlefield.applyDiff(RosterDiff.between(battlefield.getRoster(), new ListRoster(after))));
+        int moved = battlefield.find(name)[0];
+        assertEquals(leader - removed, moved);
+        assertEquals(kills, stats.getKills(moved));
+        assertEquals(moved, stats.getLeaders()[0]);
+        assertEquals(0, stats.getKills(battlefield.getRoster().size() - 1));
+        
+        // A new list starts again
+        battlefield.setParticipants(new ArrayList<Participant>());
+        assertEquals(0, stats.getLeaders().length);
+    }
+    
+    @Test
+    public void testLeaderboardPanel() {
+        KillStats stats = new KillStats(4);
+        Battlefield battlefield = TestBattlefields.seeded(30);
+        battlefield.setStats(stats);
+        for (int i = 0; i<20; i++){
+            battlefield.fight();
+        }
+        TableRenderer renderer = new TableRenderer();
+        renderer.setLeaderboard(stats);
+        assertEquals(3 * TableRenderer.CELL_WIDTH, renderer.render(battlefield.getRoster()).getWidth());
+        
+        // Drawn the same way with and without AWT
+        RasterTableRenderer raster = new RasterTableRenderer(BitmapFontBaker.bake(new TableRenderer()), true);
+        raster.setLeaderboard(stats);
+        battlefield.setRasterRenderer(raster);
+        RasterTableRendererTest.assertSamePixels(renderer.render(battlefield.getRoster()), raster.render(battlefield.getRoster()));
+        
+        // Only the victim is painted again, and the leaderboard
+        battlefield.fight();
+        RasterTableRendererTest.assertSamePixels(renderer.render(battlefield.getRoster()), raster.render(battlefield.getRoster()));
+        
+        // Short tables grow to fit the leaderboard
+        ColumnarRoster small = new ColumnarRoster();
+        small.add("A name long enough to be cut in the leaderboard", true);
+        assertEquals("1. A name long enough to b... (12)", TableRenderer.leaderText(1, small.getName(0), 12));
+        assertEquals(5 * TableRenderer.CELL_HEIGHT, raster.render(small).getHeight());
+    }
+    
+    private static int[] expectedLeaders(int[] kills, int[] order, int size) {
+        ArrayList<Integer> slots = new ArrayList<>();
+        for (int slot = 0; slot<kills.length; slot++){
+            if (kills[slot] > 0) slots.add(slot);
+        }
+        int[] result = new int[Math.min(size, slots.size())];
+        for (int i = 0; i<result.length; i++){
+            int best = -1;
+            for (int slot : slots){
+                if (best < 0 || kills[slot] > kills[best] || (kills[slot] == kills[best] && order[slot] < order[best])) best = slot;
+            }
+            result[i] = best;
+            slots.remove(Integer.valueOf(best));
+        }
+        return result;
+    }
+}
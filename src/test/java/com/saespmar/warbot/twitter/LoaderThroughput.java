@@ -0,0 +1,51 @@
+package com.saespmar.warbot.twitter;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+/**
+ *
+ * <p>Compares how fast a big list of participants is read by the default
+ * loader of {@link Battlefield}, by the {@link MappedRosterLoader} and
+ * from a {@link BattlefieldSnapshot}.</p>
+ */
+public class LoaderThroughput {
+    
+    public static void main(String[] args) throws IOException {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 5000000;
+        File file = File.createTempFile("throughput", ".txt");
+        file.deleteOnExit();
+        BufferedWriter bw = new BufferedWriter(new FileWriter(file));
+        for (int i = 0; i<size; i++){
+            if (i % 3 == 0) bw.write("# ");
+            bw.write("Participant number " + i);
+            bw.newLine();
+        }
+        bw.close();
+        double megabytes = file.length() / (1024.0 * 1024.0);
+        File snapshot = File.createTempFile("throughput", ".snap");
+        snapshot.deleteOnExit();
+        BattlefieldSnapshot.importText(file, snapshot);
+        
+        Battlefield battlefield = new Battlefield(file, file.getParent());
+        for (int i = 0; i<5; i++){
+            long start = System.nanoTime();
+            battlefield.updateList();
+            double list = (System.nanoTime() - start) / 1e9;
+            
+            start = System.nanoTime();
+            ColumnarRoster roster = new ColumnarRoster(size);
+            new MappedRosterLoader().load(file, roster);
+            double mapped = (System.nanoTime() - start) / 1e9;
+            
+            start = System.nanoTime();
+            BattlefieldSnapshot.read(snapshot);
+            double binary = (System.nanoTime() - start) / 1e9;
+            
+            System.out.printf("%.0f MB, %d lines: BufferedReader %.0f MB/s, mapped %.0f MB/s, snapshot %.0f MB/s%n",
+                    megabytes, size, megabytes / list, megabytes / mapped, megabytes / binary);
+        }
+    }
+}
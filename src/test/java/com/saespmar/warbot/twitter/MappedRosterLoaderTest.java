@@ -0,0 +1,83 @@
+package com.saespmar.warbot.twitter;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class MappedRosterLoaderTest {
+    
+    File file = new File("test_case/mapped_test.txt");
+    
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+    
+    @Test
+    public void testLoad() throws IOException {
+        ColumnarRoster roster = new ColumnarRoster();
+        new MappedRosterLoader().load(new File("test_case/battle.txt"), roster);
+        assertEquals(5, roster.size());
+        assertEquals("Test1", roster.getName(0));
+        assertEquals("Test2", roster.getName(1));
+        assertEquals("Test3", roster.getName(2));
+        assertEquals("Test4", roster.getName(3));
+        assertEquals("Test5", roster.getName(4));
+        assertTrue(roster.isAlive(0));
+        assertTrue(roster.isAlive(1));
+        assertFalse(roster.isAlive(2));
+        assertFalse(roster.isAlive(3));
+        assertTrue(roster.isAlive(4));
+    }
+    
+    @Test
+    public void testSmallWindows() throws IOException {
+        write("First one\r\n\r\n# Dead ñandú \r\n  \n#\tLast without line break");
+        
+        // Every window is smaller than a line, so it has to grow
+        ColumnarRoster roster = new ColumnarRoster();
+        new MappedRosterLoader(3).load(file, roster);
+        assertEquals(3, roster.size());
+        assertEquals("First one", roster.getName(0));
+        assertEquals("Dead ñandú", roster.getName(1));
+        assertEquals("Last without line break", roster.getName(2));
+        assertTrue(roster.isAlive(0));
+        assertFalse(roster.isAlive(1));
+        assertFalse(roster.isAlive(2));
+    }
+    
+    @Test
+    public void testLineEndings() throws IOException {
+        write("Unix\nOld Mac\r# Windows\r\nLast\r");
+        ColumnarRoster roster = new ColumnarRoster();
+        new MappedRosterLoader(4).load(file, roster);
+        assertEquals(4, roster.size());
+        assertEquals("Unix", roster.getName(0));
+        assertEquals("Old Mac", roster.getName(1));
+        assertEquals("Windows", roster.getName(2));
+        assertEquals("Last", roster.getName(3));
+        assertFalse(roster.isAlive(2));
+    }
+    
+    @Test
+    public void testEmptyFile() throws IOException {
+        write("");
+        ColumnarRoster roster = new ColumnarRoster();
+        new MappedRosterLoader().load(file, roster);
+        assertEquals(0, roster.size());
+    }
+    
+    private void write(String content) throws IOException {
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        } finally {
+            out.close();
+        }
+    }
+    
+}
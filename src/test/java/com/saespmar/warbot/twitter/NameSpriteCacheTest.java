@@ -0,0 +1,55 @@
+package com.saespmar.warbot.twitter;
+
+import java.awt.image.BufferedImage;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class NameSpriteCacheTest {
+    
+    NameSpriteCache instance;
+    BufferedImage sprite = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+    
+    @Before
+    public void setUp() {
+        instance = new NameSpriteCache(2);
+    }
+    
+    @Test
+    public void testGetAndPut() {
+        assertNull(instance.get("Test1", true));
+        instance.put("Test1", true, sprite);
+        assertSame(sprite, instance.get("Test1", true));
+        assertNull(instance.get("Test1", false));
+        assertEquals(1, instance.getHits());
+        assertEquals(2, instance.getMisses());
+    }
+    
+    @Test
+    public void testEviction() {
+        instance.put("Test1", true, sprite);
+        instance.put("Test2", true, sprite);
+        instance.get("Test1", true); // Test2 is now the least recently used
+        instance.put("Test3", true, sprite);
+        
+        assertEquals(2, instance.size());
+        assertEquals(1, instance.getEvictions());
+        assertNotNull(instance.get("Test1", true));
+        assertNull(instance.get("Test2", true));
+        assertNotNull(instance.get("Test3", true));
+    }
+    
+    @Test
+    public void testClear() {
+        instance.put("Test1", true, sprite);
+        instance.clear();
+        assertEquals(0, instance.size());
+        assertEquals(2, instance.getMaxEntries());
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidSize() {
+        new NameSpriteCache(0);
+    }
+    
+}
@@ -0,0 +1,64 @@
+package com.saespmar.warbot.twitter;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class PagedTableRendererTest {
+    
+    ColumnarRoster roster;
+    PagedTableRenderer instance;
+    
+    @Before
+    public void setUp() {
+        roster = new ColumnarRoster();
+        for (int i = 0; i<250; i++){
+            roster.add("Participant " + i, true);
+        }
+        instance = new PagedTableRenderer(100, new ForkJoinPool(2));
+    }
+    
+    @After
+    public void tearDown() {
+        for (int i = 1; i<=3; i++){
+            new File("test_case/page" + i + ".jpg").delete();
+        }
+    }
+    
+    @Test
+    public void testRender() {
+        List<File> pages = instance.render(roster, "test_case");
+        assertEquals(3, pages.size());
+        for (int i = 0; i<3; i++){
+            assertEquals("test_case" + File.separator + "page" + (i + 1) + ".jpg", pages.get(i).getPath());
+            assertTrue(pages.get(i).exists());
+        }
+    }
+    
+    @Test
+    public void testOnlyChangedPages() {
+        List<File> pages = instance.render(roster, "test_case");
+        for (File page : pages){
+            page.delete();
+        }
+        
+        // Only the second page has changes, so it's the only one written again
+        roster.setAlive(150, false);
+        instance.markDirty(150);
+        pages = instance.render(roster, "test_case");
+        assertFalse(pages.get(0).exists());
+        assertTrue(pages.get(1).exists());
+        assertFalse(pages.get(2).exists());
+        
+        // Everything is drawn again after invalidating
+        instance.invalidate();
+        instance.render(roster, "test_case");
+        assertTrue(pages.get(0).exists());
+        assertTrue(pages.get(2).exists());
+    }
+    
+}
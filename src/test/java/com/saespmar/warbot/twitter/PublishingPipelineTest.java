@@ -0,0 +1,139 @@
+package com.saespmar.warbot.twitter;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class PublishingPipelineTest {
+    
+    @Test
+    public void testPublish() throws InterruptedException {
+        InMemoryPublisher publisher = new InMemoryPublisher();
+        PublishingPipeline pipeline = new PublishingPipeline(publisher, null);
+        for (int i = 0; i<10; i++){
+            pipeline.put(new PublishingPipeline.Post("Tweet " + i, (File) null));
+        }
+        assertTrue(pipeline.shutdown(5, TimeUnit.SECONDS));
+        
+        assertEquals(10, pipeline.getPublished());
+        assertEquals(0, pipeline.getFailed());
+        assertEquals(10, publisher.getPublished().size());
+        assertEquals("Tweet 0", publisher.getPublished().get(0));
+        assertEquals("Tweet 9", publisher.getPublished().get(9));
+    }
+    
+    @Test
+    public void testRetry() throws InterruptedException {
+        // Every second attempt fails, so every tweet needs a retry
+        InMemoryPublisher publisher = new InMemoryPublisher(0, 2);
+        PublishingPipeline pipeline = new PublishingPipeline(publisher, null, 10, 3, 1, 10);
+        for (int i = 0; i<4; i++){
+            pipeline.put(new PublishingPipeline.Post("Tweet " + i, (File) null));
+        }
+        assertTrue(pipeline.shutdown(5, TimeUnit.SECONDS));
+        
+        assertEquals(4, pipeline.getPublished());
+        assertEquals(0, pipeline.getFailed());
+        assertTrue(pipeline.getRetries() > 0);
+        assertEquals(4 + pipeline.getRetries(), publisher.getAttempts());
+    }
+    
+    @Test
+    public void testGiveUp() throws InterruptedException {
+        // Every attempt fails
+        InMemoryPublisher publisher = new InMemoryPublisher(0, 1);
+        PublishingPipeline pipeline = new PublishingPipeline(publisher, null, 10, 3, 1, 10);
+        pipeline.put(new PublishingPipeline.Post("Tweet", (File) null));
+        assertTrue(pipeline.shutdown(5, TimeUnit.SECONDS));
+        
+        assertEquals(0, pipeline.getPublished());
+        assertEquals(1, pipeline.getFailed());
+        assertEquals(3, publisher.getAttempts());
+    }
+    
+    @Test
+    public void testDrop() throws InterruptedException {
+        // A slow network makes the queue fill up
+        InMemoryPublisher publisher = new InMemoryPublisher(100, 0);
+        PublishingPipeline pipeline = new PublishingPipeline(publisher, null, 2, 1, 1, 1);
+        int accepted = 0;
+        for (int i = 0; i<10; i++){
+            if (pipeline.offer(new PublishingPipeline.Post("Tweet " + i, (File) null))) accepted++;
+        }
+        assertTrue(accepted < 10);
+        assertEquals(10 - accepted, pipeline.getDropped());
+        assertTrue(pipeline.shutdown(5, TimeUnit.SECONDS));
+        assertEquals(accepted, pipeline.getPublished());
+    }
+    
+    @Test
+    public void testRateLimit() throws InterruptedException {
+        InMemoryPublisher publisher = new InMemoryPublisher();
+        TokenBucket bucket = new TokenBucket(1, 1, 50, TimeUnit.MILLISECONDS);
+        PublishingPipeline pipeline = new PublishingPipeline(publisher, bucket);
+        long start = System.nanoTime();
+        for (int i = 0; i<4; i++){
+            pipeline.put(new PublishingPipeline.Post("Tweet " + i, (File) null));
+        }
+        assertTrue(pipeline.shutdown(5, TimeUnit.SECONDS));
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        
+        assertEquals(4, publisher.getPublished().size());
+        assertTrue(elapsed >= 120);
+    }
+    
+    @Test(timeout = 5000)
+    public void testShutdownFullQueue() throws InterruptedException {
+        InMemoryPublisher publisher = new InMemoryPublisher();
+        TokenBucket bucket = new TokenBucket(1, 1, 1, TimeUnit.HOURS);
+        PublishingPipeline pipeline = new PublishingPipeline(publisher, bucket, 1, 5, 1000, 300000);
+        
+        // The worker waits for a permit with the second update, and the third one fills the queue
+        for (int i = 0; i<3; i++){
+            pipeline.put(new PublishingPipeline.Post("Tweet " + i, (File) null));
+        }
+        assertFalse(pipeline.shutdown(100, TimeUnit.MILLISECONDS));
+        assertEquals(1, publisher.getPublished().size());
+    }
+    
+    @Test
+    public void testUnexpectedException() throws InterruptedException {
+        final InMemoryPublisher delegate = new InMemoryPublisher();
+        Publisher publisher = new Publisher() {
+            @Override
+            public void publish(String text, File media) throws PublishException {
+                if (text.equals("Tweet 1")) throw new IllegalArgumentException("Bad tweet");
+                delegate.publish(text, media);
+            }
+        };
+        PublishingPipeline pipeline = new PublishingPipeline(publisher, null, 10, 3, 1, 10);
+        for (int i = 0; i<3; i++){
+            pipeline.put(new PublishingPipeline.Post("Tweet " + i, (File) null));
+        }
+        assertTrue(pipeline.shutdown(5, TimeUnit.SECONDS));
+        
+        // The worker goes on after the exception, without retrying it
+        assertEquals(2, pipeline.getPublished());
+        assertEquals(1, pipeline.getFailed());
+        assertEquals(0, pipeline.getRetries());
+        assertEquals(2, delegate.getPublished().size());
+    }
+    
+    @Test
+    public void testRejectAfterShutdown() throws InterruptedException {
+        InMemoryPublisher publisher = new InMemoryPublisher();
+        PublishingPipeline pipeline = new PublishingPipeline(publisher, null);
+        assertTrue(pipeline.shutdown(5, TimeUnit.SECONDS));
+        
+        assertFalse(pipeline.offer(new PublishingPipeline.Post("Late", (File) null)));
+        assertEquals(1, pipeline.getDropped());
+        try {
+            pipeline.put(new PublishingPipeline.Post("Late", (File) null));
+            fail("The update was accepted after the shutdown");
+        } catch (IllegalStateException ex) {
+            assertEquals("The pipeline is shutting down", ex.getMessage());
+        }
+        assertEquals(0, pipeline.getPending());
+    }
+}
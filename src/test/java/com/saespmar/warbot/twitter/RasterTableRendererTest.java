@@ -0,0 +1,153 @@
+package com.saespmar.warbot.twitter;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import javax.imageio.ImageIO;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class RasterTableRendererTest {
+    
+    ColumnarRoster roster;
+    
+    @Before
+    public void setUp() {
+        roster = new ColumnarRoster();
+        for (int i = 0; i<60; i++){
+            roster.add("Participant with a long name number " + i + (i % 7 == 0 ? " Ñandú {Wj}" : ""), i % 4 != 0);
+        }
+        roster.add("Not Latin-1 世界", false);
+    }
+    
+    @Test
+    public void testLayout() {
+        RasterImage img = new RasterTableRenderer().render(roster);
+        assertEquals(3 * TableRenderer.CELL_WIDTH, img.getWidth());
+        assertEquals(21 * TableRenderer.CELL_HEIGHT, img.getHeight());
+    }
+    
+    @Test
+    public void testSameAsTableRenderer() throws IOException {
+        
+        // A font baked from the fonts of this machine draws exactly the same table
+        TableRenderer renderer = new TableRenderer();
+        BitmapFont font = BitmapFontBaker.bake(renderer);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        font.write(out);
+        font = BitmapFont.read(new ByteArrayInputStream(out.toByteArray()));
+        roster.setName(60, "Only Latin-1 çàÿ");
+        assertSamePixels(renderer.render(roster), new RasterTableRenderer(font, false).render(roster));
+    }
+    
+    @Test
+    public void testIncremental() {
+        RasterTableRenderer incremental = new RasterTableRenderer(true);
+        RasterImage first = incremental.render(roster);
+        assertArrayEquals(new RasterTableRenderer().render(roster).getPixels(), first.getPixels());
+        
+        roster.setAlive(7, false);
+        incremental.markDirty(7);
+        roster.setName(41, "Renamed");
+        incremental.markDirty(41);
+        RasterImage second = incremental.render(roster);
+        assertSame(first, second);
+        assertArrayEquals(new RasterTableRenderer().render(roster).getPixels(), second.getPixels());
+        
+        // A different number of participants means a new layout
+        roster.add("New participant", true);
+        assertArrayEquals(new RasterTableRenderer().render(roster).getPixels(), incremental.render(roster).getPixels());
+    }
+    
+    @Test
+    public void testPng() throws IOException {
+        RasterImage img = new RasterTableRenderer().render(roster);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new PngEncoder().write(img, out);
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(img.getWidth(), decoded.getWidth());
+        assertEquals(img.getHeight(), decoded.getHeight());
+        for (int y = 0; y<img.getHeight(); y++){
+            for (int x = 0; x<img.getWidth(); x++){
+                assertEquals(img.getRGB(x, y), decoded.getRGB(x, y) & 0xffffff);
+            }
+        }
+        assertTrue(out.size() < img.getWidth() * img.getHeight());
+    }
+    
+    @Test(timeout = 10000)
+    public void testSubmitWhileWriting() throws InterruptedException, ExecutionException {
+        final PngEncoder encoder = new PngEncoder();
+        final CountDownLatch writing = new CountDownLatch(1);
+        final CountDownLatch finish = new CountDownLatch(1);
+        
+        // Another thread holds the deflater with a stream that blocks
+        final OutputStream blocked = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                writing.countDown();
+                try {
+                    finish.await();
+                } catch (InterruptedException ex) {
+                    throw new InterruptedIOException();
+                }
+            }
+        };
+        final RasterImage image = new RasterTableRenderer().render(roster);
+        Thread other = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    encoder.write(image, blocked);
+                } catch (IOException ex) {
+                    ex.printStackTrace();
+                }
+            }
+        });
+        other.start();
+        writing.await();
+        
+        File file = new File("test_case/encoder.png");
+        Future<File> result = encoder.submit(image, file);
+        assertFalse(result.isDone());
+        finish.countDown();
+        assertEquals(file, result.get());
+        assertTrue(file.delete());
+        other.join();
+        encoder.shutdown();
+    }
+    
+    @Test
+    public void testBattlefield() {
+        Battlefield battlefield = new Battlefield(new File("test_case/battle.txt"), "test_case");
+        battlefield.setRasterRenderer(new RasterTableRenderer(true));
+        File first = battlefield.drawTable();
+        assertEquals(battlefield.getAlive() + "remaining.png", first.getName());
+        assertTrue(first.delete());
+        
+        battlefield.fight();
+        File second = battlefield.drawTable();
+        assertTrue(second.length() > 0);
+        assertTrue(second.delete());
+    }
+    
+    static void assertSamePixels(BufferedImage expected, RasterImage actual) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        int w = expected.getWidth();
+        int h = expected.getHeight();
+        int[] rgb = expected.getRGB(0, 0, w, h, null, 0, w);
+        for (int i = 0; i<rgb.length; i++){
+            rgb[i] &= 0xffffff;
+        }
+        assertArrayEquals(rgb, actual.getPixels());
+    }
+}
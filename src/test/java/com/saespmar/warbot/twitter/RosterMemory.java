@@ -0,0 +1,39 @@
+package com.saespmar.warbot.twitter;
+
+/**
+ *
+ * <p>Compares the heap used by a {@link ListRoster} and a
+ * {@link ColumnarRoster} holding the same participants. Run it with a fixed
+ * heap, for example <code>-Xms2g -Xmx2g</code>.</p>
+ */
+public class RosterMemory {
+    
+    public static void main(String[] args){
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        
+        long list = measure(new ListRoster(), size);
+        long columnar = measure(new ColumnarRoster(), size);
+        
+        System.out.println("Participants:   " + size);
+        System.out.println("ListRoster:     " + list / 1024 + " KB (" + list / size + " bytes per participant)");
+        System.out.println("ColumnarRoster: " + columnar / 1024 + " KB (" + columnar / size + " bytes per participant)");
+    }
+    
+    private static long measure(Roster roster, int size){
+        long before = usedMemory();
+        for (int i = 0; i<size; i++){
+            roster.add("Participant number " + i, i % 2 == 0);
+        }
+        long after = usedMemory();
+        if (roster.size() != size) throw new IllegalStateException(); // Keep the roster reachable
+        return after - before;
+    }
+    
+    private static long usedMemory(){
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i<5; i++){
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,162 @@
+package com.saespmar.warbot.twitter;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class RosterWatcherTest {
+    
+    File dir;
+    File list;
+    ConcurrentBattlefield instance;
+    
+    @Before
+    public void setUp() throws IOException {
+        dir = new File("test_case/watched");
+        dir.mkdirs();
+        list = new File(dir, "battle.txt");
+        write("Ann\nBob\nCarl\nDave\n");
+        instance = new ConcurrentBattlefield(new Battlefield(list, dir.getPath()));
+    }
+    
+    @After
+    public void tearDown() {
+        list.delete();
+        dir.delete();
+    }
+    
+    private void write(String content) throws IOException {
+        FileWriter fw = new FileWriter(list);
+        fw.write(content);
+        fw.close();
+    }
+    
+    @Test
+    public void testCheck() throws IOException {
+        RosterWatcher watcher = new RosterWatcher(instance);
+        try {
+            assertFalse(watcher.check());
+            
+            // A late entrant, a fixed name and a participant killed by hand
+            write("Ann\n# Bob\nKarl\nDave\nEve\n");
+            assertTrue(watcher.check());
+            ArrayList<Participant> expected = new ArrayList<>();
+            expected.add(new Participant("Ann"));
+            expected.add(new Participant("Bob", false));
+            expected.add(new Participant("Karl"));
+            expected.add(new Participant("Dave"));
+            expected.add(new Participant("Eve"));
+            assertEquals(expected, instance.getBattlefield().getParticipants());
+            assertEquals(4, instance.getAlive());
+            assertEquals(1, watcher.getReloads());
+        } finally {
+            watcher.close();
+        }
+    }
+    
+    @Test
+    public void testKeepsFights() throws IOException {
+        RosterWatcher watcher = new RosterWatcher(instance);
+        try {
+            instance.fight();
+            ArrayList<Participant> afterFight = new ArrayList<>();
+            for (Participant p : instance.getBattlefield().getParticipants()){
+                afterFight.add(new Participant(p.getName(), p.isAlive()));
+            }
+            
+            // The file doesn't have the fight, but only the new entrant is applied
+            write("Ann\nBob\nCarl\nDave\nEve\n");
+            assertTrue(watcher.check());
+            assertEquals(3 + 1, instance.getAlive());
+            assertEquals(afterFight, instance.getBattlefield().getParticipants().subList(0, 4));
+            
+            // Writing the list from the battlefield doesn't change anything
+            instance.updateFile();
+            assertFalse(watcher.check());
+        } finally {
+            watcher.close();
+        }
+    }
+    
+    @Test
+    public void testKillThenRename() throws IOException {
+        RosterWatcher watcher = new RosterWatcher(instance);
+        try {
+            instance.update(new Runnable() {
+                @Override
+                public void run() {
+                    instance.getBattlefield().kill("Bob");
+                }
+            });
+            
+            // The file still has Bob alive, only the name changes
+            write("Ann\nBobby\nCarl\nDave\n");
+            assertTrue(watcher.check());
+            ArrayList<Participant> expected = new ArrayList<>();
+            expected.add(new Participant("Ann"));
+            expected.add(new Participant("Bobby", false));
+            expected.add(new Participant("Carl"));
+            expected.add(new Participant("Dave"));
+            assertEquals(expected, instance.getBattlefield().getParticipants());
+            assertEquals(3, instance.getAlive());
+            assertArrayEquals(new int[]{1}, instance.getBattlefield().find("Bobby"));
+            
+            // Lines inserted in the middle go at the end, and later changes still find them
+            write("Ann\nEve\nBobby\nCarl\nDave\n");
+            assertTrue(watcher.check());
+            write("Ann\nEva\nBobby\nCarl\nDave\n");
+            assertTrue(watcher.check());
+            assertEquals("Eva", instance.getBattlefield().getRoster().getName(4));
+            assertEquals(5, instance.getBattlefield().getRoster().size());
+        } finally {
+            watcher.close();
+        }
+    }
+    
+    @Test
+    public void testOwnWrites() throws IOException {
+        RosterWatcher watcher = new RosterWatcher(instance);
+        try {
+            final Participant[] fight = instance.fight();
+            instance.updateFile();
+            assertFalse(watcher.check());
+            instance.update(new Runnable() {
+                @Override
+                public void run() {
+                    instance.getBattlefield().revive(fight[1].getName());
+                }
+            });
+            
+            // The list written is the new base, so the old death isn't applied again
+            FileWriter fw = new FileWriter(list, true);
+            fw.write("Eve\n");
+            fw.close();
+            assertTrue(watcher.check());
+            assertTrue(instance.getBattlefield().isAlive(fight[1].getName()));
+            assertEquals(5, instance.getAlive());
+        } finally {
+            watcher.close();
+        }
+    }
+    
+    @Test
+    public void testWatch() throws IOException, InterruptedException {
+        RosterWatcher watcher = new RosterWatcher(instance);
+        watcher.start();
+        try {
+            write("Ann\nBob\nCarl\nDave\nEve\nFrank\n");
+            long deadline = System.currentTimeMillis() + 10000;
+            while (instance.getAlive() != 6 && System.currentTimeMillis() < deadline){
+                Thread.sleep(50);
+            }
+            assertEquals(6, instance.getAlive());
+        } finally {
+            watcher.close();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.saespmar.warbot.twitter;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class SplitMixRandomTest {
+    
+    @Test
+    public void testSameSeed() {
+        SplitMixRandom first = new SplitMixRandom(42);
+        SplitMixRandom second = new SplitMixRandom(42);
+        for (int i = 0; i<100; i++){
+            assertEquals(first.nextLong(), second.nextLong());
+        }
+        assertNotEquals(new SplitMixRandom(1).nextLong(), new SplitMixRandom(2).nextLong());
+    }
+    
+    @Test
+    public void testJump() {
+        SplitMixRandom sequential = new SplitMixRandom(42);
+        for (int i = 0; i<1000; i++){
+            sequential.nextInt(10 + i);
+        }
+        assertEquals(1000, sequential.getDraws());
+        
+        SplitMixRandom jumped = new SplitMixRandom(42, 1000);
+        assertEquals(sequential.nextLong(), jumped.nextLong());
+        
+        jumped.setDraws(0);
+        assertEquals(new SplitMixRandom(42).nextInt(7), jumped.nextInt(7));
+    }
+    
+    @Test
+    public void testNextInt() {
+        SplitMixRandom random = new SplitMixRandom(7);
+        int[] counts = new int[10];
+        for (int i = 0; i<100000; i++){
+            counts[random.nextInt(10)]++;
+        }
+        for (int count : counts){
+            assertTrue(count > 9000 && count < 11000);
+        }
+    }
+    
+    @Test
+    public void testSetSeed() {
+        SplitMixRandom random = new SplitMixRandom(1);
+        random.nextLong();
+        random.setSeed(5);
+        assertEquals(5, random.getSeed());
+        assertEquals(0, random.getDraws());
+        assertEquals(new SplitMixRandom(5).nextLong(), random.nextLong());
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidBound() {
+        new SplitMixRandom().nextInt(0);
+    }
+    
+}
@@ -0,0 +1,87 @@
+package com.saespmar.warbot.twitter;
+
+import java.awt.image.BufferedImage;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class TableRendererTest {
+    
+    ColumnarRoster roster;
+    
+    @Before
+    public void setUp() {
+        roster = new ColumnarRoster();
+        for (int i = 0; i<60; i++){
+            roster.add("Participant with a long name number " + i, i % 4 != 0);
+        }
+    }
+    
+    @Test
+    public void testLayout() {
+        BufferedImage img = new TableRenderer().render(roster);
+        assertEquals(3 * TableRenderer.CELL_WIDTH, img.getWidth());
+        assertEquals(20 * TableRenderer.CELL_HEIGHT, img.getHeight());
+    }
+    
+    @Test
+    public void testIncremental() {
+        TableRenderer incremental = new TableRenderer(true);
+        BufferedImage first = incremental.render(roster);
+        assertSamePixels(new TableRenderer().render(roster), first);
+        
+        roster.setAlive(7, false);
+        incremental.markDirty(7);
+        roster.setAlive(41, false);
+        incremental.markDirty(41);
+        BufferedImage second = incremental.render(roster);
+        assertSame(first, second);
+        assertSamePixels(new TableRenderer().render(roster), second);
+    }
+    
+    @Test
+    public void testInvalidate() {
+        TableRenderer incremental = new TableRenderer(true);
+        incremental.render(roster);
+        
+        // Changes without marking the cell aren't painted until the renderer is invalidated
+        roster.setName(3, "Renamed");
+        incremental.invalidate();
+        assertSamePixels(new TableRenderer().render(roster), incremental.render(roster));
+        
+        // A different number of participants means a new layout
+        roster.add("New participant", true);
+        BufferedImage img = incremental.render(roster);
+        assertEquals(61, roster.size());
+        assertSamePixels(new TableRenderer().render(roster), img);
+    }
+    
+    @Test
+    public void testSpriteCache() {
+        TableRenderer cached = new TableRenderer(true);
+        NameSpriteCache cache = new NameSpriteCache(100);
+        cached.setSpriteCache(cache);
+        roster.clear();
+        for (int i = 0; i<60; i++){
+            roster.add("Participant " + i, true);
+        }
+        assertSamePixels(new TableRenderer().render(roster), cached.render(roster));
+        assertEquals(60, cache.getMisses());
+        
+        // Only the new status has to be drawn
+        roster.setAlive(5, false);
+        cached.invalidate();
+        assertSamePixels(new TableRenderer().render(roster), cached.render(roster));
+        assertEquals(61, cache.getMisses());
+        assertEquals(59, cache.getHits());
+    }
+    
+    static void assertSamePixels(BufferedImage expected, BufferedImage actual) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        int w = expected.getWidth();
+        int h = expected.getHeight();
+        assertArrayEquals(expected.getRGB(0, 0, w, h, null, 0, w), actual.getRGB(0, 0, w, h, null, 0, w));
+    }
+    
+}
@@ -0,0 +1,53 @@
+package com.saespmar.warbot.twitter;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *
+ * <p>Battlefields shared by the tests, with participants built in memory
+ * and a fixed seed, so every test plays the same game.</p>
+ */
+class TestBattlefields {
+    
+    private TestBattlefields() {
+    }
+    
+    /**
+     *
+     * <p>Create some participants alive, named Test0, Test1...</p>
+     */
+    static ArrayList<Participant> participants(int size) {
+        ArrayList<Participant> participants = new ArrayList<>(size);
+        for (int i = 0; i<size; i++){
+            participants.add(new Participant("Test" + i));
+        }
+        return participants;
+    }
+    
+    /**
+     *
+     * <p>Create a battlefield with some participants alive and the seed
+     * 42.</p>
+     */
+    static Battlefield seeded(int size) {
+        return seeded(new ListRoster(), participants(size));
+    }
+    
+    /**
+     *
+     * <p>Create a battlefield that keeps some participants in a roster,
+     * with the seed 42.</p>
+     */
+    static Battlefield seeded(Roster roster, List<Participant> participants) {
+        Battlefield battlefield = new Battlefield(new File("test_case/battle.txt"), "test_case", roster);
+        roster.clear();
+        for (Participant participant : participants){
+            roster.add(participant.getName(), participant.isAlive());
+        }
+        battlefield.setRoster(roster);
+        battlefield.setRandom(new SplitMixRandom(42));
+        return battlefield;
+    }
+}
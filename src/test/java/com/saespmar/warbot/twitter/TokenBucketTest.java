@@ -0,0 +1,34 @@
+package com.saespmar.warbot.twitter;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class TokenBucketTest {
+    
+    @Test
+    public void testBurst() {
+        TokenBucket bucket = new TokenBucket(3, 1, 1, TimeUnit.HOURS);
+        assertTrue(bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+    }
+    
+    @Test
+    public void testRefill() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(1, 1, 50, TimeUnit.MILLISECONDS);
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+        
+        long start = System.nanoTime();
+        bucket.acquire();
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(elapsed >= 40);
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalid() {
+        new TokenBucket(0, 1, 1, TimeUnit.SECONDS);
+    }
+}